@@ -36,6 +36,12 @@ android {
     // CRITICAL: This keeps your model files safe
     aaptOptions {
         noCompress += "tflite"
+        noCompress += "bin" // Route database is memory-mapped straight from the APK
+    }
+
+    sourceSets {
+        // Tests run the route compiler too
+        getByName("test").java.srcDir("src/routedb/java")
     }
 
     buildTypes {
@@ -53,12 +59,47 @@ android {
     }
 }
 
+// --- ROUTE DATABASE ---
+// src/main/routes/*.json -> assets/bus_routes.bin (see RouteDbCompiler / RouteDatabase).
+// The compiler is plain Java, built on its own so it can run on the build machine.
+val compileRouteDbTool by tasks.registering(JavaCompile::class) {
+    source = fileTree("src/routedb/java")
+    classpath = files()
+    destinationDirectory.set(layout.buildDirectory.dir("intermediates/routedb_tool"))
+    sourceCompatibility = "1.8"
+    targetCompatibility = "1.8"
+}
+
+// AGP sets outputDir and adds it to the variant's assets, so merging them runs this first
+abstract class CompileRouteDb : JavaExec() {
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+}
+
+androidComponents {
+    onVariants { variant ->
+        val compileRouteDb = tasks.register<CompileRouteDb>("compile${variant.name.replaceFirstChar { it.uppercase() }}RouteDb") {
+            val routes = fileTree("src/main/routes") { include("*.json") }
+            inputs.files(routes)
+            classpath(compileRouteDbTool)
+            mainClass.set("com.inclusive.assist.RouteDbCompiler")
+            argumentProviders.add(CommandLineArgumentProvider {
+                listOf(outputDir.file("bus_routes.bin").get().asFile.absolutePath) +
+                        routes.files.sortedBy { it.name }.map { it.absolutePath }
+            })
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(compileRouteDb, CompileRouteDb::outputDir)
+    }
+}
+
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    // Real org.json for local unit tests (android.jar only has stubs)
+    testImplementation("org.json:json:20231013")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -67,6 +108,9 @@ dependencies {
     implementation("androidx.camera:camera-lifecycle:1.3.1")
     implementation("androidx.camera:camera-view:1.3.1")
 
+    // Lecture captions list
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
+
     // ML Kit Text Recognition (Reads English text instantly) - Keeping this for other features
     implementation("com.google.mlkit:text-recognition:16.0.0")
     // ML Kit Image Labeling (Better descriptions: "Cup", "Laptop", "Person")
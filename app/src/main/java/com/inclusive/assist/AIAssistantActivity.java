@@ -1,10 +1,16 @@
 package com.inclusive.assist;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
-import android.speech.tts.TextToSpeech;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -12,36 +18,85 @@ import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 
-// --- GROQ IMPORTS ---
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.File;
 import java.io.IOException;
-
 import java.util.ArrayList;
-import java.util.Locale;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Call;
 
 
 public class AIAssistantActivity extends AppCompatActivity {
 
-    // --- GROQ API KEY ---
-    private static final String GROQ_API_KEY = BuildConfig.GROQ_API_KEY;
+    private static final String TAG = "AIAssistantActivity";
+
+    // --- AI CONFIG ---
+    // Groq first, Gemini as backup. The whole request (including failover) must fit in this budget.
+    private static final long LATENCY_BUDGET = 20000;
+    private final ProviderRouter router = ProviderRouter.getDefault();
+    // Small model for simple questions, 70B for hard ones. Static so the latency stats outlive the screen.
+    private static final ModelRouter modelRouter = new ModelRouter();
+    // System prompt + rolling history, kept under this many (approximate) tokens per request
+    private static final String SYSTEM_PROMPT = "You are a helpful assistant for a blind user. Keep answers short, clear, and kind.";
+    private static final int MAX_PROMPT_TOKENS = 1500;
+    // Answers to repeated questions, kept on disk
+    private static final int CACHE_ENTRIES = 200;
+    private static final long CACHE_TTL = 7L * 24 * 60 * 60 * 1000; // 1 week
+    private static final double CACHE_MATCH = 0.8; // Share of words (in order) that must agree for a near match
+    // Voice mode: ask the AI once the partial transcript has stopped changing for this long
+    private static final long PARTIAL_STABLE_MS = 600;
+    private static final int MIN_SPECULATIVE_WORDS = 3;
     // ---------------------------------
 
+    /** An AI request started from a partial transcript, before the user finished speaking. */
+    private static class Speculation {
+        final String prompt;
+        final String[] words; // Every word in order, compared with the final transcript
+        volatile Call call;
+        volatile boolean cancelled = false;
+        // UI thread only
+        AiResponse response;
+        boolean failed = false;
+        boolean claimed = false; // Final transcript matched; show the answer as soon as it arrives
+        String finalPrompt;
+        long claimedAt;
+
+        Speculation(String prompt) {
+            this.prompt = prompt;
+            this.words = ResponseCache.words(prompt);
+        }
+
+        void cancel() {
+            cancelled = true;
+            Call current = call;
+            if (current != null) current.cancel();
+        }
+    }
+
     private TextView tvChatHistory;
     private EditText etInput;
     private Button btnSend, btnMic, btnModeSwitch;
-    private TextToSpeech tts;
 
     private boolean isVoiceMode = false; // False = Text Mode (Deaf), True = Voice Mode (Blind)
+    private final ConversationContext conversation = new ConversationContext(SYSTEM_PROMPT, MAX_PROMPT_TOKENS);
+    private ResponseCache responseCache;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+
+    // In-app recognizer so we get partial results (null if the device has none)
+    private SpeechRecognizer speechRecognizer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private String lastPartial = "";
+    private Speculation speculation;
+    private int speculationHits = 0;
+    private int speculationMisses = 0;
+    private int speculationReissues = 0;
+    private final Runnable speculateRunnable = () -> maybeSpeculate(lastPartial);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,12 +110,16 @@ public class AIAssistantActivity extends AppCompatActivity {
         btnMic = findViewById(R.id.btnMic);
         btnModeSwitch = findViewById(R.id.btnModeSwitch);
 
-        // 1. Initialize Voice (TTS)
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) tts.setLanguage(Locale.US);
-        });
+        responseCache = new ResponseCache(new File(getFilesDir(), "assistant_cache.json"),
+                CACHE_ENTRIES, CACHE_TTL, CACHE_MATCH);
+        diskExecutor.execute(responseCache::load); // Reading the file is disk I/O - keep it off the UI thread
 
-        // 2. Button Listeners
+        if (SpeechRecognizer.isRecognitionAvailable(this)) {
+            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
+            speechRecognizer.setRecognitionListener(new VoiceListener());
+        }
+
+        // Button Listeners
         btnSend.setOnClickListener(v -> {
             String text = etInput.getText().toString();
             if (!text.isEmpty()) processUserCommand(text);
@@ -74,6 +133,17 @@ public class AIAssistantActivity extends AppCompatActivity {
         updateUIForMode();
     }
 
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacks(speculateRunnable);
+        cancelSpeculation();
+        if (speechRecognizer != null) speechRecognizer.destroy();
+        diskExecutor.shutdown();
+        Log.d(TAG, "Speculation: " + getSpeculationSummary() + " | cache: " + responseCache.getStatsSummary()
+                + " | models: " + modelRouter.getStatsSummary() + " | speech: " + SpeechService.get().getStatsSummary());
+        super.onDestroy();
+    }
+
     // --- MODE SWITCHING ---
     private void toggleMode() {
         isVoiceMode = !isVoiceMode;
@@ -106,6 +176,22 @@ public class AIAssistantActivity extends AppCompatActivity {
 
     // --- VOICE INPUT ---
     private void startVoiceInput() {
+        if (speechRecognizer != null) {
+            if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                    != PackageManager.PERMISSION_GRANTED) {
+                ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, 1);
+                return;
+            }
+            Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+            intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+            intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1);
+            lastPartial = "";
+            speechRecognizer.startListening(intent);
+            return;
+        }
+
+        // No in-app recognizer: fall back to the system dialog (final result only)
         Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
         intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
         intent.putExtra(RecognizerIntent.EXTRA_PROMPT, "Listening...");
@@ -127,6 +213,154 @@ public class AIAssistantActivity extends AppCompatActivity {
         }
     }
 
+    private class VoiceListener implements RecognitionListener {
+        @Override
+        public void onReadyForSpeech(Bundle params) { addToChat("System: Listening..."); }
+        @Override
+        public void onBeginningOfSpeech() {}
+        @Override
+        public void onRmsChanged(float rmsdB) {}
+        @Override
+        public void onBufferReceived(byte[] buffer) {}
+        @Override
+        public void onEndOfSpeech() {}
+
+        @Override
+        public void onError(int error) {
+            handler.removeCallbacks(speculateRunnable);
+            cancelSpeculation();
+            if (error == SpeechRecognizer.ERROR_NO_MATCH || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT) {
+                speak("I didn't catch that.");
+            } else {
+                speak("Error with voice input.");
+            }
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            ArrayList<String> partial = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (partial == null || partial.isEmpty()) return;
+            String text = partial.get(0).trim();
+            if (text.equals(lastPartial)) return;
+
+            // Still changing: restart the "stable" timer
+            lastPartial = text;
+            handler.removeCallbacks(speculateRunnable);
+            handler.postDelayed(speculateRunnable, PARTIAL_STABLE_MS);
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            handler.removeCallbacks(speculateRunnable);
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (matches != null && !matches.isEmpty()) {
+                processUserCommand(matches.get(0));
+            } else {
+                cancelSpeculation();
+            }
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {}
+    }
+
+    // --- SPECULATION: start the AI request while the user is still talking ---
+    private void maybeSpeculate(String partial) {
+        if (partial.split("\\s+").length < MIN_SPECULATIVE_WORDS) return;
+        if (isLocalCommand(partial.toLowerCase())) return; // Handled on the phone, no AI needed
+
+        Speculation current = speculation;
+        if (current != null && sameWords(current.words, partial)) return; // Already asking this
+
+        // Answered from the cache once the user stops talking - don't spend a request on it
+        if (ResponseCache.isCacheable(partial) && responseCache.contains(partial)) {
+            cancelSpeculation();
+            return;
+        }
+
+        if (current != null) {
+            // The user kept talking and changed the question: ask again
+            current.cancel();
+            speculationReissues++;
+        }
+        Speculation next = new Speculation(partial);
+        speculation = next;
+        Log.d(TAG, "Speculating on \"" + partial + "\"");
+        sendPrompt(partial, next);
+    }
+
+    private void cancelSpeculation() {
+        if (speculation != null) {
+            speculation.cancel();
+            speculation = null;
+        }
+    }
+
+    /** The final transcript arrived. True if a speculative request covers it. */
+    private boolean useSpeculation(String prompt) {
+        Speculation current = speculation;
+        if (current == null) return false;
+
+        // Only the very same words in the same order (ignoring case and punctuation) are the same
+        // question: "bus to Majestic" then "bus to Majestic from Hebbal" is not
+        if (current.failed || !sameWords(current.words, prompt)) {
+            speculationMisses++;
+            Log.d(TAG, "Speculation miss: \"" + current.prompt + "\" vs \"" + prompt + "\" - " + getSpeculationSummary());
+            cancelSpeculation();
+            return false;
+        }
+
+        speculationHits++;
+        if (current.response != null) {
+            // Answer was ready before the user finished speaking
+            Log.d(TAG, "Speculation hit, answer already here - " + getSpeculationSummary());
+            speculation = null;
+            showAnswer(prompt, current.response);
+        } else {
+            Log.d(TAG, "Speculation hit, answer on the way - " + getSpeculationSummary());
+            current.claimed = true;
+            current.finalPrompt = prompt;
+            current.claimedAt = System.currentTimeMillis();
+            addToChat("System: Thinking...");
+        }
+        return true;
+    }
+
+    private static boolean sameWords(String[] words, String prompt) {
+        return Arrays.equals(words, ResponseCache.words(prompt));
+    }
+
+    /** UI thread. */
+    private void onSpeculationAnswered(Speculation spec, AiResponse response) {
+        if (spec != speculation) return; // Superseded
+        if (!spec.claimed) {
+            spec.response = response; // Wait for the final transcript
+            return;
+        }
+        Log.d(TAG, "Speculative answer arrived " + (System.currentTimeMillis() - spec.claimedAt)
+                + "ms after the final transcript");
+        speculation = null;
+        showAnswer(spec.finalPrompt, response);
+    }
+
+    /** UI thread. */
+    private void onSpeculationFailed(Speculation spec, int lastHttpCode, IOException lastError) {
+        if (spec != speculation) return;
+        if (!spec.claimed) {
+            spec.failed = true; // The final transcript will send a normal request
+            return;
+        }
+        speculation = null;
+        showError(lastHttpCode, lastError);
+    }
+
+    /** e.g. "hits=5 misses=1 reissued=2 hitRate=83%" */
+    private String getSpeculationSummary() {
+        int total = speculationHits + speculationMisses;
+        return "hits=" + speculationHits + " misses=" + speculationMisses + " reissued=" + speculationReissues
+                + " hitRate=" + (total == 0 ? 0 : Math.round(100.0 * speculationHits / total)) + "%";
+    }
+
     // --- 🧠 THE BRAIN: DECIDE WHAT TO DO ---
     private void processUserCommand(String input) {
         // Add user text to screen
@@ -136,13 +370,15 @@ public class AIAssistantActivity extends AppCompatActivity {
         String lowerInput = input.toLowerCase();
 
         // 1. EMERGENCY CHECK
-        if (lowerInput.contains("help") || lowerInput.contains("sos") || lowerInput.contains("emergency")) {
+        if (isEmergency(lowerInput)) {
+            cancelSpeculation();
             triggerEmergency();
             return;
         }
 
         // 2. NOTE CHECK
-        if (lowerInput.startsWith("note") || lowerInput.contains("remind me")) {
+        if (isNote(lowerInput)) {
+            cancelSpeculation();
             saveNote(input);
             return;
         }
@@ -151,6 +387,18 @@ public class AIAssistantActivity extends AppCompatActivity {
         askGroq(input);
     }
 
+    private static boolean isEmergency(String lowerInput) {
+        return lowerInput.contains("help") || lowerInput.contains("sos") || lowerInput.contains("emergency");
+    }
+
+    private static boolean isNote(String lowerInput) {
+        return lowerInput.startsWith("note") || lowerInput.contains("remind me");
+    }
+
+    private static boolean isLocalCommand(String lowerInput) {
+        return isEmergency(lowerInput) || isNote(lowerInput);
+    }
+
     // --- FEATURE 1: EMERGENCY ---
     private void triggerEmergency() {
         String msg = "EMERGENCY DETECTED. Opening Dialer.";
@@ -171,77 +419,104 @@ public class AIAssistantActivity extends AppCompatActivity {
         speak("I have saved that note.");
     }
 
-    // --- FEATURE 3: GROQ CHAT (Using Llama 3) ---
+    // --- FEATURE 3: GROQ CHAT (Using Llama 3, Gemini as backup) ---
     private void askGroq(String prompt) {
+        // Standalone questions we've answered before are spoken straight away
+        boolean cacheable = ResponseCache.isCacheable(prompt);
+        if (cacheable) {
+            ResponseCache.Hit hit = responseCache.lookup(prompt);
+            if (hit != null) {
+                Log.d(TAG, "Cache hit (" + (hit.exact ? "exact" : "near") + ", " + hit.ageMs / 1000 + "s old) - "
+                        + responseCache.getStatsSummary());
+                cancelSpeculation();
+                conversation.addTurn(prompt, hit.answer);
+                addToChat("AI: " + hit.answer);
+                speak(hit.answer);
+                return;
+            }
+        }
+
+        // Voice mode: we may have asked already while the user was speaking
+        if (useSpeculation(prompt)) return;
+
         addToChat("System: Thinking...");
+        sendPrompt(prompt, null);
+    }
 
-        OkHttpClient client = new OkHttpClient();
-        
-        // Construct JSON Body
-        JSONObject jsonBody = new JSONObject();
-        try {
-            // Use Llama 3.3 Versatile - Current stable model (2025)
-            jsonBody.put("model", "llama-3.3-70b-versatile"); 
-            
-            JSONArray messages = new JSONArray();
-            JSONObject msg = new JSONObject();
-            msg.put("role", "user");
-            msg.put("content", "You are a helpful assistant for a blind user. Keep answers short, clear, and kind. " + prompt);
-            messages.put(msg);
-            
-            jsonBody.put("messages", messages);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Sends one question with the conversation history. spec is null for a normal request,
+     * or the speculation this request belongs to (its answer waits for the final transcript).
+     */
+    private void sendPrompt(String prompt, @Nullable Speculation spec) {
+        // System message, recent history (summarized if too long), then the new question
+        List<ChatMessage> messages = conversation.buildMessages(prompt);
+        int requestTokens = conversation.getLastRequestTokens();
+
+        AiRequest.Tier tier = modelRouter.choose(prompt, conversation.getTurnCount());
+        long start = System.currentTimeMillis();
 
-        RequestBody body = RequestBody.create(jsonBody.toString(), MediaType.get("application/json; charset=utf-8"));
-        
-        Request request = new Request.Builder()
-                .url("https://api.groq.com/openai/v1/chat/completions")
-                .addHeader("Authorization", "Bearer " + GROQ_API_KEY)
-                .addHeader("Content-Type", "application/json")
-                .post(body)
-                .build();
+        // The router picks the healthiest provider and fails over if it is slow or down
+        router.enqueue(new AiRequest(messages, 0, tier), LATENCY_BUDGET, new ProviderRouter.Callback() {
+            @Override
+            public void onCallStarted(Call call) {
+                if (spec == null) return;
+                spec.call = call;
+                if (spec.cancelled) call.cancel(); // Cancelled while failing over
+            }
 
-        client.newCall(request).enqueue(new Callback() {
             @Override
-            public void onFailure(Call call, IOException e) {
-                 runOnUiThread(() -> {
-                    addToChat("Error: " + e.getMessage());
-                    speak("I could not connect to Groq.");
+            public void onSuccess(AiResponse response) {
+                if (spec != null && spec.cancelled) return;
+                // Whole-request time (including any failover) is what the user waited for
+                long elapsed = System.currentTimeMillis() - start;
+                modelRouter.record(tier, elapsed, true);
+                Log.d(TAG, "Answer from " + response.provider + "/" + response.model + " (" + tier + ") in "
+                        + response.latencyMs + "ms - " + modelRouter.getStatsSummary());
+                // Per-turn size: our estimate vs what the provider counted
+                Log.d(TAG, "Turn " + (conversation.getTurnCount() + 1) + ": ~" + requestTokens + " tokens sent ("
+                        + response.promptTokens + " counted), " + messages.size() + " messages, " + elapsed + "ms - "
+                        + conversation.getStatsSummary());
+                runOnUiThread(() -> {
+                    if (spec == null) showAnswer(prompt, response);
+                    else onSpeculationAnswered(spec, response);
                 });
             }
 
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    try {
-                        String responseData = response.body().string();
-                        JSONObject json = new JSONObject(responseData);
-                        JSONArray choices = json.getJSONArray("choices");
-                        String text = choices.getJSONObject(0).getJSONObject("message").getString("content");
-                        
-                        runOnUiThread(() -> {
-                            addToChat("AI: " + text);
-                            speak(text);
-                        });
-                    } catch (JSONException e) {
-                         runOnUiThread(() -> {
-                            addToChat("Parsing Error");
-                            speak("I did not understand the response.");
-                        });
-                    }
-                } else {
-                     String errorBody = response.body().string();
-                     runOnUiThread(() -> {
-                        addToChat("Error " + response.code() + ": " + errorBody);
-                        speak("Groq returned an error.");
-                    });
-                }
+            public void onFailure(int lastHttpCode, IOException lastError) {
+                if (spec != null && spec.cancelled) return;
+                modelRouter.record(tier, System.currentTimeMillis() - start, false);
+                Log.e(TAG, "All providers failed (" + router.getStatsSummary() + ")", lastError);
+                runOnUiThread(() -> {
+                    if (spec == null) showError(lastHttpCode, lastError);
+                    else onSpeculationFailed(spec, lastHttpCode, lastError);
+                });
             }
         });
     }
 
+    /** UI thread. */
+    private void showAnswer(String prompt, AiResponse response) {
+        // Only answered turns go into the history
+        conversation.addTurn(prompt, response.text);
+        if (ResponseCache.isCacheable(prompt)) {
+            diskExecutor.execute(() -> responseCache.put(prompt, response.text));
+        }
+        addToChat("AI: " + response.text);
+        speak(response.text);
+    }
+
+    /** UI thread. */
+    private void showError(int lastHttpCode, IOException lastError) {
+        if (lastHttpCode == 0) {
+            addToChat("Error: " + (lastError != null ? lastError.getMessage() : "No connection"));
+            speak("I could not connect to the AI service.");
+        } else {
+            addToChat("Error " + lastHttpCode + ": AI service returned an error.");
+            speak("The AI service returned an error.");
+        }
+    }
+
     // --- HELPER FUNCTIONS ---
     private void addToChat(String text) {
         tvChatHistory.append("\n" + text);
@@ -250,8 +525,10 @@ public class AIAssistantActivity extends AppCompatActivity {
     private void speak(String text) {
         // Only speak if we are in Voice Mode (Blind Users)
         // OR if it's an emergency
-        if (isVoiceMode || text.contains("EMERGENCY")) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
+        if (text.contains("EMERGENCY")) {
+            SpeechService.get().speak(text, UtteranceScheduler.Priority.EMERGENCY);
+        } else if (isVoiceMode) {
+            SpeechService.get().speak(text);
         }
     }
 }
\ No newline at end of file
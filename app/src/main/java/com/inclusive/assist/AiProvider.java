@@ -0,0 +1,25 @@
+package com.inclusive.assist;
+
+import org.json.JSONException;
+
+import okhttp3.Request;
+
+/**
+ * One AI backend (Groq, Gemini, ...). Knows how to build its HTTP request and
+ * read its JSON answer. Routing, timeouts and failover live in ProviderRouter.
+ */
+public interface AiProvider {
+
+    /** Short name used for logs and health stats, e.g. "groq". */
+    String getName();
+
+    /** False if the API key is missing, so the router can skip it. */
+    boolean isConfigured();
+
+    /** False if this provider has no model that accepts images. */
+    boolean supportsVision();
+
+    Request buildRequest(AiRequest request) throws JSONException;
+
+    AiResponse parseResponse(String body) throws JSONException;
+}
@@ -0,0 +1,39 @@
+package com.inclusive.assist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A provider-independent chat or vision request. The ProviderRouter turns it into
+ * the JSON of whichever provider is chosen.
+ */
+public class AiRequest {
+
+    /** Which size of chat model to use. Vision requests always use the vision model. */
+    public enum Tier {
+        FAST,  // Small, quick model for simple questions
+        LARGE  // Big model for harder questions
+    }
+
+    public final List<ChatMessage> messages;
+    public final int maxTokens; // 0 = provider default
+    public final Tier tier;
+
+    public AiRequest(List<ChatMessage> messages, int maxTokens) {
+        this(messages, maxTokens, Tier.LARGE);
+    }
+
+    public AiRequest(List<ChatMessage> messages, int maxTokens, Tier tier) {
+        this.messages = new ArrayList<>(messages);
+        this.maxTokens = maxTokens;
+        this.tier = tier;
+    }
+
+    /** Vision requests can only go to providers with a vision model. */
+    public boolean hasImage() {
+        for (ChatMessage message : messages) {
+            if (message.hasImage()) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.inclusive.assist;
+
+/**
+ * The answer of an AI provider, plus where it came from and what it cost.
+ */
+public class AiResponse {
+
+    public final String text;
+    public final String provider;
+    public final String model;
+    public final int promptTokens;     // -1 if the provider did not say
+    public final int completionTokens; // -1 if the provider did not say
+    public long latencyMs;             // Filled in by the router
+
+    public AiResponse(String text, String provider, String model, int promptTokens, int completionTokens) {
+        this.text = text;
+        this.provider = provider;
+        this.model = model;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+    }
+}
@@ -0,0 +1,49 @@
+package com.inclusive.assist;
+
+/**
+ * The last few seconds of mic audio, addressed by absolute sample position
+ * (sample 0 = first sample ever written). One writer (the mic thread), any readers.
+ * Readers that fall more than a buffer behind lose the overwritten part.
+ */
+public class AudioRingBuffer {
+
+    private final short[] data;
+    private long written = 0;
+
+    public AudioRingBuffer(int capacitySamples) {
+        data = new short[capacitySamples];
+    }
+
+    public synchronized void write(short[] pcm, int length) {
+        int at = (int) (written % data.length);
+        int first = Math.min(length, data.length - at);
+        System.arraycopy(pcm, 0, data, at, first);
+        if (first < length) System.arraycopy(pcm, first, data, 0, Math.min(length - first, data.length));
+        written += length;
+    }
+
+    /** Position just after the newest sample. */
+    public synchronized long written() {
+        return written;
+    }
+
+    /** Oldest position still in the buffer. */
+    public synchronized long oldest() {
+        return Math.max(0, written - data.length);
+    }
+
+    /**
+     * Copy up to length samples starting at position. position must be >= oldest();
+     * returns how many were copied (0 if none are there yet).
+     */
+    public synchronized int read(long position, short[] dst, int length) {
+        if (position < oldest()) throw new IllegalArgumentException("Overwritten: " + position + " < " + oldest());
+        int n = (int) Math.min(length, written - position);
+        if (n <= 0) return 0;
+        int at = (int) (position % data.length);
+        int first = Math.min(n, data.length - at);
+        System.arraycopy(data, at, dst, 0, first);
+        if (first < n) System.arraycopy(data, 0, dst, first, n - first);
+        return n;
+    }
+}
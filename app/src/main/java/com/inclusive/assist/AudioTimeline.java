@@ -0,0 +1,91 @@
+package com.inclusive.assist;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which audio file holds which stretch of a lecture.
+ *
+ * One line per finished chunk in the lecture folder's audio.tsv ("file TAB startMs TAB endMs"),
+ * on the same clock as the caption timestamps, so a caption's startMs maps straight to a file
+ * and an offset inside it. A chunk is only listed once its file is complete.
+ */
+public class AudioTimeline {
+
+    private static final String FILE_NAME = "audio.tsv";
+
+    public static class Chunk {
+        public final String file;
+        public final long startMs;
+        public final long endMs;
+
+        public Chunk(String file, long startMs, long endMs) {
+            this.file = file;
+            this.startMs = startMs;
+            this.endMs = endMs;
+        }
+    }
+
+    /** A moment inside a chunk. */
+    public static class Position {
+        public final File file;
+        public final long offsetMs;
+
+        Position(File file, long offsetMs) {
+            this.file = file;
+            this.offsetMs = offsetMs;
+        }
+    }
+
+    public static void append(File lectureDir, Chunk chunk) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(lectureDir, FILE_NAME), true), StandardCharsets.UTF_8)) {
+            out.write(chunk.file + "\t" + chunk.startMs + "\t" + chunk.endMs + "\n");
+        }
+    }
+
+    public static List<Chunk> load(File lectureDir) {
+        List<Chunk> chunks = new ArrayList<>();
+        File file = new File(lectureDir, FILE_NAME);
+        if (!file.exists()) return chunks;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length < 3) continue;
+                try {
+                    chunks.add(new Chunk(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                } catch (NumberFormatException ignored) {
+                    // Torn line
+                }
+            }
+        } catch (IOException e) {
+            // Keep what we could read
+        }
+        return chunks;
+    }
+
+    /** Where the audio for timeMs is, or null if nothing was recorded then. */
+    public static Position locate(File lectureDir, List<Chunk> chunks, long timeMs) {
+        for (Chunk chunk : chunks) {
+            if (timeMs >= chunk.startMs && timeMs < chunk.endMs) {
+                return new Position(new File(lectureDir, chunk.file), timeMs - chunk.startMs);
+            }
+        }
+        // Caption started in a gap (recorder was off or behind): take the next recorded bit if close
+        for (Chunk chunk : chunks) {
+            if (chunk.startMs > timeMs && chunk.startMs - timeMs < 2000) {
+                return new Position(new File(lectureDir, chunk.file), 0);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,211 @@
+package com.inclusive.assist;
+
+import androidx.annotation.NonNull;
+
+import java.util.function.Consumer;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+
+/**
+ * Picks the JPEG size and quality for vision uploads based on the measured network speed.
+ *
+ * Every request reports (body bytes, time from sending its headers to the first response header).
+ * That time is a fixed part (round trip plus the server's wait before it answers) and a part that
+ * grows with the body. A small line fit over the recent samples splits the two: the slope gives the
+ * throughput and the intercept gives the fixed part, which is kept out of the upload prediction
+ * since a smaller picture can't shorten it. The settings are then chosen so the upload fits in the
+ * caller's target time, but never below its quality floor.
+ *
+ * One estimator for the whole process (get()): the network doesn't change when the screen does,
+ * so a newly opened vision screen starts from what the last one measured.
+ */
+public class BandwidthEstimator {
+
+    /** One step of the quality ladder: max image width and JPEG quality. */
+    public static class UploadSettings {
+        public final int maxWidth;
+        public final int quality;
+
+        public UploadSettings(int maxWidth, int quality) {
+            this.maxWidth = maxWidth;
+            this.quality = quality;
+        }
+
+        @Override
+        public String toString() {
+            return maxWidth + "px q" + quality;
+        }
+    }
+
+    // From best to worst. Each screen uses the part between its own max and floor.
+    private static final UploadSettings[] LADDER = {
+            new UploadSettings(800, 70),
+            new UploadSettings(640, 60),
+            new UploadSettings(512, 55),
+            new UploadSettings(448, 50),
+            new UploadSettings(384, 45),
+    };
+
+    private static final int WINDOW = 8;                 // Recent samples used for the fit
+    private static final double MIN_THROUGHPUT = 5;      // bytes per ms (~40 kbit/s)
+    private static final double MAX_THROUGHPUT = 10000;  // bytes per ms (~80 Mbit/s)
+    private static final double BASE64_OVERHEAD = 4.0 / 3.0;
+
+    private static BandwidthEstimator instance;
+
+    // Ring buffer of (bytes, headers sent to first response header)
+    private final long[] sampleBytes = new long[WINDOW];
+    private final long[] sampleMs = new long[WINDOW];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+
+    // Latest fit, redone on every sample
+    private double throughput = -1;  // bytes per ms
+    private double fixedMs = 0;      // Intercept: kept from the last fit that had enough spread
+
+    // Learned JPEG size: bytes per pixel at quality 60, corrected by real encodes
+    private double bytesPerPixelAtQ60 = 0.11;
+
+    public static synchronized BandwidthEstimator get() {
+        if (instance == null) instance = new BandwidthEstimator();
+        return instance;
+    }
+
+    BandwidthEstimator() {
+    }
+
+    private static int indexOf(UploadSettings settings) {
+        for (int i = 0; i < LADDER.length; i++) {
+            if (LADDER[i].maxWidth == settings.maxWidth && LADDER[i].quality == settings.quality) return i;
+        }
+        throw new IllegalArgumentException("Not on the ladder: " + settings);
+    }
+
+    /** Records one finished request: body size and the time from sending it to the first response header. */
+    public synchronized void addSample(long bytes, long requestMs) {
+        if (bytes <= 0) return;
+        sampleBytes[nextSample] = bytes;
+        sampleMs[nextSample] = Math.max(1, requestMs);
+        nextSample = (nextSample + 1) % WINDOW;
+        if (sampleCount < WINDOW) sampleCount++;
+        fit();
+    }
+
+    /** Records the real size of an encoded JPEG so size predictions stay accurate. */
+    public synchronized void addEncodeSample(int width, int height, int quality, int jpegBytes) {
+        long pixels = (long) width * height;
+        if (pixels <= 0 || jpegBytes <= 0) return;
+        // Convert to "bytes per pixel at q60" so all qualities feed the same number
+        double observed = jpegBytes / (double) pixels * qualityFactor(60) / qualityFactor(quality);
+        // Smooth so one odd frame (e.g. a blank wall) does not swing the estimate
+        bytesPerPixelAtQ60 = 0.8 * bytesPerPixelAtQ60 + 0.2 * observed;
+    }
+
+    /** Upload throughput in bytes per ms, or -1 while there is not enough data. */
+    public synchronized double getThroughput() {
+        return throughput;
+    }
+
+    // Least squares fit: time = fixedMs + bytes / throughput
+    private void fit() {
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            meanX += sampleBytes[i];
+            meanY += sampleMs[i];
+        }
+        meanX /= sampleCount;
+        meanY /= sampleCount;
+
+        double sxx = 0, sxy = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double dx = sampleBytes[i] - meanX;
+            sxx += dx * dx;
+            sxy += dx * (sampleMs[i] - meanY);
+        }
+
+        double fitted;
+        // Need some spread in sizes for the slope to mean anything (at least ~10% of the mean)
+        if (sampleCount >= 3 && sxx > sampleCount * (0.1 * meanX) * (0.1 * meanX) && sxy > 0) {
+            fitted = sxx / sxy;
+            fixedMs = Math.max(0, meanY - meanX / fitted);
+        } else {
+            // Not enough spread (e.g. every frame at the floor): average speed minus the last known
+            // fixed part, never more than half of it in case that fit is stale
+            fitted = meanX / (meanY - Math.min(fixedMs, meanY / 2));
+        }
+        throughput = Math.max(MIN_THROUGHPUT, Math.min(MAX_THROUGHPUT, fitted));
+    }
+
+    /**
+     * Chooses the best settings between max and floor whose predicted upload time fits the
+     * target. Falls back to the floor when even that is too slow.
+     */
+    public synchronized UploadSettings choose(UploadSettings max, UploadSettings floor, long targetUploadMs,
+                                              int frameWidth, int frameHeight) {
+        int maxIndex = indexOf(max);
+        int floorIndex = indexOf(floor);
+        double throughput = getThroughput();
+        if (throughput < 0) return LADDER[maxIndex]; // No data yet: start with the best
+
+        for (int i = maxIndex; i <= floorIndex; i++) {
+            UploadSettings s = LADDER[i];
+            if (predictUploadMs(s, frameWidth, frameHeight, throughput) <= targetUploadMs) {
+                return s;
+            }
+        }
+        return LADDER[floorIndex];
+    }
+
+    // Only the part that depends on the picture: fixedMs is paid whatever we send
+    private double predictUploadMs(UploadSettings s, int frameWidth, int frameHeight, double throughput) {
+        int width = Math.min(frameWidth, s.maxWidth);
+        int height = frameWidth > 0 ? (int) ((long) frameHeight * width / frameWidth) : frameHeight;
+        double jpegBytes = (double) width * height * bytesPerPixelAtQ60 * qualityFactor(s.quality) / qualityFactor(60);
+        return jpegBytes * BASE64_OVERHEAD / throughput;
+    }
+
+    // Rough relative JPEG size for a given quality (q60 = 1.0)
+    private static double qualityFactor(int quality) {
+        return 0.35 + 0.65 * Math.pow(quality / 60.0, 1.5);
+    }
+
+    /** Short summary for the log. */
+    public synchronized String getStatsSummary() {
+        return "samples=" + sampleCount
+                + " throughputKBps=" + (throughput < 0 ? "?" : String.valueOf((int) throughput))
+                + " fixedMs=" + (int) fixedMs;
+    }
+
+    /**
+     * OkHttp listener factory that feeds this estimator. Times the request from its headers being
+     * sent to the first response header, which includes the network (writing the body alone only
+     * fills the socket buffer), and uses the body's real size. uploaded is told when each call's
+     * body has been fully written.
+     */
+    public EventListener.Factory eventListenerFactory(Consumer<Call> uploaded) {
+        return call -> new EventListener() {
+            private long headersStart;
+            private long bodyBytes = -1;
+
+            @Override
+            public void requestHeadersStart(@NonNull Call call) {
+                headersStart = System.nanoTime();
+            }
+
+            @Override
+            public void requestBodyEnd(@NonNull Call call, long byteCount) {
+                bodyBytes = byteCount;
+                uploaded.accept(call);
+            }
+
+            @Override
+            public void responseHeadersStart(@NonNull Call call) {
+                if (headersStart > 0 && bodyBytes > 0) {
+                    addSample(bodyBytes, (System.nanoTime() - headersStart) / 1_000_000);
+                }
+                bodyBytes = -1; // Only the first response of a call (no redirect or retry samples)
+            }
+        };
+    }
+}
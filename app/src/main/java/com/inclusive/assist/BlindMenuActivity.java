@@ -4,18 +4,14 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
-import android.speech.SpeechRecognizer;
-import android.speech.tts.TextToSpeech;
 import android.view.View;
 import android.widget.Button;
-import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import java.util.ArrayList;
-import java.util.Locale;
+import androidx.lifecycle.Lifecycle;
+import java.util.EnumSet;
+import java.util.List;
 
 /**
  * Main Menu for the "Blind Mode" features.
@@ -30,15 +26,20 @@ import java.util.Locale;
  */
 public class BlindMenuActivity extends AppCompatActivity {
 
-    private TextToSpeech tts;
-
-
     private ShakeDetector shakeDetector;
     private android.hardware.SensorManager sensorManager;
 
-    private SpeechRecognizer speechRecognizer;
+    private VoiceMenuController voiceMenu;
+    private final VoiceCommandGrammar commands = VoiceCommandGrammar.forMenu(EnumSet.of(
+            VoiceCommandGrammar.Command.READ_TEXT, VoiceCommandGrammar.Command.OBJECTS,
+            VoiceCommandGrammar.Command.CURRENCY, VoiceCommandGrammar.Command.LIGHT,
+            VoiceCommandGrammar.Command.ASSISTANT, VoiceCommandGrammar.Command.SCENE,
+            VoiceCommandGrammar.Command.BUS, VoiceCommandGrammar.Command.LOCATION,
+            VoiceCommandGrammar.Command.QUICK_MESSAGES, VoiceCommandGrammar.Command.SOS));
     private static final int PERMISSION_REQUEST_CODE = 200;
 
+    private WakeWordListener wakeWord;
+
     private boolean isNavigating = false;
 
     @Override
@@ -50,49 +51,40 @@ public class BlindMenuActivity extends AppCompatActivity {
         shakeDetector = new ShakeDetector();
         shakeDetector.setOnShakeListener(count -> {
             if (count >= 3) {
-                SOSHelper.triggerSOS(BlindMenuActivity.this, tts);
-            }
-        });
-
-        // Initialize Voice (TTS)
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
+                SOSHelper.triggerSOS(BlindMenuActivity.this);
             }
         });
 
-        // Setup Speech Recognizer
-        speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
-        speechRecognizer.setRecognitionListener(new RecognitionListener() {
-            @Override
-            public void onReadyForSpeech(Bundle params) { Toast.makeText(BlindMenuActivity.this, "Listening...", Toast.LENGTH_SHORT).show(); }
-            @Override
-            public void onBeginningOfSpeech() {}
+        // Setup voice commands (mic opens when the "Listening" prompt is done)
+        voiceMenu = new VoiceMenuController(this, new VoiceMenuController.Listener() {
             @Override
-            public void onRmsChanged(float rmsdB) {}
-            @Override
-            public void onBufferReceived(byte[] buffer) {}
-            @Override
-            public void onEndOfSpeech() {}
+            public void onCommand(List<String> alternatives) {
+                processVoiceCommand(alternatives);
+                if (!isNavigating) startWakeWord();
+            }
             @Override
-            public void onError(int error) { 
+            public void onError(int error) {
                 if (!isNavigating) {
+                    startWakeWord();
                     // speak("I didn't hear that."); 
                     // Keeping silent on error is often better for continuous menus, 
                     // or use a distinct error sound. 
                 }
             }
+        });
+
+        // Hands-free: saying the recorded wake word is the same as pressing Voice Control
+        wakeWord = new WakeWordListener(this, new WakeWordListener.Listener() {
             @Override
-            public void onResults(Bundle results) {
-                ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null && !matches.isEmpty()) {
-                    processVoiceCommand(matches.get(0).toLowerCase());
-                }
+            public void onWakeWord() {
+                listen();
             }
             @Override
-            public void onPartialResults(Bundle partialResults) {}
-            @Override
-            public void onEvent(int eventType, Bundle params) {}
+            public void onEnrolled() {
+                if (!isNavigating && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                    startWakeWord();
+                }
+            }
         });
 
         // 1. READ TEXT BUTTON
@@ -156,6 +148,17 @@ public class BlindMenuActivity extends AppCompatActivity {
                     listen();
                 }
             });
+            // Long-press to record the wake word
+            btnVoiceControl.setOnLongClickListener(v -> {
+                if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                        != PackageManager.PERMISSION_GRANTED) {
+                    ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, PERMISSION_REQUEST_CODE);
+                } else {
+                    voiceMenu.cancel();
+                    wakeWord.enroll();
+                }
+                return true;
+            });
         }
         
         // 7. SCENE DESCRIPTION BUTTON
@@ -181,69 +184,74 @@ public class BlindMenuActivity extends AppCompatActivity {
     
     private void listen() {
         if (isNavigating) return;
-        speak("Listening");
-        new android.os.Handler().postDelayed(() -> {
-             Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-             intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-             intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1);
-             speechRecognizer.startListening(intent);
-        }, 1000);
+        // Hand the mic to the recognizer once the wake word thread has let go of it
+        wakeWord.stop(() -> {
+            if (!isNavigating && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                voiceMenu.listen();
+            }
+        });
+    }
+
+    private void startWakeWord() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED) {
+            wakeWord.start();
+        }
     }
     
-    private void processVoiceCommand(String command) {
-        if (command.contains("read") || command.contains("text")) {
-             speak("Opening Text Reader");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, ReadTextActivity.class));
-        } else if (command.contains("object") || command.contains("detect")) {
-             speak("Opening Object Detection");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, BlindModeActivity.class));
-        } else if (command.contains("currency") || command.contains("money")) {
-             speak("Opening Currency Checker");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, CurrencyActivity.class));
-        } else if (command.contains("light")) {
-             speak("Opening Light Detector");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, LightDetectorActivity.class));
-        } else if (command.contains("assistant") || command.contains("ai")) {
-             speak("Opening AI Assistant");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, AIAssistantActivity.class));
-        } else if (command.contains("scene") || command.contains("describe")) {
-             speak("Opening Scene Description");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, SceneDescriptionActivity.class));
-        } else if (command.contains("bus") || command.contains("route")) {
-             speak("Opening Bus Routes");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, BusRouteActivity.class));
-        } else if (command.contains("where") || command.contains("location")) {
-             speak("Opening Location");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, LocationActivity.class));
-        } else if (command.contains("quick") || command.contains("message")) {
-             speak("Opening Quick Messages");
-             isNavigating = true;
-             if (speechRecognizer != null) speechRecognizer.cancel();
-             startActivity(new Intent(this, QuickTextActivity.class));
-        } else if (command.contains("help") || command.contains("sos")) {
-             speak("Sending SOS");
-             SOSHelper.triggerSOS(this, tts);
-        } else {
+    private void processVoiceCommand(List<String> alternatives) {
+        VoiceCommandGrammar.Match match = commands.match(alternatives);
+        if (match == null) {
             speak("Order not understood.");
+            return;
+        }
+        android.util.Log.d("BlindMenuActivity", "Voice command: " + match);
+        switch (match.command) {
+            case READ_TEXT:
+                openByVoice("Opening Text Reader", ReadTextActivity.class);
+                break;
+            case OBJECTS:
+                openByVoice("Opening Object Detection", BlindModeActivity.class);
+                break;
+            case CURRENCY:
+                openByVoice("Opening Currency Checker", CurrencyActivity.class);
+                break;
+            case LIGHT:
+                openByVoice("Opening Light Detector", LightDetectorActivity.class);
+                break;
+            case ASSISTANT:
+                openByVoice("Opening AI Assistant", AIAssistantActivity.class);
+                break;
+            case SCENE:
+                openByVoice("Opening Scene Description", SceneDescriptionActivity.class);
+                break;
+            case BUS:
+                openByVoice("Opening Bus Routes", BusRouteActivity.class);
+                break;
+            case LOCATION:
+                openByVoice("Opening Location", LocationActivity.class);
+                break;
+            case QUICK_MESSAGES:
+                openByVoice("Opening Quick Messages", QuickTextActivity.class);
+                break;
+            case SOS:
+                speak("Sending SOS");
+                SOSHelper.triggerSOS(this);
+                break;
+            default:
+                speak("Order not understood.");
+                break;
         }
     }
 
+    private void openByVoice(String announcement, Class<?> screen) {
+        speak(announcement);
+        isNavigating = true;
+        voiceMenu.cancel();
+        wakeWord.stop();
+        startActivity(new Intent(this, screen));
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -253,6 +261,7 @@ public class BlindMenuActivity extends AppCompatActivity {
                     sensorManager.getDefaultSensor(android.hardware.Sensor.TYPE_ACCELEROMETER),
                     android.hardware.SensorManager.SENSOR_DELAY_UI);
         }
+        startWakeWord();
     }
 
     @Override
@@ -260,27 +269,23 @@ public class BlindMenuActivity extends AppCompatActivity {
         if (sensorManager != null && shakeDetector != null) {
             sensorManager.unregisterListener(shakeDetector);
         }
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
+        if (voiceMenu != null) {
+            voiceMenu.cancel();
         }
+        wakeWord.stop();
         super.onPause();
     }
     
     @Override
     protected void onDestroy() {
-        if (speechRecognizer != null) {
-            speechRecognizer.destroy();
-        }
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
+        if (voiceMenu != null) {
+            voiceMenu.destroy();
         }
+        android.util.Log.d("BlindMenuActivity", "Wake word: " + wakeWord.getStatsSummary());
         super.onDestroy();
     }
 
     private void speak(String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
+        SpeechService.get().speak(text);
     }
 }
\ No newline at end of file
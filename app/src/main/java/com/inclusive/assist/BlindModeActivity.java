@@ -7,7 +7,6 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Matrix;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.util.Base64;
 import android.util.Log;
 import android.view.WindowManager;
@@ -25,50 +24,79 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import okhttp3.RequestBody;
-import okhttp3.Response;
 
 /**
  * BlindModeActivity - Online Object Detection (Groq Llama Vision)
  * Uses Groq's llama-3.2-11b-vision-instruct model for object detection.
+ * Requests go through ProviderRouter, which fails over to Gemini when Groq is slow or down.
  */
 public class BlindModeActivity extends AppCompatActivity {
 
     private static final String TAG = "BlindModeActivity";
     private static final int CAMERA_PERMISSION_REQUEST = 101;
     
-    // --- GROQ CONFIG ---
-    private static final String GROQ_API_KEY = BuildConfig.GROQ_API_KEY;
-    private static final String GROQ_MODEL = "meta-llama/llama-4-scout-17b-16e-instruct"; // Groq's vision model
-    private static final String API_URL = "https://api.groq.com/openai/v1/chat/completions";
+    // --- AI CONFIG ---
+    // Groq first, Gemini as backup. The whole request (including failover) must fit in this budget.
+    private static final long LATENCY_BUDGET = 8000; // 8 seconds
 
     private PreviewView previewView;
     private TextView tvDescription;
     private ExecutorService cameraExecutor;
-    private TextToSpeech tts;
+    // Track when TTS finishes speaking (also fires when cut off or on error)
+    private final UtteranceScheduler.UtteranceCallback utteranceCallback = new UtteranceScheduler.UtteranceCallback() {
+        @Override
+        public void onStart() {
+            isSpeaking = true;
+            pipeline.setSpeaking(true);
+        }
+        @Override
+        public void onDone() {
+            isSpeaking = false;
+            pipeline.setSpeaking(false);
+            // The next frame is usually ready already: send it right away
+            dispatchPendingFrame();
+        }
+    };
     
     // Network Client
     private OkHttpClient client;
-    private boolean isProcessing = false;
+    private ProviderRouter router;
     private boolean isSpeaking = false;
-    private long lastAnalysisTime = 0;
-    private static final long ANALYSIS_DELAY = 5000; // 5 seconds between requests to allow TTS to complete
+    private static final long ANALYSIS_DELAY = 5000; // Serial mode: 5 seconds between requests to allow TTS to complete
+    private static final long SUPERSEDE_AFTER = 10000; // A newer frame replaces a request stuck for 10 seconds
+
+    // --- PIPELINE CONFIG ---
+    // Pipelined mode captures + encodes the next frame while the answer is spoken,
+    // and sends it as soon as speech ends. Still only one request in flight.
+    private static final boolean PIPELINED_MODE = true;
+    private static final long PIPELINED_DELAY = 2000; // Min gap between requests (speech end is the real gate)
+    private static final long MAX_FRAME_AGE = 1500; // Re-capture if the prepared frame gets older than this
+    private static final long MAX_SPEAKING_TIME = 15000; // Don't wait forever if TTS never reports "done"
+
+    // --- UPLOAD QUALITY ---
+    // Picks size + JPEG quality so the upload takes about TARGET_UPLOAD_MS on the current network
+    private static final long TARGET_UPLOAD_MS = 1500;
+    private static final BandwidthEstimator.UploadSettings MAX_UPLOAD = new BandwidthEstimator.UploadSettings(640, 60);
+    private static final BandwidthEstimator.UploadSettings FLOOR_UPLOAD =
+            new BandwidthEstimator.UploadSettings(384, 45); // Below this recognition suffers
+    private final BandwidthEstimator bandwidthEstimator = BandwidthEstimator.get(); // Shared by all screens
+
+    private final FramePipeline pipeline = new FramePipeline(
+            PIPELINED_MODE ? PIPELINED_DELAY : ANALYSIS_DELAY, MAX_FRAME_AGE, MAX_SPEAKING_TIME, PIPELINED_MODE);
+
+    // Tracks the in-flight request so stale or orphaned calls get cancelled
+    private final VisionRequestTracker requestTracker = new VisionRequestTracker();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -86,29 +114,10 @@ public class BlindModeActivity extends AppCompatActivity {
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
+                .eventListenerFactory(bandwidthEstimator.eventListenerFactory(requestTracker::uploadFinished)) // Upload speed + progress
                 .build();
+        router = ProviderRouter.getDefault().using(client);
         
-        tts = new TextToSpeech(this, status -> {
-             if (status == TextToSpeech.SUCCESS) {
-                 tts.setLanguage(Locale.US);
-                 // Set listener to track when TTS finishes speaking
-                 tts.setOnUtteranceProgressListener(new android.speech.tts.UtteranceProgressListener() {
-                     @Override
-                     public void onStart(String utteranceId) {
-                         isSpeaking = true;
-                     }
-                     @Override
-                     public void onDone(String utteranceId) {
-                         isSpeaking = false;
-                     }
-                     @Override
-                     public void onError(String utteranceId) {
-                         isSpeaking = false;
-                     }
-                 });
-             }
-        });
-
         tvDescription.setText("Initializing Camera...");
 
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) 
@@ -123,13 +132,14 @@ public class BlindModeActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        SpeechService.get().cancel(this); // Our callbacks would run frames for a dead screen
+        requestTracker.close();
+        Log.d(TAG, "Request stats: " + requestTracker.getStatsSummary());
+        Log.d(TAG, "Pipeline stats: " + pipeline.getStatsSummary());
+        Log.d(TAG, "Bandwidth stats: " + bandwidthEstimator.getStatsSummary());
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-        }
     }
 
     private void startCamera() {
@@ -165,178 +175,156 @@ public class BlindModeActivity extends AppCompatActivity {
     @androidx.annotation.OptIn(markerClass = androidx.camera.core.ExperimentalGetImage.class)
     private void processImage(ImageProxy imageProxy) {
         long now = System.currentTimeMillis();
-        
-        // Rate Limiting & Busy Check
-        if (isProcessing || (now - lastAnalysisTime < ANALYSIS_DELAY)) {
-            imageProxy.close();
-            return;
-        }
 
         try {
-            // 1. Convert ImageProxy to Bitmap
-            Bitmap bitmap = Bitmap.createBitmap(imageProxy.getWidth(), imageProxy.getHeight(), Bitmap.Config.ARGB_8888);
-            bitmap.copyPixelsFromBuffer(imageProxy.getPlanes()[0].getBuffer());
-            
-            // 2. Rotate Bitmap (ImageAnalysis images are often unrotated)
-            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
-            if (rotationDegrees != 0) {
-                Matrix matrix = new Matrix();
-                matrix.postRotate(rotationDegrees);
-                bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            // A request that has been hanging for too long is given up, so a newer frame can go out
+            if (pipeline.isRequestInFlight() && requestTracker.inFlightMillis() > SUPERSEDE_AFTER) {
+                Log.w(TAG, "Request took too long, superseding it");
+                requestTracker.newGeneration();
+                pipeline.onRequestFinished();
             }
 
-            // 3. Compress to JPEG
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            // Scale down if necessary for speed/quota, e.g., to 640px width
-            int w = bitmap.getWidth();
-            int h = bitmap.getHeight();
-            // Simple resize if too big - Optimized for Gemini Speed (640px is sufficient)
-            if (w > 640) {
-                 float scale = 640f / w;
-                 bitmap = Bitmap.createScaledBitmap(bitmap, 640, (int)(h * scale), true);
+            // Capture + encode the next frame (in pipelined mode this happens while the answer is spoken)
+            if (pipeline.needsFrame(now)) {
+                encodeFrame(imageProxy, now);
             }
-            
-            // Lower quality to 60 for faster upload (negligible accuracy loss for objects)
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 60, byteArrayOutputStream);
-            byte[] imageBytes = byteArrayOutputStream.toByteArray();
-            String base64Image = Base64.encodeToString(imageBytes, Base64.NO_WRAP);
-            
-            // Lock processing
-            isProcessing = true;
-            lastAnalysisTime = now;
-            
-            runOnUiThread(() -> tvDescription.setText("Analyzing..."));
-
-            // 4. Send to Gemini
-            sendToGemini(base64Image);
-
         } catch (Exception e) {
             Log.e(TAG, "Image Processing Error", e);
-            isProcessing = false;
         } finally {
             imageProxy.close();
         }
+
+        dispatchPendingFrame();
     }
 
-    private void sendToGemini(String base64Image) {
-        JSONObject jsonBody = new JSONObject();
-        try {
-            // Groq API format
-            jsonBody.put("model", GROQ_MODEL);
-            
-            JSONArray messages = new JSONArray();
-            JSONObject message = new JSONObject();
-            message.put("role", "user");
-            
-            // Content array with text and image
-            JSONArray contentArray = new JSONArray();
-            
-            // Text part
-            JSONObject textContent = new JSONObject();
-            textContent.put("type", "text");
-            textContent.put("text", "Identify the main object in this image. Respond in 5 words or less.");
-            contentArray.put(textContent);
-            
-            // Image part
-            JSONObject imageContent = new JSONObject();
-            imageContent.put("type", "image_url");
-            JSONObject imageUrl = new JSONObject();
-            imageUrl.put("url", "data:image/jpeg;base64," + base64Image);
-            imageContent.put("image_url", imageUrl);
-            contentArray.put(imageContent);
-            
-            message.put("content", contentArray);
-            messages.put(message);
-            jsonBody.put("messages", messages);
-
-        } catch (JSONException e) {
-            e.printStackTrace();
-            isProcessing = false;
-            return;
+    private void encodeFrame(ImageProxy imageProxy, long capturedAt) {
+        // 1. Convert ImageProxy to Bitmap
+        Bitmap bitmap = Bitmap.createBitmap(imageProxy.getWidth(), imageProxy.getHeight(), Bitmap.Config.ARGB_8888);
+        bitmap.copyPixelsFromBuffer(imageProxy.getPlanes()[0].getBuffer());
+        
+        // 2. Rotate Bitmap (ImageAnalysis images are often unrotated)
+        int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+        if (rotationDegrees != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(rotationDegrees);
+            bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
         }
 
-        RequestBody body = RequestBody.create(jsonBody.toString(), MediaType.get("application/json; charset=utf-8"));
+        // 3. Compress to JPEG
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        // Size + quality depend on the measured network speed (640px q60 at best, 384px q45 at worst)
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        BandwidthEstimator.UploadSettings settings = bandwidthEstimator.choose(MAX_UPLOAD, FLOOR_UPLOAD, TARGET_UPLOAD_MS, w, h);
+        if (w > settings.maxWidth) {
+             float scale = (float) settings.maxWidth / w;
+             bitmap = Bitmap.createScaledBitmap(bitmap, settings.maxWidth, (int)(h * scale), true);
+        }
         
-        Request request = new Request.Builder()
-                .url(API_URL)
-                .addHeader("Authorization", "Bearer " + GROQ_API_KEY)
-                .addHeader("Content-Type", "application/json")
-                .post(body)
-                .build();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, settings.quality, byteArrayOutputStream);
+        byte[] imageBytes = byteArrayOutputStream.toByteArray();
+        bandwidthEstimator.addEncodeSample(bitmap.getWidth(), bitmap.getHeight(), settings.quality, imageBytes.length);
+
+        String info = settings + " " + (imageBytes.length / 1024) + "KB";
+        pipeline.offer(Base64.encodeToString(imageBytes, Base64.NO_WRAP), capturedAt, info);
+    }
+
+    /**
+     * Sends the prepared frame if nothing is in flight, speech is over and the
+     * minimum gap has passed. Safe to call from any thread.
+     */
+    private void dispatchPendingFrame() {
+        FramePipeline.Frame frame = pipeline.takeIfReady(System.currentTimeMillis());
+        if (frame == null) return;
 
-        client.newCall(request).enqueue(new Callback() {
+        // A new generation cancels any older call still running
+        long generation = requestTracker.newGeneration();
+
+        runOnUiThread(() -> tvDescription.setText("Analyzing..."));
+
+        // 4. Send to Gemini
+        Log.d(TAG, "Sending frame: " + frame.info + " (" + bandwidthEstimator.getStatsSummary() + ")");
+        sendToGemini(frame.payload, generation, frame.info);
+    }
+
+    /**
+     * Shows + speaks the answer, then releases the pipeline. Releasing on the UI thread
+     * after speak() means the next frame waits for this answer to be spoken.
+     */
+    private void showResult(String text, String spokenText) {
+        runOnUiThread(() -> {
+            tvDescription.setText(text);
+            speak(spokenText);
+            pipeline.onRequestFinished();
+        });
+    }
+
+    private void sendToGemini(String base64Image, long generation, String uploadInfo) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(ChatMessage.userWithImage("Identify the main object in this image. Respond in 5 words or less.", base64Image));
+
+        long requestStart = System.currentTimeMillis();
+        // The router picks the healthiest provider (Groq or Gemini) and fails over within the budget
+        router.enqueue(new AiRequest(messages, 0), LATENCY_BUDGET, new ProviderRouter.Callback() {
             @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                Log.e(TAG, "Groq Request Failed", e);
-                runOnUiThread(() -> {
-                     tvDescription.setText("Connection Failed");
-                     speak("Connection failed");
-                     isProcessing = false;
-                });
+            public void onCallStarted(Call call) {
+                requestTracker.track(generation, call, requestBytes(call));
             }
 
             @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    try {
-                        String responseData = response.body().string();
-                        JSONObject json = new JSONObject(responseData);
-                        
-                        // Parse Groq response format
-                        JSONArray choices = json.optJSONArray("choices");
-                        if (choices != null && choices.length() > 0) {
-                            JSONObject choice = choices.getJSONObject(0);
-                            JSONObject message = choice.optJSONObject("message");
-                            if (message != null) {
-                                String text = message.optString("content", "No object detected");
-                                
-                                runOnUiThread(() -> {
-                                    tvDescription.setText(text);
-                                    speak(text);
-                                });
-                            }
-                        } else {
-                            runOnUiThread(() -> {
-                                tvDescription.setText("No response from AI");
-                                speak("No response");
-                            });
-                        }
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Parsing Error", e);
-                        runOnUiThread(() -> {
-                            tvDescription.setText("Error parsing response");
-                            speak("Error occurred");
-                        });
-                    }
+            public void onSuccess(AiResponse response) {
+                // Late answer for an old frame or a destroyed activity: drop it
+                if (!requestTracker.isCurrent(generation)) {
+                    requestTracker.responseDropped();
+                    return;
+                }
+                requestTracker.finish(generation);
+                Log.d(TAG, "Upload " + uploadInfo + " -> " + response.provider + " in " + response.latencyMs
+                        + "ms (total " + (System.currentTimeMillis() - requestStart) + "ms)");
+
+                String text = response.text.isEmpty() ? "No object detected" : response.text;
+                showResult(text, text);
+            }
+
+            @Override
+            public void onFailure(int lastHttpCode, IOException lastError) {
+                // Cancelled or superseded (counted as cancelled already): a newer frame, or nobody, owns the screen
+                if (!requestTracker.isCurrent(generation)) return;
+                requestTracker.finish(generation);
+                Log.e(TAG, "All providers failed (" + router.getStatsSummary() + ")", lastError);
+
+                if (lastHttpCode == 0) {
+                    showResult("Connection Failed", "Connection failed");
                 } else {
-                    String errorBody = response.body() != null ? response.body().string() : "";
-                    Log.e(TAG, "Groq Error: " + response.code() + " " + errorBody);
-                    runOnUiThread(() -> {
-                        String userMessage = "Error occurred";
-                        if (response.code() == 401) {
-                            userMessage = "Invalid API key";
-                        } else if (response.code() == 429) {
-                            userMessage = "Rate limit exceeded";
-                        } else if (response.code() == 503) {
-                            userMessage = "Service unavailable";
-                        }
-                        tvDescription.setText(userMessage);
-                        speak(userMessage);
-                    });
+                    String userMessage = "Error occurred";
+                    if (lastHttpCode == 401) {
+                        userMessage = "Invalid API key";
+                    } else if (lastHttpCode == 429) {
+                        userMessage = "Rate limit exceeded";
+                    } else if (lastHttpCode == 503) {
+                        userMessage = "Service unavailable";
+                    }
+                    showResult(userMessage, userMessage);
                 }
-                
-                // Release lock
-                isProcessing = false;
             }
         });
     }
 
+    private static long requestBytes(Call call) {
+        try {
+            RequestBody body = call.request().body();
+            return body != null ? body.contentLength() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     private void speak(String text) {
-        if (tts != null && !isSpeaking) {
-            // Create a unique utterance ID
-            String utteranceId = String.valueOf(System.currentTimeMillis());
-            android.os.Bundle params = new android.os.Bundle();
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, params, utteranceId);
+        if (!isSpeaking) {
+            if (SpeechService.get().speak(text, UtteranceScheduler.Priority.PERIODIC, utteranceCallback, this)) {
+                // Mark as speaking now, not on onStart(), so no request slips out in between
+                pipeline.setSpeaking(true);
+            }
         }
     }
 }
@@ -3,7 +3,6 @@ package com.inclusive.assist;
 import android.content.Intent;
 import android.os.Bundle;
 import android.speech.RecognizerIntent;
-import android.speech.tts.TextToSpeech;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -14,21 +13,19 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class BusStopActivity extends AppCompatActivity {
 
+    public static final String EXTRA_ROUTE = "ROUTE_INDEX"; // Route number in RouteDatabase
+
     private ListView lvBusStops;
     private Button btnVoiceSearch;
     private TextView tvBusTitle;
-    private TextToSpeech tts;
     
-    private List<JSONObject> stopsList = new ArrayList<>();
+    private RouteDatabase routes;
+    private List<Integer> stopsList = new ArrayList<>(); // Stop ids, in route order
     private List<String> displayStops = new ArrayList<>();
     private ArrayAdapter<String> adapter;
     private String busNumber = "";
@@ -42,64 +39,50 @@ public class BusStopActivity extends AppCompatActivity {
         btnVoiceSearch = findViewById(R.id.btnVoiceSearch);
         tvBusTitle = findViewById(R.id.tvBusTitle);
 
-        String routeJson = getIntent().getStringExtra("ROUTE_DATA");
-        parseRouteData(routeJson);
+        parseRouteData(getIntent().getIntExtra(EXTRA_ROUTE, -1));
 
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-                speak("Bus " + busNumber + " selected. Select your destination stop or say it.");
-            }
-        });
+        speak("Bus " + busNumber + " selected. Select your destination stop or say it.");
 
         adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, displayStops);
         lvBusStops.setAdapter(adapter);
 
-        lvBusStops.setOnItemClickListener((parent, view, position, id) -> {
-            JSONObject selectedStop = stopsList.get(position);
-            confirmStop(selectedStop);
-        });
+        lvBusStops.setOnItemClickListener((parent, view, position, id) -> confirmStop(stopsList.get(position)));
 
         btnVoiceSearch.setOnClickListener(v -> startVoiceInput());
     }
 
-    private void parseRouteData(String json) {
+    private void parseRouteData(int route) {
         try {
-            JSONObject route = new JSONObject(json);
-            busNumber = route.getString("bus_number");
+            routes = RouteDatabase.get(this); // Already mapped by the route list
+            busNumber = routes.getBusNumber(route);
             tvBusTitle.setText("Route: " + busNumber);
-            
-            JSONArray stops = route.getJSONArray("stops");
+
             stopsList.clear();
             displayStops.clear();
-            
-            for (int i = 0; i < stops.length(); i++) {
-                JSONObject stop = stops.getJSONObject(i);
+
+            for (int i = 0; i < routes.getStopCount(route); i++) {
+                int stop = routes.getStop(route, i);
                 stopsList.add(stop);
-                displayStops.add(stop.getString("name"));
+                displayStops.add(routes.getStopName(stop));
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void confirmStop(JSONObject stop) {
-        try {
-            String name = stop.getString("name");
-            double lat = stop.getDouble("lat");
-            double lon = stop.getDouble("lon");
-            
-            speak("Setting destination to " + name);
-            
-            Intent intent = new Intent(this, DestinationActivity.class);
-            intent.putExtra("DEST_NAME", name);
-            intent.putExtra("DEST_LAT", lat);
-            intent.putExtra("DEST_LON", lon);
-            startActivity(intent);
-            finish(); // Close stop list
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void confirmStop(int stop) {
+        String name = routes.getStopName(stop);
+        double lat = routes.getStopLat(stop);
+        double lon = routes.getStopLon(stop);
+
+        speak("Setting destination to " + name);
+
+        Intent intent = new Intent(this, DestinationActivity.class);
+        intent.putExtra("DEST_NAME", name);
+        intent.putExtra("DEST_LAT", lat);
+        intent.putExtra("DEST_LON", lon);
+        startActivity(intent);
+        finish(); // Close stop list
     }
 
     private void startVoiceInput() {
@@ -126,29 +109,16 @@ public class BusStopActivity extends AppCompatActivity {
     }
 
     private void filterStops(String query) {
-        try {
-            for (JSONObject stop : stopsList) {
-                String name = stop.getString("name");
-                if (name.toLowerCase().contains(query)) {
-                    confirmStop(stop);
-                    return;
-                }
+        for (int i = 0; i < stopsList.size(); i++) {
+            if (displayStops.get(i).toLowerCase().contains(query)) {
+                confirmStop(stopsList.get(i));
+                return;
             }
-            speak("Stop not found. Please try again.");
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        speak("Stop not found. Please try again.");
     }
 
     private void speak(String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
-    }
-
-    @Override
-    protected void onDestroy() {
-        if (tts != null) tts.shutdown();
-        super.onDestroy();
+        SpeechService.get().speak(text);
     }
 }
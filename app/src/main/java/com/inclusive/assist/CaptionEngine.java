@@ -0,0 +1,478 @@
+package com.inclusive.assist;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Continuous captions for a lecture without losing words between recognizer sessions.
+ *
+ * The engine owns the mic (AudioRecord) and keeps the last 30s in a ring buffer. A local
+ * VAD cuts the audio into segments (speech plus a little lead-in; long speech is split every
+ * 15s with 0.5s of overlap), and each segment is streamed to the recognizer from the ring
+ * buffer through EXTRA_AUDIO_SOURCE. While one session finishes and the next starts, the mic
+ * keeps recording, so the next segment starts where the speech did, not where the recognizer
+ * happened to be ready. Words repeated by an overlap are removed when captions are joined.
+ *
+ * Before Android 13 (no EXTRA_AUDIO_SOURCE) the recognizer has to use the mic itself; then
+ * sessions are restarted only when one ends, and the time the mic was off counts as dropped.
+ */
+public class CaptionEngine {
+
+    private static final String TAG = "CaptionEngine";
+    private static final int SAMPLE_RATE = 16000;
+    private static final int RING_SECONDS = 30;
+    private static final int CHUNK = SAMPLE_RATE / 10;   // 100ms reads
+    private static final int PREROLL_MS = 300;
+    private static final int END_SILENCE_MS = 700;
+    private static final int MAX_SEGMENT_MS = 15000;
+    private static final int OVERLAP_MS = 500;
+    private static final int MAX_FAILED_SESSIONS = 3;    // Then the recognizer can't take our audio
+
+    public interface Listener {
+        /** Words so far in the current segment (may change). Main thread. */
+        void onPartial(String text);
+
+        /** Final text of a segment, overlap with the previous caption removed. Main thread. */
+        void onCaption(String text, long startMs, long endMs);
+
+        /** VAD started/stopped hearing speech. Main thread. */
+        void onSpeaking(boolean speaking);
+    }
+
+    /** Raw mic audio as it is read, timed on the same clock as captions. Mic thread: copy, don't block. */
+    public interface AudioTap {
+        void onAudio(short[] pcm, int length, long startMs);
+    }
+
+    /** A stretch of audio for one recognizer session, in absolute sample positions. */
+    private static class Segment {
+        final long start;
+        volatile long end = -1; // -1 = still being spoken
+        long feedFrom;          // Where the next session for this segment starts
+        boolean overlapsPrevious;
+
+        Segment(long start, boolean overlapsPrevious) {
+            this.start = start;
+            this.feedFrom = start;
+            this.overlapsPrevious = overlapsPrevious;
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AudioRingBuffer ring = new AudioRingBuffer(SAMPLE_RATE * RING_SECONDS);
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>(); // Main thread only
+    private SpeechRecognizer recognizer;
+    private boolean streaming; // false = legacy mode, the recognizer records itself
+    private volatile AudioTap audioTap;
+
+    private Thread micThread;
+    private boolean running = false;
+    private volatile boolean recording = false; // Mic thread keeps going while true
+    private long startedAt;
+
+    // Current session (main thread)
+    private Segment current;
+    private volatile int feedGeneration = 0; // Bumped to stop the current feeder thread
+    private volatile long fedTo;
+    private ParcelFileDescriptor readEnd; // Held until the session ends: startListening only queues the start
+    private int failedSessions = 0;
+    private String lastCaption = "";
+
+    // --- STATS ---
+    private volatile long capturedSamples = 0;
+    private volatile long droppedMs = 0;
+    private int sessions = 0;
+    private long legacyMicOffAt = -1;
+
+    public CaptionEngine(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /** Start captioning. Needs RECORD_AUDIO. Main thread. */
+    public void start() {
+        if (running) return;
+        running = true;
+        startedAt = System.currentTimeMillis();
+        recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+        recognizer.setRecognitionListener(new SessionListener());
+        streaming = canTapAudio();
+        if (streaming) {
+            recording = true;
+            micThread = new Thread(this::recordLoop, "CaptionMic");
+            micThread.start();
+        } else {
+            startLegacySession();
+        }
+    }
+
+    /**
+     * True if an AudioTap will get the audio: we own the mic only in streaming mode (API 33+).
+     * Before that the recognizer records itself and nobody else can hear it.
+     */
+    public static boolean canTapAudio() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
+    }
+
+    /** Only gets audio while we own the mic (see canTapAudio()). */
+    public void setAudioTap(AudioTap tap) {
+        audioTap = tap;
+    }
+
+    public void stop() {
+        running = false;
+        feedGeneration++;
+        handler.removeCallbacksAndMessages(null);
+        stopMic();
+        if (recognizer != null) {
+            recognizer.destroy();
+            recognizer = null;
+        }
+        closeReadEnd();
+        Log.d(TAG, getStatsSummary());
+    }
+
+    // --- MIC THREAD: record, VAD, cut segments ---
+    @SuppressLint("MissingPermission") // Caller checks RECORD_AUDIO
+    private void recordLoop() {
+        int min = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, Math.max(min, CHUNK * 4));
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            Log.e(TAG, "Mic not available, using the recognizer's own mic");
+            handler.post(this::fallBackToLegacy);
+            return;
+        }
+
+        VoiceActivityDetector vad = new VoiceActivityDetector(END_SILENCE_MS);
+        short[] chunk = new short[CHUNK];
+        Segment open = null;
+        record.startRecording();
+        try {
+            while (recording) {
+                int n = record.read(chunk, 0, chunk.length);
+                if (n <= 0) {
+                    Log.e(TAG, "Mic read failed: " + n);
+                    break;
+                }
+                long chunkStart = ring.written();
+                ring.write(chunk, n);
+                capturedSamples += n;
+                AudioTap tap = audioTap;
+                if (tap != null) tap.onAudio(chunk, n, toMs(chunkStart));
+
+                for (int f = 0; f + VoiceActivityDetector.FRAME <= n; f += VoiceActivityDetector.FRAME) {
+                    boolean wasSpeaking = vad.isSpeaking();
+                    boolean speaking = vad.process(chunk, f);
+                    long frameEnd = chunkStart + f + VoiceActivityDetector.FRAME;
+
+                    if (speaking && open == null) {
+                        long start = Math.max(ring.oldest(), frameEnd - samples(PREROLL_MS) - samples(30));
+                        open = new Segment(start, false);
+                        queue(open);
+                    } else if (open != null && !speaking) {
+                        open.end = frameEnd;
+                        open = null;
+                    } else if (open != null && frameEnd - open.start >= samples(MAX_SEGMENT_MS)) {
+                        // Long stretch of talk: cut it, and let the next one start a bit earlier
+                        open.end = frameEnd;
+                        open = new Segment(frameEnd - samples(OVERLAP_MS), true);
+                        queue(open);
+                    }
+                    if (speaking != wasSpeaking) {
+                        boolean s = speaking;
+                        handler.post(() -> listener.onSpeaking(s));
+                    }
+                }
+            }
+        } finally {
+            if (open != null) open.end = ring.written();
+            record.stop();
+            record.release();
+        }
+    }
+
+    private static long samples(int ms) {
+        return (long) ms * SAMPLE_RATE / 1000;
+    }
+
+    private void queue(Segment segment) {
+        handler.post(() -> {
+            segments.add(segment);
+            startNextSession();
+        });
+    }
+
+    // --- SESSIONS (main thread) ---
+    private void startNextSession() {
+        if (!running || !streaming || current != null || segments.isEmpty()) return;
+        current = segments.peek();
+
+        ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            Log.e(TAG, "No pipe", e);
+            fallBackToLegacy();
+            return;
+        }
+
+        Intent intent = baseIntent();
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE, pipe[0]);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_CHANNEL_COUNT, 1);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_ENCODING, AudioFormat.ENCODING_PCM_16BIT);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_SAMPLING_RATE, SAMPLE_RATE);
+        sessions++;
+        recognizer.startListening(intent);
+        readEnd = pipe[0];
+
+        Segment segment = current;
+        int generation = ++feedGeneration;
+        fedTo = segment.feedFrom;
+        new Thread(() -> feed(segment, pipe[1], generation), "CaptionFeed").start();
+    }
+
+    private static Intent baseIntent() {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true); // Show words instantly
+        return intent;
+    }
+
+    /** Feeder thread: stream the segment from the ring buffer, live, until it ends. */
+    private void feed(Segment segment, ParcelFileDescriptor writeEnd, int generation) {
+        short[] pcm = new short[CHUNK];
+        byte[] bytes = new byte[CHUNK * 2];
+        long pos = segment.feedFrom;
+        try (OutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(writeEnd)) {
+            while (generation == feedGeneration) {
+                if (pos < ring.oldest()) {
+                    // Recognizer fell more than the whole buffer behind
+                    long lost = ring.oldest() - pos;
+                    droppedMs += lost * 1000 / SAMPLE_RATE;
+                    pos = ring.oldest();
+                }
+                long end = segment.end;
+                long available = (end >= 0 ? end : ring.written()) - pos;
+                if (available <= 0) {
+                    if (end >= 0) break; // Whole segment sent: closing the pipe ends the session
+                    Thread.sleep(20);
+                    continue;
+                }
+                int n = ring.read(pos, pcm, (int) Math.min(CHUNK, available));
+                for (int i = 0; i < n; i++) {
+                    bytes[2 * i] = (byte) pcm[i];
+                    bytes[2 * i + 1] = (byte) (pcm[i] >> 8);
+                }
+                out.write(bytes, 0, n * 2);
+                pos += n;
+                if (generation == feedGeneration) fedTo = pos;
+            }
+        } catch (IOException e) {
+            // The recognizer closed its end: it decided the session was over before we did
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Session over (result or error). Main thread. */
+    private void onSessionEnded(String text) {
+        if (!streaming) {
+            if (text != null) emit(text, false, System.currentTimeMillis(), System.currentTimeMillis());
+            startLegacySession();
+            return;
+        }
+        Segment segment = current;
+        current = null;
+        feedGeneration++;
+        closeReadEnd();
+        if (segment == null) return;
+
+        long endPos = segment.end;
+        if (text != null) {
+            emit(text, segment.overlapsPrevious, toMs(segment.feedFrom), toMs(endPos >= 0 ? endPos : fedTo));
+        }
+
+        if (endPos >= 0 && fedTo >= endPos) {
+            segments.poll(); // Done with this one
+        } else {
+            // Recognizer stopped mid-segment: carry on from a little before where it got to
+            segment.feedFrom = Math.max(segment.start, fedTo - samples(OVERLAP_MS));
+            segment.overlapsPrevious = true;
+        }
+        startNextSession();
+    }
+
+    private void closeReadEnd() {
+        if (readEnd == null) return;
+        try {
+            readEnd.close();
+        } catch (IOException ignored) {
+        }
+        readEnd = null;
+    }
+
+    private long toMs(long position) {
+        return startedAt + position * 1000 / SAMPLE_RATE;
+    }
+
+    private void emit(String text, boolean overlapsPrevious, long startMs, long endMs) {
+        String caption = overlapsPrevious ? trimOverlap(lastCaption, text) : text.trim();
+        lastCaption = text;
+        if (!caption.isEmpty()) listener.onCaption(caption, startMs, endMs);
+    }
+
+    /** Drop the words at the start of next that repeat the end of previous (from overlapping audio). */
+    static String trimOverlap(String previous, String next) {
+        String[] prev = previous.trim().split("\\s+");
+        String[] words = next.trim().split("\\s+");
+        for (int k = Math.min(6, Math.min(prev.length, words.length)); k >= 1; k--) {
+            boolean same = true;
+            for (int i = 0; i < k && same; i++) {
+                same = clean(prev[prev.length - k + i]).equals(clean(words[i]));
+            }
+            if (same) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = k; i < words.length; i++) sb.append(i > k ? " " : "").append(words[i]);
+                return sb.toString();
+            }
+        }
+        return next.trim();
+    }
+
+    private static String clean(String word) {
+        return word.toLowerCase(Locale.US).replaceAll("[^a-z0-9']", "");
+    }
+
+    // --- LEGACY: recognizer records itself ---
+    private void fallBackToLegacy() {
+        if (!streaming || !running) return;
+        Log.d(TAG, "Falling back to recognizer mic");
+        streaming = false;
+        feedGeneration++;
+        closeReadEnd();
+        stopMic();
+        segments.clear();
+        current = null;
+        startLegacySession();
+    }
+
+    private void stopMic() {
+        recording = false;
+        if (micThread != null) {
+            try {
+                micThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            micThread = null;
+        }
+    }
+
+    private void startLegacySession() {
+        if (!running || recognizer == null) return;
+        sessions++;
+        recognizer.startListening(baseIntent());
+    }
+
+    private class SessionListener implements RecognitionListener {
+        @Override
+        public void onReadyForSpeech(Bundle params) {
+            if (!streaming && legacyMicOffAt > 0) {
+                droppedMs += System.currentTimeMillis() - legacyMicOffAt;
+                legacyMicOffAt = -1;
+            }
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            if (!streaming) listener.onSpeaking(true);
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) {}
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {}
+
+        @Override
+        public void onEndOfSpeech() {
+            // The recognizer stops listening here; in legacy mode that's where audio starts being lost
+            if (!streaming) {
+                legacyMicOffAt = System.currentTimeMillis();
+                listener.onSpeaking(false);
+            }
+        }
+
+        @Override
+        public void onError(int error) {
+            if (!streaming && legacyMicOffAt < 0) legacyMicOffAt = System.currentTimeMillis();
+            boolean nothingHeard = error == SpeechRecognizer.ERROR_NO_MATCH || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT;
+            if (streaming && !nothingHeard && ++failedSessions >= MAX_FAILED_SESSIONS) {
+                // e.g. this recognizer doesn't accept an audio source
+                Log.e(TAG, "Recognizer keeps failing (" + error + ")");
+                fallBackToLegacy();
+                return;
+            }
+            if (error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY || error == SpeechRecognizer.ERROR_NETWORK) {
+                // Give it a moment instead of hammering it; streaming mode keeps recording meanwhile
+                handler.postDelayed(() -> onSessionEnded(null), 500);
+                return;
+            }
+            onSessionEnded(null);
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            failedSessions = 0;
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (!streaming && legacyMicOffAt < 0) legacyMicOffAt = System.currentTimeMillis();
+            onSessionEnded(matches != null && !matches.isEmpty() ? matches.get(0) : null);
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            ArrayList<String> partial = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (partial != null && !partial.isEmpty() && !partial.get(0).isEmpty()) listener.onPartial(partial.get(0));
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {}
+    }
+
+    /** Audio lost per minute of captioning: mic off between sessions, or more than the buffer behind. */
+    public float getDroppedMsPerMinute() {
+        long elapsed = System.currentTimeMillis() - startedAt;
+        return elapsed > 0 ? droppedMs * 60000f / elapsed : 0;
+    }
+
+    /** e.g. "mode=streaming sessions=42 captured=600s dropped=0ms (0ms/min)" */
+    public String getStatsSummary() {
+        return "mode=" + (streaming ? "streaming" : "legacy") + " sessions=" + sessions + " captured="
+                + capturedSamples / SAMPLE_RATE + "s dropped=" + droppedMs + "ms ("
+                + String.format(Locale.US, "%.0f", getDroppedMsPerMinute()) + "ms/min)";
+    }
+}
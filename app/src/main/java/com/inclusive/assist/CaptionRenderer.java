@@ -0,0 +1,235 @@
+package com.inclusive.assist;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.style.CharacterStyle;
+import android.text.style.UpdateAppearance;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Shows live recognizer hypotheses in a TextView without redoing the whole text every callback.
+ *
+ * Partials are only stored when they arrive; the newest one is drawn on the next display frame
+ * (Choreographer), so a burst of callbacks costs one update. The view holds an Editable and only
+ * the part after the first difference is replaced, which TextView's DynamicLayout reflows on its
+ * own. Words the last two hypotheses agree on are committed (plain colour); the unstable tail is
+ * dimmed and newly arrived text fades in. Each fade step sets the span again with its new alpha,
+ * since the view only redraws cached text when a span changes: a redraw, no layout.
+ *
+ * Frame-time stats come from FrameMetrics on the window: how long frames took and how many were
+ * late, plus what our own update work cost per render.
+ */
+public class CaptionRenderer implements Choreographer.FrameCallback {
+
+    private static final String TAG = "CaptionRenderer";
+    private static final float TAIL_ALPHA = 0.55f;   // Unstable words, against the text colour
+    private static final long FADE_NS = 150_000_000L;
+
+    private final Editable text;
+    private final AlphaSpan tailSpan = new AlphaSpan(TAIL_ALPHA);
+    private final AlphaSpan freshSpan = new AlphaSpan(0);
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    private String pending;          // Newest hypothesis not drawn yet
+    private boolean pendingFinal;
+    private boolean scheduled = false;
+    private String previous = "";    // Last hypothesis of this utterance, for the stable prefix
+    private long fadeStartNs = -1;
+
+    // --- STATS ---
+    private long hypotheses = 0;
+    private long renders = 0;
+    private long charsReplaced = 0;
+    private long charsShown = 0;
+    private long workNs = 0;
+
+    // Frame metrics, written on their own thread
+    private final Window window;
+    private final HandlerThread metricsThread;
+    private final Window.OnFrameMetricsAvailableListener metricsListener;
+    private final long[] frameNs = new long[240];  // Last few seconds of TOTAL_DURATION
+    private long frames = 0;
+    private long jankyFrames = 0;
+    private long layoutNs = 0;
+    private final long frameBudgetNs;
+
+    /** window may be null (no frame stats). */
+    public CaptionRenderer(TextView view, Window window) {
+        view.setText(view.getText(), TextView.BufferType.EDITABLE);
+        this.text = (Editable) view.getText();
+
+        float refreshRate = window != null ? window.getWindowManager().getDefaultDisplay().getRefreshRate() : 60f;
+        frameBudgetNs = (long) (1e9 / Math.max(30f, refreshRate));
+
+        this.window = window;
+        if (window != null) {
+            metricsThread = new HandlerThread("CaptionFrames");
+            metricsThread.start();
+            metricsListener = (w, metrics, dropped) -> recordFrame(
+                    metrics.getMetric(FrameMetrics.TOTAL_DURATION),
+                    metrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION));
+            window.addOnFrameMetricsAvailableListener(metricsListener, new Handler(metricsThread.getLooper()));
+        } else {
+            metricsThread = null;
+            metricsListener = null;
+        }
+    }
+
+    /** A partial result. Drawn on the next frame, unless a newer one replaces it first. */
+    public void showPartial(String hypothesis) {
+        hypotheses++;
+        pending = hypothesis;
+        pendingFinal = false;
+        schedule();
+    }
+
+    /** The final result of the utterance: everything committed. */
+    public void showFinal(String result) {
+        hypotheses++;
+        pending = result;
+        pendingFinal = true;
+        schedule();
+    }
+
+    /** Status lines ("Listening...") replace the caption at once and start a new utterance. */
+    public void showStatus(String message) {
+        pending = null;
+        previous = "";
+        fadeStartNs = -1;
+        text.removeSpan(tailSpan);
+        text.removeSpan(freshSpan);
+        text.replace(0, text.length(), message);
+    }
+
+    public void release() {
+        choreographer.removeFrameCallback(this);
+        scheduled = false;
+        if (window != null) {
+            window.removeOnFrameMetricsAvailableListener(metricsListener);
+            metricsThread.quitSafely();
+        }
+        Log.d(TAG, getStatsSummary());
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        choreographer.postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (pending != null) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            render(pending, pendingFinal, frameTimeNanos);
+            pending = null;
+            workNs += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        if (fadeStartNs >= 0) {
+            float t = Math.min(1f, (frameTimeNanos - fadeStartNs) / (float) FADE_NS);
+            freshSpan.alpha = t; // On top of the tail's own dimming
+            int from = text.getSpanStart(freshSpan);
+            if (from >= 0) {
+                // Changing the field alone leaves the old alpha in the Editor's render nodes
+                text.setSpan(freshSpan, from, text.getSpanEnd(freshSpan), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else {
+                t = 1f; // Span gone (status or final text replaced it)
+            }
+            if (t < 1f) {
+                schedule();
+            } else {
+                fadeStartNs = -1;
+            }
+        }
+    }
+
+    private void render(String hypothesis, boolean isFinal, long frameTimeNanos) {
+        int start = commonPrefix(text, hypothesis);
+        if (start < text.length() || start < hypothesis.length()) {
+            text.replace(start, text.length(), hypothesis, start, hypothesis.length());
+            charsReplaced += hypothesis.length() - start;
+            renders++;
+        }
+        charsShown += hypothesis.length();
+
+        int stable = isFinal ? hypothesis.length() : wordPrefix(previous, hypothesis);
+        previous = isFinal ? "" : hypothesis;
+        int end = hypothesis.length();
+
+        text.removeSpan(tailSpan);
+        text.removeSpan(freshSpan);
+        if (stable < end) text.setSpan(tailSpan, stable, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        if (start < end && !isFinal) {
+            // Only what just arrived fades in; the rest of the tail stays as it was
+            freshSpan.alpha = 0;
+            text.setSpan(freshSpan, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            fadeStartNs = frameTimeNanos;
+        } else {
+            fadeStartNs = -1;
+        }
+    }
+
+    static int commonPrefix(CharSequence a, CharSequence b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    /** Common prefix of a and b, cut back to the last whole word they share. */
+    static int wordPrefix(CharSequence a, CharSequence b) {
+        int i = commonPrefix(a, b);
+        if (endsWord(a, i) && endsWord(b, i)) return i;
+        while (i > 0 && b.charAt(i - 1) != ' ') i--;
+        return i;
+    }
+
+    private static boolean endsWord(CharSequence s, int i) {
+        return i == s.length() || s.charAt(i) == ' ';
+    }
+
+    /** Scales the alpha of whatever colour the text is drawn in. Appearance only: no relayout. */
+    private static class AlphaSpan extends CharacterStyle implements UpdateAppearance {
+        float alpha;
+
+        AlphaSpan(float alpha) {
+            this.alpha = alpha;
+        }
+
+        @Override
+        public void updateDrawState(TextPaint paint) {
+            paint.setAlpha((int) (paint.getAlpha() * alpha));
+        }
+    }
+
+    // --- STATS ---
+    private synchronized void recordFrame(long totalNs, long layoutMeasureNs) {
+        frameNs[(int) (frames % frameNs.length)] = totalNs;
+        frames++;
+        layoutNs += layoutMeasureNs;
+        if (totalNs > frameBudgetNs) jankyFrames++;
+    }
+
+    public synchronized String getStatsSummary() {
+        int n = (int) Math.min(frames, frameNs.length);
+        long[] recent = Arrays.copyOf(frameNs, n);
+        Arrays.sort(recent);
+        double p95Ms = n == 0 ? 0 : recent[Math.min(n - 1, n * 95 / 100)] / 1e6;
+        return String.format(Locale.US,
+                "hypotheses=%d renders=%d replaced=%d/%d chars work=%.0fus/render | frames=%d janky=%d layout=%.0fus/frame p95=%.1fms",
+                hypotheses, renders, charsReplaced, charsShown, renders == 0 ? 0 : workNs / 1000.0 / renders,
+                frames, jankyFrames, frames == 0 ? 0 : layoutNs / 1000.0 / frames, p95Ms);
+    }
+}
@@ -0,0 +1,42 @@
+package com.inclusive.assist;
+
+/**
+ * One message of an AI request, independent of the provider's JSON format.
+ * A message can carry an optional JPEG image (Base64) for vision requests.
+ */
+public class ChatMessage {
+
+    public static final String ROLE_SYSTEM = "system";
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_ASSISTANT = "assistant";
+
+    public final String role;
+    public final String text;
+    public final String imageBase64; // null for text-only messages
+
+    public ChatMessage(String role, String text, String imageBase64) {
+        this.role = role;
+        this.text = text;
+        this.imageBase64 = imageBase64;
+    }
+
+    public static ChatMessage system(String text) {
+        return new ChatMessage(ROLE_SYSTEM, text, null);
+    }
+
+    public static ChatMessage user(String text) {
+        return new ChatMessage(ROLE_USER, text, null);
+    }
+
+    public static ChatMessage userWithImage(String text, String imageBase64) {
+        return new ChatMessage(ROLE_USER, text, imageBase64);
+    }
+
+    public static ChatMessage assistant(String text) {
+        return new ChatMessage(ROLE_ASSISTANT, text, null);
+    }
+
+    public boolean hasImage() {
+        return imageBase64 != null;
+    }
+}
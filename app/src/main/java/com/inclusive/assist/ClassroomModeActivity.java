@@ -1,130 +1,317 @@
 package com.inclusive.assist;
 
 import android.Manifest;
-import android.content.Intent;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.media.MediaPlayer;
 import android.os.Bundle;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
-import android.speech.SpeechRecognizer;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.widget.Button;
-import android.widget.ScrollView;
+import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import java.util.ArrayList;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class ClassroomModeActivity extends AppCompatActivity {
 
-    private SpeechRecognizer speechRecognizer;
-    private Intent speechIntent;
-    private TextView tvCaptions, tvStatus;
-    private ScrollView scrollView;
-    private boolean isListening = true;
-    private String fullTranscript = ""; // Stores the whole lecture
+    private static final String TAG = "ClassroomMode";
+    private static final int SEARCH_RESULTS = 20;
+    private static final String PREF_RECORD_AUDIO = "classroom_record_audio";
+
+    private CaptionEngine captionEngine;
+    private TextView tvStatus;
+    private RecyclerView rvCaptions;
+    private TranscriptStore transcript; // The whole lecture, saved as it comes in
+    private TranscriptAdapter adapter;
+    private LectureLibrary library;     // Search over every saved lecture
+    private LectureRecorder recorder;   // Optional: the audio behind the captions
+    private LectureSummarizer summarizer; // Summarizes each chunk as soon as it closes
+    private MediaPlayer player;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private SharedPreferences prefs;
+    private Button btnRecord;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_classroom_mode);
 
-        tvCaptions = findViewById(R.id.tvCaptions);
         tvStatus = findViewById(R.id.tvStatus);
-        scrollView = findViewById(R.id.scrollView);
+        rvCaptions = findViewById(R.id.rvCaptions);
         Button btnClear = findViewById(R.id.btnClear);
+        Button btnSearch = findViewById(R.id.btnSearch);
+        Button btnSummary = findViewById(R.id.btnSummary);
+        btnRecord = findViewById(R.id.btnRecord);
+        prefs = getSharedPreferences("InclusiveAssist", Context.MODE_PRIVATE);
+
+        // Picks up the lecture again after a rotation or crash
+        transcript = TranscriptStore.openRecent(lecturesDir(), System.currentTimeMillis());
+        adapter = new TranscriptAdapter(transcript);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setStackFromEnd(true);
+        rvCaptions.setLayoutManager(layoutManager);
+        rvCaptions.setAdapter(adapter);
+        library = LectureLibrary.get(lecturesDir());
+        adapter.setOnCaptionClickListener(this::playCaption);
+        summarizer = newSummarizer();
+
+        // Owns the mic for the whole lecture, so no words are lost between recognizer sessions
+        captionEngine = new CaptionEngine(this, new CaptionEngine.Listener() {
+            @Override
+            public void onPartial(String text) {
+                boolean following = isFollowing();
+                adapter.setPartial(text);
+                if (following) rvCaptions.scrollToPosition(adapter.getLivePosition());
+            }
+
+            @Override
+            public void onCaption(String text, long startMs, long endMs) {
+                // Append new sentence to the lecture (one new row, nothing else re-drawn)
+                boolean following = isFollowing();
+                int index = transcript.append(startMs, endMs, text);
+                adapter.onAppended(index);
+                library.add(transcript.getDir().getName(), index, transcript.get(index));
+                summarizer.add(index, text);
+                if (following) rvCaptions.scrollToPosition(adapter.getLivePosition());
+            }
+
+            @Override
+            public void onSpeaking(boolean speaking) {
+                if (speaking) {
+                    tvStatus.setText("🎤 Speaker is talking...");
+                } else {
+                    tvStatus.setText(String.format(Locale.US, "⏳ Waiting for speech... (lost %.0fms/min)",
+                            captionEngine.getDroppedMsPerMinute()));
+                }
+            }
+        });
 
         // Check Permissions
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, 1);
+        } else {
+            startCaptions();
         }
 
-        initializeSpeechRecognizer();
-        startListening();
-
         btnClear.setOnClickListener(v -> {
-            fullTranscript = "";
-            tvCaptions.setText("");
+            // The old lecture stays on disk; the screen starts a new one
+            stopPlayback();
+            summarizer.finish(null); // Old lecture's summary.txt, in the background
+            summarizer.release();
+            transcript.close();
+            transcript = TranscriptStore.create(lecturesDir(), System.currentTimeMillis());
+            adapter.setStore(transcript);
+            summarizer = newSummarizer();
+            if (recorder != null) {
+                stopRecorder();
+                startRecorder(); // Audio goes with the new lecture
+            }
+        });
+
+        btnSearch.setOnClickListener(v -> showSearch());
+        btnSummary.setOnClickListener(v -> showSummary());
+
+        updateRecordButton();
+        btnRecord.setOnClickListener(v -> {
+            boolean on = !prefs.getBoolean(PREF_RECORD_AUDIO, false);
+            prefs.edit().putBoolean(PREF_RECORD_AUDIO, on).apply();
+            if (on) {
+                startRecorder();
+            } else {
+                stopRecorder();
+            }
+            updateRecordButton();
         });
     }
 
-    private void initializeSpeechRecognizer() {
-        speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
-        speechIntent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-        speechIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-        speechIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
-        speechIntent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true); // Show words instantly
+    private void startCaptions() {
+        captionEngine.start();
+        if (prefs.getBoolean(PREF_RECORD_AUDIO, false)) startRecorder();
+    }
 
-        speechRecognizer.setRecognitionListener(new RecognitionListener() {
-            @Override
-            public void onReadyForSpeech(Bundle params) {}
+    // --- SUMMARY ---
+    private LectureSummarizer newSummarizer() {
+        // The one still running for this lecture (rotation), or a new one that picks up the chunk
+        // summaries already saved; either way it is fed the captions it hasn't seen
+        LectureSummarizer lecture = LectureSummarizer.forLecture(ProviderRouter.getDefault(), transcript.getDir());
+        List<TranscriptStore.Segment> segments = transcript.getSegments();
+        for (int i = 0; i < segments.size(); i++) lecture.add(i, segments.get(i).text);
+        return lecture;
+    }
 
+    private void showSummary() {
+        Toast.makeText(this, "Summarizing...", Toast.LENGTH_SHORT).show();
+        summarizer.finish(new LectureSummarizer.SummaryCallback() {
             @Override
-            public void onBeginningOfSpeech() {
-                tvStatus.setText("🎤 Speaker is talking...");
+            public void onSummary(String summary) {
+                runOnUiThread(() -> {
+                    if (isFinishing()) return;
+                    new AlertDialog.Builder(ClassroomModeActivity.this)
+                            .setTitle("Lecture summary")
+                            .setMessage(summary)
+                            .setPositiveButton("OK", null)
+                            .show();
+                });
             }
 
             @Override
-            public void onRmsChanged(float rmsdB) {}
-            @Override
-            public void onBufferReceived(byte[] buffer) {}
-            @Override
-            public void onEndOfSpeech() {
-                // IMPORTANT: When silence happens, don't stop. Restart!
-                tvStatus.setText("⏳ Waiting for speech...");
-                startListening();
+            public void onError(String message) {
+                runOnUiThread(() -> Toast.makeText(ClassroomModeActivity.this, message, Toast.LENGTH_SHORT).show());
             }
+        });
+    }
 
-            @Override
-            public void onError(int error) {
-                // If error occurs (like no internet or silence), restart automatically
-                startListening();
-            }
+    // --- AUDIO ---
+    private void startRecorder() {
+        if (recorder != null || !CaptionEngine.canTapAudio()) return;
+        recorder = new LectureRecorder(transcript.getDir());
+        recorder.start();
+        captionEngine.setAudioTap(recorder);
+    }
 
-            @Override
-            public void onResults(Bundle results) {
-                ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null) {
-                    String newSentence = matches.get(0);
-                    // Append new sentence to the full lecture text
-                    fullTranscript += newSentence + ". \n\n";
-                    tvCaptions.setText(fullTranscript);
-
-                    // Auto-scroll to bottom
-                    scrollView.post(() -> scrollView.fullScroll(ScrollView.FOCUS_DOWN));
-                }
-                startListening(); // Ensure loop continues
-            }
+    private void stopRecorder() {
+        if (recorder == null) return;
+        captionEngine.setAudioTap(null);
+        recorder.stop(); // Finishes the last chunk in the background
+        recorder = null;
+    }
 
-            @Override
-            public void onPartialResults(Bundle partialResults) {
-                // Optional: You can show "typing..." effect here
-            }
+    private void updateRecordButton() {
+        if (!CaptionEngine.canTapAudio()) {
+            // The recognizer keeps the mic to itself before Android 13: nothing to record from
+            btnRecord.setEnabled(false);
+            btnRecord.setText("Audio: Needs Android 13");
+            return;
+        }
+        btnRecord.setText(prefs.getBoolean(PREF_RECORD_AUDIO, false) ? "Audio: On" : "Audio: Off");
+    }
 
-            @Override
-            public void onEvent(int eventType, Bundle params) {}
-        });
+    /** Play the audio behind one caption. */
+    private void playCaption(int index) {
+        TranscriptStore.Segment segment = transcript.get(index);
+        File dir = transcript.getDir();
+        AudioTimeline.Position at = AudioTimeline.locate(dir, AudioTimeline.load(dir), segment.startMs);
+        if (at == null) {
+            // The chunk being recorded is only listed once it is finished (up to 2 minutes)
+            Toast.makeText(this, recorder != null ? "Audio for this line is still being saved" : "No audio saved for this line",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        stopPlayback();
+        player = new MediaPlayer();
+        try {
+            player.setDataSource(at.file.getPath());
+            player.prepare();
+        } catch (IOException e) {
+            Log.e(TAG, "Can't play " + at.file, e);
+            stopPlayback();
+            return;
+        }
+        player.seekTo((int) at.offsetMs);
+        player.start();
+        handler.postDelayed(this::stopPlayback, segment.endMs - segment.startMs + 500);
     }
 
-    private void startListening() {
-        if (speechRecognizer != null) {
-            // Must run on UI thread to avoid crashes
-            runOnUiThread(() -> {
-                try {
-                    speechRecognizer.startListening(speechIntent);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            });
+    private void stopPlayback() {
+        handler.removeCallbacksAndMessages(null);
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+    }
+
+    // --- SEARCH ---
+    private void showSearch() {
+        EditText input = new EditText(this);
+        input.setHint("e.g. exam date");
+        input.setSingleLine(true);
+        new AlertDialog.Builder(this)
+                .setTitle("Search lectures")
+                .setView(input)
+                .setPositiveButton("Search", (d, w) -> {
+                    String query = input.getText().toString().trim();
+                    if (!query.isEmpty()) library.search(query, SEARCH_RESULTS, (q, hits) -> runOnUiThread(() -> showResults(q, hits)));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showResults(String query, List<TranscriptIndex.Hit> hits) {
+        if (isFinishing()) return;
+        if (hits.isEmpty()) {
+            Toast.makeText(this, "Nothing found for \"" + query + "\"", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        SimpleDateFormat when = new SimpleDateFormat("EEE d MMM, HH:mm", Locale.getDefault());
+        String[] rows = new String[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            TranscriptIndex.Hit hit = hits.get(i);
+            rows[i] = when.format(new Date(hit.startMs)) + "\n" + hit.text;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("\"" + query + "\"")
+                .setItems(rows, (d, which) -> openHit(hits.get(which)))
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    private void openHit(TranscriptIndex.Hit hit) {
+        if (hit.lecture.equals(transcript.getDir().getName())) {
+            // Today's lecture: jump to the line
+            rvCaptions.scrollToPosition(hit.segment);
+        } else {
+            new AlertDialog.Builder(this)
+                    .setMessage(hit.text)
+                    .setPositiveButton("OK", null)
+                    .show();
+        }
+    }
+
+    private File lecturesDir() {
+        return new File(getFilesDir(), "lectures");
+    }
+
+    /** At the bottom: keep the newest line in view. Scrolled up to read something: leave it. */
+    private boolean isFollowing() {
+        return !rvCaptions.canScrollVertically(1);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == 1 && grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            startCaptions();
         }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (speechRecognizer != null) {
-            speechRecognizer.destroy();
+        stopPlayback();
+        stopRecorder();
+        captionEngine.stop();
+        if (isFinishing()) {
+            // Leaving the lecture, not just rotating: summary.txt is ready a few seconds later
+            summarizer.finish(null);
+            summarizer.release();
         }
+        transcript.close();
+        Log.d(TAG, "Lecture search: " + library.getStatsSummary());
+        Log.d(TAG, "Summary: " + summarizer.getStatsSummary());
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.inclusive.assist;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Conversation memory for the AI assistant.
+ *
+ * Keeps a proper system message plus the recent question/answer turns, so follow-ups
+ * like "and how far is that?" work. Everything is counted in approximate tokens
+ * (about 4 characters each) and kept under a fixed budget: when the history gets too
+ * big, the oldest turns are squeezed into a short "earlier in this conversation" note
+ * (first sentence of each), and the oldest notes are dropped when even that gets too big.
+ */
+public class ConversationContext {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4; // Role markers etc. per message
+    private static final int SUMMARY_LINE_CHARS = 120;    // Max length of one squeezed turn
+
+    private final String systemPrompt;
+    private final int maxPromptTokens;
+    private final int maxSummaryTokens;
+
+    private final LinkedList<ChatMessage> history = new LinkedList<>(); // user/assistant pairs, oldest first
+    private final LinkedList<String> summaryLines = new LinkedList<>();
+    private int turns = 0;
+    private int summarizedTurns = 0;
+    private int droppedTurns = 0;
+    private int lastRequestTokens = 0;
+
+    /**
+     * @param maxPromptTokens budget for the whole request (system + summary + history + new question)
+     */
+    public ConversationContext(String systemPrompt, int maxPromptTokens) {
+        this.systemPrompt = systemPrompt;
+        this.maxPromptTokens = maxPromptTokens;
+        this.maxSummaryTokens = maxPromptTokens / 4;
+    }
+
+    /** Rough on-device token count. Good enough to keep requests in budget. */
+    public static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static int messageTokens(ChatMessage message) {
+        return estimateTokens(message.text) + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    /**
+     * Messages to send for a new question: system (with summary), as much recent history
+     * as fits, then the question. Nothing is stored until addTurn() is called.
+     */
+    public synchronized List<ChatMessage> buildMessages(String prompt) {
+        ChatMessage question = ChatMessage.user(prompt);
+        ChatMessage system = ChatMessage.system(systemText());
+
+        int used = messageTokens(system) + messageTokens(question);
+
+        // Newest turns first, until the budget is used up
+        int keep = 0;
+        int historyTokens = 0;
+        for (int i = history.size() - 2; i >= 0; i -= 2) {
+            int turnTokens = messageTokens(history.get(i)) + messageTokens(history.get(i + 1));
+            if (used + historyTokens + turnTokens > maxPromptTokens) break;
+            historyTokens += turnTokens;
+            keep += 2;
+        }
+
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(system);
+        messages.addAll(history.subList(history.size() - keep, history.size()));
+        messages.add(question);
+
+        lastRequestTokens = used + historyTokens;
+        return messages;
+    }
+
+    /** Store a finished question/answer pair and trim the history back into budget. */
+    public synchronized void addTurn(String prompt, String answer) {
+        history.add(ChatMessage.user(prompt));
+        history.add(ChatMessage.assistant(answer));
+        turns++;
+        trim();
+    }
+
+    /**
+     * Keep the raw history within budget, leaving room for the system prompt, the summary
+     * and a new question about as long as the last one.
+     */
+    private void trim() {
+        int reserve = estimateTokens(systemPrompt) + maxSummaryTokens
+                + messageTokens(history.get(history.size() - 2)) + 3 * MESSAGE_OVERHEAD_TOKENS;
+        int historyBudget = Math.max(0, maxPromptTokens - reserve);
+
+        while (history.size() > 2 && historyTokens() > historyBudget) {
+            ChatMessage user = history.removeFirst();
+            ChatMessage assistant = history.removeFirst();
+            summaryLines.add("User asked: " + firstSentence(user.text) + " Answer: " + firstSentence(assistant.text));
+            summarizedTurns++;
+        }
+
+        // The summary has its own cap; the oldest notes go first
+        while (!summaryLines.isEmpty() && summaryTokens() > maxSummaryTokens) {
+            summaryLines.removeFirst();
+            droppedTurns++;
+        }
+    }
+
+    private int historyTokens() {
+        int total = 0;
+        for (ChatMessage message : history) total += messageTokens(message);
+        return total;
+    }
+
+    private int summaryTokens() {
+        int total = 0;
+        for (String line : summaryLines) total += estimateTokens(line) + 1;
+        return total;
+    }
+
+    private String systemText() {
+        if (summaryLines.isEmpty()) return systemPrompt;
+        StringBuilder sb = new StringBuilder(systemPrompt).append("\nEarlier in this conversation:");
+        for (String line : summaryLines) sb.append("\n- ").append(line);
+        return sb.toString();
+    }
+
+    private static String firstSentence(String text) {
+        String trimmed = text.trim().replaceAll("\\s+", " ");
+        int end = -1;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c == '.' || c == '?' || c == '!') {
+                end = i + 1;
+                break;
+            }
+        }
+        String sentence = end > 0 ? trimmed.substring(0, end) : trimmed;
+        return sentence.length() > SUMMARY_LINE_CHARS ? sentence.substring(0, SUMMARY_LINE_CHARS) + "..." : sentence;
+    }
+
+    public synchronized void clear() {
+        history.clear();
+        summaryLines.clear();
+        turns = 0;
+    }
+
+    /** Finished question/answer pairs so far (including summarized ones). */
+    public synchronized int getTurnCount() {
+        return turns;
+    }
+
+    /** Estimated size of the last request built by buildMessages(). */
+    public synchronized int getLastRequestTokens() {
+        return lastRequestTokens;
+    }
+
+    /** e.g. "turns=7 kept=3 summarized=4 dropped=0 lastRequest~=820tok/1500" */
+    public synchronized String getStatsSummary() {
+        return "turns=" + turns + " kept=" + history.size() / 2 + " summarized=" + summarizedTurns
+                + " dropped=" + droppedTurns + " lastRequest~=" + lastRequestTokens + "tok/" + maxPromptTokens;
+    }
+}
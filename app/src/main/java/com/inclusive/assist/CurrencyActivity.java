@@ -4,7 +4,6 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.media.Image;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.util.Log;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
@@ -23,7 +22,6 @@ import com.google.mlkit.vision.text.TextRecognition;
 import com.google.mlkit.vision.text.TextRecognizer;
 import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
-import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -33,7 +31,6 @@ import java.util.concurrent.ExecutionException;
  */
 public class CurrencyActivity extends AppCompatActivity {
 
-    private TextToSpeech tts;
     private PreviewView viewFinder;
     private TextView tvDescription;
     private TextRecognizer recognizer;
@@ -49,17 +46,10 @@ public class CurrencyActivity extends AppCompatActivity {
         tvDescription = findViewById(R.id.tvDescription);
         tvDescription.setText("Point camera at money...");
 
-        // 1. Initialize Voice
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-            }
-        });
-
-        // 2. Initialize Text Reader
+        // 1. Initialize Text Reader
         recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
 
-        // 3. Start Camera
+        // 2. Start Camera
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
             startCamera();
         } else {
@@ -124,10 +114,10 @@ public class CurrencyActivity extends AppCompatActivity {
                         if (!moneyFound.isEmpty()) {
                             tvDescription.setText(moneyFound);
 
-                            // Speak immediately but don't repeat too fast
+                            // Speak immediately but don't repeat too fast (the speech queue also drops repeats)
                             long currentTime = System.currentTimeMillis();
                             if (currentTime - lastSpeakTime > 2000) {
-                                tts.speak(moneyFound, TextToSpeech.QUEUE_FLUSH, null, null);
+                                SpeechService.get().speak(moneyFound, UtteranceScheduler.Priority.PERIODIC);
                                 lastSpeakTime = currentTime;
                             }
                         } else {
@@ -8,7 +8,6 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
-import android.speech.tts.TextToSpeech;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -40,7 +39,6 @@ public class DestinationActivity extends AppCompatActivity {
     
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
-    private TextToSpeech tts;
     private Vibrator vibrator;
     
     private boolean isTracking = false;
@@ -65,13 +63,7 @@ public class DestinationActivity extends AppCompatActivity {
         vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
-        // Initialize TTS
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-                speak("Navigation to " + destName + " is ready. Press Start.");
-            }
-        });
+        speak("Navigation to " + destName + " is ready. Press Start.");
 
         tvStatus.setText("Target: " + destName);
 
@@ -145,8 +137,9 @@ public class DestinationActivity extends AppCompatActivity {
         stopTracking();
 
         // 1. Text to Speech
+        // Arrival cuts off "Tracking stopped." and anything else less urgent
         String message = "Arrived at " + destName + ". Please get off.";
-        speak(message);
+        SpeechService.get().speak(message, UtteranceScheduler.Priority.ARRIVAL);
 
         // 2. Vibrate Heavily
         if (vibrator != null) {
@@ -161,9 +154,14 @@ public class DestinationActivity extends AppCompatActivity {
     }
 
     private void speak(String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
+        SpeechService.get().speak(text, UtteranceScheduler.Priority.USER, null, this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Status messages stop with the screen; the arrival alert is not ours to cut off
+        SpeechService.get().cancel(this);
+        super.onDestroy();
     }
 
     @Override
@@ -177,13 +175,4 @@ public class DestinationActivity extends AppCompatActivity {
             }
         }
     }
-
-    @Override
-    protected void onDestroy() {
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-        }
-        super.onDestroy();
-    }
 }
@@ -0,0 +1,112 @@
+package com.inclusive.assist;
+
+/**
+ * Overlaps camera capture/encoding with speech playback for the vision screens.
+ *
+ * Old flow: wait -> capture -> encode -> upload -> wait for AI -> speak -> wait again.
+ * Pipelined flow: while the current answer is being spoken, the next frame is already
+ * captured and encoded, so the request goes out the moment speech ends.
+ *
+ * Only one network request is ever in flight, so this does not add any API load.
+ */
+public class FramePipeline {
+
+    /** An encoded frame waiting to be sent. */
+    public static class Frame {
+        public final String payload;
+        public final long capturedAt;
+        public final String info; // e.g. encode settings, for logging
+
+        Frame(String payload, long capturedAt, String info) {
+            this.payload = payload;
+            this.capturedAt = capturedAt;
+            this.info = info;
+        }
+    }
+
+    private final long minIntervalMs;    // Minimum time between two requests
+    private final long maxFrameAgeMs;    // Re-capture if the waiting frame gets older than this
+    private final long maxSpeakingMs;    // Safety: never wait for speech longer than this
+    private final boolean encodeAhead;   // False = old serial behaviour
+
+    private Frame pending;
+    private boolean requestInFlight = false;
+    private boolean speaking = false;
+    private long speakingSince = 0;
+    private long lastDispatchTime = 0;
+
+    // Cadence stats
+    private int dispatchCount = 0;
+    private long totalIntervalMs = 0;
+    private long totalFrameAgeMs = 0;
+
+    public FramePipeline(long minIntervalMs, long maxFrameAgeMs, long maxSpeakingMs, boolean encodeAhead) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxFrameAgeMs = maxFrameAgeMs;
+        this.maxSpeakingMs = maxSpeakingMs;
+        this.encodeAhead = encodeAhead;
+    }
+
+    /** True if the camera thread should capture and encode a frame now. */
+    public synchronized boolean needsFrame(long now) {
+        if (requestInFlight) return false;
+        if (!encodeAhead && (isSpeaking(now) || now - lastDispatchTime < minIntervalMs)) return false;
+        return pending == null || now - pending.capturedAt > maxFrameAgeMs;
+    }
+
+    /** Stores the newest encoded frame (replaces any older one). */
+    public synchronized void offer(String payload, long capturedAt, String info) {
+        pending = new Frame(payload, capturedAt, info);
+    }
+
+    /**
+     * Returns the waiting frame if a request may go out now, and marks a request
+     * as in flight. Returns null otherwise.
+     */
+    public synchronized Frame takeIfReady(long now) {
+        if (requestInFlight || pending == null || isSpeaking(now)) return null;
+        if (now - lastDispatchTime < minIntervalMs) return null;
+
+        Frame frame = pending;
+        pending = null;
+        requestInFlight = true;
+
+        if (lastDispatchTime > 0) {
+            totalIntervalMs += now - lastDispatchTime;
+        }
+        totalFrameAgeMs += now - frame.capturedAt;
+        dispatchCount++;
+        lastDispatchTime = now;
+        return frame;
+    }
+
+    /** Call when the response (or failure) for the in-flight request has been handled. */
+    public synchronized void onRequestFinished() {
+        requestInFlight = false;
+    }
+
+    public synchronized boolean isRequestInFlight() {
+        return requestInFlight;
+    }
+
+    /** Called from the TTS progress listener. */
+    public synchronized void setSpeaking(boolean speaking) {
+        this.speaking = speaking;
+        if (speaking) speakingSince = System.currentTimeMillis();
+    }
+
+    private boolean isSpeaking(long now) {
+        // If the TTS engine never reports "done", do not stall the pipeline forever
+        return speaking && now - speakingSince < maxSpeakingMs;
+    }
+
+    /** Short summary for the log: average request cadence and frame age at send time. */
+    public synchronized String getStatsSummary() {
+        long avgInterval = dispatchCount > 1 ? totalIntervalMs / (dispatchCount - 1) : 0;
+        long avgFrameAge = dispatchCount > 0 ? totalFrameAgeMs / dispatchCount : 0;
+        return "requests=" + dispatchCount
+                + " avgCadenceMs=" + avgInterval
+                + " avgFrameAgeMs=" + avgFrameAge
+                + " mode=" + (encodeAhead ? "pipelined" : "serial");
+    }
+}
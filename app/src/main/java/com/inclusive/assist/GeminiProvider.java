@@ -0,0 +1,132 @@
+package com.inclusive.assist;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * Google Gemini (generateContent API). Used as the backup when Groq is slow or down.
+ */
+public class GeminiProvider implements AiProvider {
+
+    public static final String DEFAULT_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    public static final String CHAT_MODEL = "gemini-2.0-flash";
+    public static final String FAST_CHAT_MODEL = "gemini-2.0-flash-lite";
+    public static final String VISION_MODEL = "gemini-2.0-flash";
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final String chatModel;
+    private final String fastChatModel;
+    private final String visionModel;
+
+    public GeminiProvider(String baseUrl, String apiKey, String chatModel, String fastChatModel, String visionModel) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.chatModel = chatModel;
+        this.fastChatModel = fastChatModel;
+        this.visionModel = visionModel;
+    }
+
+    @Override
+    public String getName() {
+        return "gemini";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        // BuildConfig holds the string "null" when the key is missing from local.properties
+        return apiKey != null && !apiKey.isEmpty() && !apiKey.equals("null");
+    }
+
+    @Override
+    public boolean supportsVision() {
+        return visionModel != null;
+    }
+
+    @Override
+    public Request buildRequest(AiRequest request) throws JSONException {
+        String model = request.hasImage() ? visionModel
+                : request.tier == AiRequest.Tier.FAST ? fastChatModel : chatModel;
+
+        JSONObject jsonBody = new JSONObject();
+        StringBuilder systemText = new StringBuilder();
+        JSONArray contents = new JSONArray();
+
+        for (ChatMessage chatMessage : request.messages) {
+            // Gemini keeps the system prompt apart from the conversation
+            if (ChatMessage.ROLE_SYSTEM.equals(chatMessage.role)) {
+                if (systemText.length() > 0) systemText.append("\n");
+                systemText.append(chatMessage.text);
+                continue;
+            }
+
+            JSONArray parts = new JSONArray();
+            JSONObject textPart = new JSONObject();
+            textPart.put("text", chatMessage.text);
+            parts.put(textPart);
+
+            if (chatMessage.hasImage()) {
+                JSONObject inlineData = new JSONObject();
+                inlineData.put("mime_type", "image/jpeg");
+                inlineData.put("data", chatMessage.imageBase64);
+                JSONObject imagePart = new JSONObject();
+                imagePart.put("inline_data", inlineData);
+                parts.put(imagePart);
+            }
+
+            JSONObject content = new JSONObject();
+            // Gemini calls the assistant "model"
+            content.put("role", ChatMessage.ROLE_ASSISTANT.equals(chatMessage.role) ? "model" : "user");
+            content.put("parts", parts);
+            contents.put(content);
+        }
+
+        if (systemText.length() > 0) {
+            JSONObject systemPart = new JSONObject();
+            systemPart.put("text", systemText.toString());
+            JSONObject systemInstruction = new JSONObject();
+            systemInstruction.put("parts", new JSONArray().put(systemPart));
+            jsonBody.put("systemInstruction", systemInstruction);
+        }
+        jsonBody.put("contents", contents);
+
+        if (request.maxTokens > 0) {
+            JSONObject generationConfig = new JSONObject();
+            generationConfig.put("maxOutputTokens", request.maxTokens);
+            jsonBody.put("generationConfig", generationConfig);
+        }
+
+        return new Request.Builder()
+                .url(baseUrl + model + ":generateContent")
+                .addHeader("x-goog-api-key", apiKey)
+                .addHeader("Content-Type", "application/json")
+                .post(RequestBody.create(jsonBody.toString(), JSON))
+                .build();
+    }
+
+    @Override
+    public AiResponse parseResponse(String body) throws JSONException {
+        JSONObject json = new JSONObject(body);
+        JSONArray candidates = json.getJSONArray("candidates");
+        JSONArray parts = candidates.getJSONObject(0).getJSONObject("content").getJSONArray("parts");
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < parts.length(); i++) {
+            text.append(parts.getJSONObject(i).optString("text", ""));
+        }
+
+        JSONObject usage = json.optJSONObject("usageMetadata");
+        int promptTokens = usage != null ? usage.optInt("promptTokenCount", -1) : -1;
+        int completionTokens = usage != null ? usage.optInt("candidatesTokenCount", -1) : -1;
+
+        return new AiResponse(text.toString().trim(), getName(), json.optString("modelVersion", chatModel),
+                promptTokens, completionTokens);
+    }
+}
@@ -0,0 +1,115 @@
+package com.inclusive.assist;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * Groq (OpenAI-compatible chat completions API).
+ */
+public class GroqProvider implements AiProvider {
+
+    public static final String DEFAULT_URL = "https://api.groq.com/openai/v1/chat/completions";
+    public static final String CHAT_MODEL = "llama-3.3-70b-versatile";
+    public static final String FAST_CHAT_MODEL = "llama-3.1-8b-instant";
+    public static final String VISION_MODEL = "meta-llama/llama-4-scout-17b-16e-instruct";
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final String url;
+    private final String apiKey;
+    private final String chatModel;
+    private final String fastChatModel;
+    private final String visionModel;
+
+    public GroqProvider(String url, String apiKey, String chatModel, String fastChatModel, String visionModel) {
+        this.url = url;
+        this.apiKey = apiKey;
+        this.chatModel = chatModel;
+        this.fastChatModel = fastChatModel;
+        this.visionModel = visionModel;
+    }
+
+    @Override
+    public String getName() {
+        return "groq";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        // BuildConfig holds the string "null" when the key is missing from local.properties
+        return apiKey != null && !apiKey.isEmpty() && !apiKey.equals("null");
+    }
+
+    @Override
+    public boolean supportsVision() {
+        return visionModel != null;
+    }
+
+    @Override
+    public Request buildRequest(AiRequest request) throws JSONException {
+        JSONObject jsonBody = new JSONObject();
+        jsonBody.put("model", modelFor(request));
+        if (request.maxTokens > 0) {
+            jsonBody.put("max_tokens", request.maxTokens);
+        }
+
+        JSONArray messages = new JSONArray();
+        for (ChatMessage chatMessage : request.messages) {
+            JSONObject message = new JSONObject();
+            message.put("role", chatMessage.role);
+
+            if (chatMessage.hasImage()) {
+                // Content array with text and image
+                JSONArray contentArray = new JSONArray();
+
+                JSONObject textContent = new JSONObject();
+                textContent.put("type", "text");
+                textContent.put("text", chatMessage.text);
+                contentArray.put(textContent);
+
+                JSONObject imageContent = new JSONObject();
+                imageContent.put("type", "image_url");
+                JSONObject imageUrl = new JSONObject();
+                imageUrl.put("url", "data:image/jpeg;base64," + chatMessage.imageBase64);
+                imageContent.put("image_url", imageUrl);
+                contentArray.put(imageContent);
+
+                message.put("content", contentArray);
+            } else {
+                message.put("content", chatMessage.text);
+            }
+            messages.put(message);
+        }
+        jsonBody.put("messages", messages);
+
+        return new Request.Builder()
+                .url(url)
+                .addHeader("Authorization", "Bearer " + apiKey)
+                .addHeader("Content-Type", "application/json")
+                .post(RequestBody.create(jsonBody.toString(), JSON))
+                .build();
+    }
+
+    private String modelFor(AiRequest request) {
+        if (request.hasImage()) return visionModel;
+        return request.tier == AiRequest.Tier.FAST ? fastChatModel : chatModel;
+    }
+
+    @Override
+    public AiResponse parseResponse(String body) throws JSONException {
+        JSONObject json = new JSONObject(body);
+        JSONArray choices = json.getJSONArray("choices");
+        String text = choices.getJSONObject(0).getJSONObject("message").getString("content");
+
+        JSONObject usage = json.optJSONObject("usage");
+        int promptTokens = usage != null ? usage.optInt("prompt_tokens", -1) : -1;
+        int completionTokens = usage != null ? usage.optInt("completion_tokens", -1) : -1;
+
+        return new AiResponse(text, getName(), json.optString("model", chatModel), promptTokens, completionTokens);
+    }
+}
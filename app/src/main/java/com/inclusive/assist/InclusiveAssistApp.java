@@ -0,0 +1,15 @@
+package com.inclusive.assist;
+
+import android.app.Application;
+
+/**
+ * App entry point. Starts the shared speech engine before the first screen opens.
+ */
+public class InclusiveAssistApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        SpeechService.init(this);
+    }
+}
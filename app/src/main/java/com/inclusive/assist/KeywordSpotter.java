@@ -0,0 +1,300 @@
+package com.inclusive.assist;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline wake word by template matching.
+ *
+ * The user records the wake word a few times (enrollment); each recording becomes a sequence
+ * of MFCC frames. While listening, a cheap energy gate finds short bursts of speech, and only
+ * when a burst ends is it compared to the templates with DTW (dynamic time warping, so saying
+ * it faster or slower still matches). Silence costs one sum of squares per 10ms frame; the
+ * FFT runs only around sound, and DTW once per burst.
+ */
+public class KeywordSpotter {
+
+    private static final int FILE_MAGIC = 0x4b575331; // "KWS1"
+
+    private static final float SPEECH_RATIO = 4f;     // ~6dB over the noise floor
+    private static final float FEATURE_RATIO = 2f;    // Quieter frames around speech still get MFCCs
+    private static final float MIN_ENERGY = 2000f;    // Below this it's silence whatever the floor says
+    private static final int PREROLL_FRAMES = 5;
+    private static final int HANGOVER_FRAMES = 20;    // 200ms of quiet ends a burst
+    private static final int MIN_SPEECH_FRAMES = 15;  // 150ms
+    private static final int MAX_FRAMES = 200;        // 2s; longer is a sentence, not a wake word
+    private static final float DEFAULT_THRESHOLD = 25f;
+    private static final float THRESHOLD_MARGIN = 1.3f;
+
+    private final List<float[][]> templates;
+    private final float threshold;
+    private final Mfcc mfcc = new Mfcc();
+
+    // Streaming state
+    private short[] buffer = new short[Mfcc.FRAME * 4];
+    private int buffered = 0;
+    private float noiseFloor = -1;
+    private final ArrayDeque<float[]> preroll = new ArrayDeque<>();
+    private List<float[]> segment; // null = not in a burst
+    private int speechFrames;
+    private int silentRun;
+    private float lastDistance = Float.NaN;
+
+    // --- STATS ---
+    private long frames = 0;
+    private long featureFrames = 0;
+    private int bursts = 0;
+    private int hits = 0;
+
+    public KeywordSpotter(List<float[][]> templates) {
+        this(templates, thresholdFor(templates));
+    }
+
+    public KeywordSpotter(List<float[][]> templates, float threshold) {
+        this.templates = new ArrayList<>(templates);
+        this.threshold = threshold;
+    }
+
+    /** Accept a burst if it is about as close to a template as the templates are to each other. */
+    static float thresholdFor(List<float[][]> templates) {
+        float worst = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            for (int j = i + 1; j < templates.size(); j++) {
+                worst = Math.max(worst, dtw(templates.get(i), templates.get(j)));
+            }
+        }
+        return worst > 0 ? worst * THRESHOLD_MARGIN : DEFAULT_THRESHOLD;
+    }
+
+    /** Feed 16 kHz mono PCM. Returns true if the wake word ended somewhere in these samples. */
+    public boolean feed(short[] pcm, int length) {
+        if (buffered + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffered + length + Mfcc.FRAME);
+        }
+        System.arraycopy(pcm, 0, buffer, buffered, length);
+        buffered += length;
+
+        boolean heard = false;
+        int offset = 0;
+        while (buffered - offset >= Mfcc.FRAME) {
+            if (processFrame(buffer, offset)) heard = true;
+            offset += Mfcc.HOP;
+        }
+        // Keep the partial frame for next time
+        System.arraycopy(buffer, offset, buffer, 0, buffered - offset);
+        buffered -= offset;
+        return heard;
+    }
+
+    private boolean processFrame(short[] pcm, int offset) {
+        frames++;
+        float energy = Mfcc.energy(pcm, offset);
+        if (noiseFloor < 0) noiseFloor = Math.max(energy, MIN_ENERGY / SPEECH_RATIO);
+        boolean speech = energy > noiseFloor * SPEECH_RATIO && energy > MIN_ENERGY;
+
+        float[] features = null;
+        if (segment != null || energy > noiseFloor * FEATURE_RATIO) {
+            features = new float[Mfcc.COEFFS];
+            mfcc.compute(pcm, offset, features);
+            featureFrames++;
+        }
+
+        if (segment == null) {
+            if (!speech) {
+                // Follow the background slowly upward, drop to quieter levels at once
+                noiseFloor = energy < noiseFloor ? Math.max(energy, 1f) : noiseFloor + 0.02f * (energy - noiseFloor);
+                preroll.add(features != null ? features : new float[0]);
+                if (preroll.size() > PREROLL_FRAMES) preroll.poll();
+                return false;
+            }
+            segment = new ArrayList<>();
+            for (float[] f : preroll) {
+                if (f.length > 0) segment.add(f);
+            }
+            preroll.clear();
+            speechFrames = 0;
+            silentRun = 0;
+        }
+
+        segment.add(features);
+        if (speech) {
+            speechFrames++;
+            silentRun = 0;
+        } else {
+            silentRun++;
+        }
+
+        if (segment.size() > MAX_FRAMES) {
+            segment = null; // Someone talking, not a wake word
+            return false;
+        }
+        if (silentRun < HANGOVER_FRAMES) return false;
+
+        // Burst over: drop most of the trailing quiet and compare
+        List<float[]> burst = segment.subList(0, segment.size() - HANGOVER_FRAMES + 3);
+        segment = null;
+        if (speechFrames < MIN_SPEECH_FRAMES) return false;
+        bursts++;
+        if (matches(burst.toArray(new float[0][]))) {
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matches(float[][] burst) {
+        normalize(burst);
+        float best = Float.MAX_VALUE;
+        for (float[][] template : templates) {
+            // Way off in length can't be the same word
+            if (burst.length > template.length * 2 || template.length > burst.length * 2) continue;
+            best = Math.min(best, dtw(burst, template));
+        }
+        lastDistance = best;
+        return best < threshold;
+    }
+
+    /** Clear the stream (e.g. after handing the mic to the recognizer). */
+    public void reset() {
+        buffered = 0;
+        segment = null;
+        preroll.clear();
+    }
+
+    // --- ENROLLMENT ---
+
+    /**
+     * A template from one recording of the wake word: the loud part, trimmed, as MFCC frames.
+     * Returns null if nothing was said.
+     */
+    public static float[][] templateFrom(short[] pcm, int length) {
+        int count = (length - Mfcc.FRAME) / Mfcc.HOP + 1;
+        if (count <= 0) return null;
+        float[] energies = new float[count];
+        for (int i = 0; i < count; i++) energies[i] = Mfcc.energy(pcm, i * Mfcc.HOP);
+
+        // Quietest 10% of the recording is the background
+        float[] sorted = energies.clone();
+        Arrays.sort(sorted);
+        float floor = Math.max(sorted[count / 10], MIN_ENERGY / SPEECH_RATIO);
+        int first = -1, last = -1;
+        for (int i = 0; i < count; i++) {
+            if (energies[i] > floor * SPEECH_RATIO && energies[i] > MIN_ENERGY) {
+                if (first < 0) first = i;
+                last = i;
+            }
+        }
+        if (first < 0 || last - first + 1 < MIN_SPEECH_FRAMES) return null;
+        first = Math.max(0, first - 2);
+        last = Math.min(count - 1, last + 2);
+
+        Mfcc mfcc = new Mfcc();
+        float[][] template = new float[last - first + 1][Mfcc.COEFFS];
+        for (int i = first; i <= last; i++) mfcc.compute(pcm, i * Mfcc.HOP, template[i - first]);
+        normalize(template);
+        return template;
+    }
+
+    /** Cepstral mean normalization: removes the microphone/room colouring. */
+    static void normalize(float[][] frames) {
+        if (frames.length == 0) return;
+        for (int c = 0; c < Mfcc.COEFFS; c++) {
+            float mean = 0;
+            for (float[] f : frames) mean += f[c];
+            mean /= frames.length;
+            for (float[] f : frames) f[c] -= mean;
+        }
+    }
+
+    /** DTW distance per step, within a band around the diagonal. */
+    static float dtw(float[][] a, float[][] b) {
+        int n = a.length, m = b.length;
+        int band = Math.max(Math.abs(n - m), Math.max(n, m) / 3) + 1;
+        float[] prev = new float[m + 1];
+        float[] cur = new float[m + 1];
+        Arrays.fill(prev, Float.MAX_VALUE);
+        prev[0] = 0;
+        for (int i = 1; i <= n; i++) {
+            Arrays.fill(cur, Float.MAX_VALUE);
+            int center = (int) ((long) i * m / n);
+            int from = Math.max(1, center - band), to = Math.min(m, center + band);
+            for (int j = from; j <= to; j++) {
+                float best = Math.min(prev[j - 1], Math.min(prev[j], cur[j - 1]));
+                if (best == Float.MAX_VALUE) continue;
+                cur[j] = best + distance(a[i - 1], b[j - 1]);
+            }
+            float[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        return prev[m] == Float.MAX_VALUE ? Float.MAX_VALUE : prev[m] / (n + m);
+    }
+
+    private static float distance(float[] x, float[] y) {
+        float sum = 0;
+        for (int c = 0; c < x.length; c++) {
+            float d = x[c] - y[c];
+            sum += d * d;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    // --- STORAGE ---
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeFloat(threshold);
+            out.writeInt(templates.size());
+            for (float[][] template : templates) {
+                out.writeInt(template.length);
+                for (float[] frame : template) {
+                    for (float v : frame) out.writeFloat(v);
+                }
+            }
+        }
+    }
+
+    /** Returns null if there is no (valid) saved wake word. */
+    public static KeywordSpotter load(File file) {
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC) return null;
+            float threshold = in.readFloat();
+            int count = in.readInt();
+            List<float[][]> templates = new ArrayList<>();
+            for (int t = 0; t < count; t++) {
+                float[][] template = new float[in.readInt()][Mfcc.COEFFS];
+                for (float[] frame : template) {
+                    for (int c = 0; c < Mfcc.COEFFS; c++) frame[c] = in.readFloat();
+                }
+                templates.add(template);
+            }
+            return templates.isEmpty() ? null : new KeywordSpotter(templates, threshold);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    public float getLastDistance() {
+        return lastDistance;
+    }
+
+    /** e.g. "frames=6000 mfcc=830 bursts=4 hits=1 lastDistance=14.2 threshold=18.9" */
+    public String getStatsSummary() {
+        return "frames=" + frames + " mfcc=" + featureFrames + " bursts=" + bursts + " hits=" + hits
+                + " lastDistance=" + lastDistance + " threshold=" + threshold;
+    }
+}
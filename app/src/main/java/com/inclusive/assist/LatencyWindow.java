@@ -0,0 +1,78 @@
+package com.inclusive.assist;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the last N request outcomes (latency + success/failure).
+ * Used to judge how healthy a provider or model is right now.
+ */
+public class LatencyWindow {
+
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int count = 0;
+    private int next = 0;
+    private int consecutiveFailures = 0;
+    private long lastFailureTime = 0;
+    private long lastRecordTime = 0;
+
+    public LatencyWindow(int size) {
+        latencies = new long[size];
+        failures = new boolean[size];
+    }
+
+    public synchronized void record(long latencyMs, boolean success) {
+        latencies[next] = latencyMs;
+        failures[next] = !success;
+        next = (next + 1) % latencies.length;
+        if (count < latencies.length) count++;
+        consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+        lastRecordTime = System.currentTimeMillis();
+        if (!success) lastFailureTime = lastRecordTime;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized int errorCount() {
+        int errors = 0;
+        for (int i = 0; i < count; i++) {
+            if (failures[i]) errors++;
+        }
+        return errors;
+    }
+
+    public synchronized double errorRate() {
+        return count == 0 ? 0 : (double) errorCount() / count;
+    }
+
+    public synchronized int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long lastFailureTime() {
+        return lastFailureTime;
+    }
+
+    public synchronized long lastRecordTime() {
+        return lastRecordTime;
+    }
+
+    /**
+     * Latency percentile (0-100) over the window, or -1 if empty.
+     * Failed requests count with the time they took (a timeout is slow, not fast).
+     */
+    public synchronized long percentile(double p) {
+        if (count == 0) return -1;
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    /** e.g. "n=12 err=1 p50=820ms p95=1500ms" */
+    public synchronized String getSummary() {
+        return "n=" + count + " err=" + errorCount() + " p50=" + percentile(50) + "ms p95=" + percentile(95) + "ms";
+    }
+}
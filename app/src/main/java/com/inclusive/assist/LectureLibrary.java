@@ -0,0 +1,77 @@
+package com.inclusive.assist;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The search index over every saved lecture, shared by the app.
+ *
+ * Built once from the transcripts on disk, then kept up to date as captions arrive.
+ * Everything touching the index runs on one background thread, in order, so a search
+ * queued after a caption always sees it and the UI thread never waits on the build.
+ */
+public class LectureLibrary {
+
+    public interface SearchCallback {
+        /** Background thread: post to the UI yourself. */
+        void onResults(String query, List<TranscriptIndex.Hit> hits);
+    }
+
+    private static LectureLibrary instance;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final TranscriptIndex index = new TranscriptIndex();
+    private final Map<String, Integer> nextSegment = new HashMap<>(); // Worker thread only
+
+    // --- STATS ---
+    private volatile long buildMs = -1;
+    private final LatencyWindow queryLatency = new LatencyWindow(50);
+
+    public static synchronized LectureLibrary get(File lecturesRoot) {
+        if (instance == null) instance = new LectureLibrary(lecturesRoot);
+        return instance;
+    }
+
+    private LectureLibrary(File root) {
+        worker.execute(() -> {
+            long start = System.currentTimeMillis();
+            for (File lecture : TranscriptStore.lectures(root)) {
+                List<TranscriptStore.Segment> segments = TranscriptStore.read(lecture);
+                for (int i = 0; i < segments.size(); i++) addNow(lecture.getName(), i, segments.get(i));
+            }
+            buildMs = System.currentTimeMillis() - start;
+        });
+    }
+
+    /** A caption was just saved as segment number segmentIndex of the lecture. */
+    public void add(String lecture, int segmentIndex, TranscriptStore.Segment segment) {
+        worker.execute(() -> addNow(lecture, segmentIndex, segment));
+    }
+
+    private void addNow(String lecture, int segmentIndex, TranscriptStore.Segment segment) {
+        // The first build may already have read this line from disk
+        Integer next = nextSegment.get(lecture);
+        if (next != null && segmentIndex < next) return;
+        index.add(lecture, segmentIndex, segment.startMs, segment.text);
+        nextSegment.put(lecture, segmentIndex + 1);
+    }
+
+    public void search(String query, int limit, SearchCallback callback) {
+        worker.execute(() -> {
+            long start = System.nanoTime();
+            List<TranscriptIndex.Hit> hits = index.search(query, limit);
+            queryLatency.record((System.nanoTime() - start) / 1_000_000, true);
+            callback.onResults(query, hits);
+        });
+    }
+
+    public String getStatsSummary() {
+        return String.format(Locale.US, "build=%dms segments=%d terms=%d query %s",
+                buildMs, index.getSegmentCount(), index.getTermCount(), queryLatency.getSummary());
+    }
+}
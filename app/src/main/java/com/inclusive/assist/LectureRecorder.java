@@ -0,0 +1,251 @@
+package com.inclusive.assist;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves lecture audio next to the transcript, so a caption can be checked against what was said.
+ *
+ * Takes the caption mic's PCM (CaptionEngine.AudioTap), encodes it to AAC with MediaCodec on its
+ * own thread and writes 2-minute .m4a chunks into the lecture folder. Each finished chunk goes
+ * into the AudioTimeline with its start/end on the caption clock. Memory is a fixed pool of
+ * blocks: if the encoder falls behind, audio is dropped (and counted) instead of piling up.
+ */
+public class LectureRecorder implements CaptionEngine.AudioTap {
+
+    private static final String TAG = "LectureRecorder";
+    private static final int SAMPLE_RATE = 16000;
+    private static final int BIT_RATE = 32000;                 // ~14 MB per hour, fine for speech
+    private static final long CHUNK_MS = 2 * 60 * 1000L;       // A crash loses at most the open chunk
+    private static final int BLOCK_SAMPLES = SAMPLE_RATE / 10; // 100ms, same as the mic reads
+    private static final int BLOCKS = 30;                      // 3s of backlog at most
+    private static final long GAP_MS = 200;                    // Bigger hole in the audio = new chunk
+
+    private static class Block {
+        final short[] pcm = new short[BLOCK_SAMPLES];
+        int length;
+        long startMs;
+    }
+
+    /** Where a chunk starts, in encoder time (pts) and on the caption clock. */
+    private static class Boundary {
+        final long ptsUs;
+        final long startMs;
+        final String file;
+
+        Boundary(long ptsUs, long startMs) {
+            this.ptsUs = ptsUs;
+            this.startMs = startMs;
+            this.file = "audio-" + startMs + ".m4a";
+        }
+    }
+
+    private final File dir;
+    private final ArrayBlockingQueue<Block> free = new ArrayBlockingQueue<>(BLOCKS);
+    private final ArrayBlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS);
+    private volatile boolean running = false;
+
+    // Encoder thread only
+    private MediaCodec codec;
+    private MediaFormat outputFormat;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    private final ArrayDeque<Boundary> boundaries = new ArrayDeque<>(); // Fed in, not yet out of the encoder
+    private long samplesIn = 0;
+    private long inputChunkStartMs = -1;
+    private long nextInputMs = -1;
+    private MediaMuxer muxer;
+    private int track;
+    private Boundary chunk;
+    private long chunkEndMs;
+
+    // --- STATS ---
+    private volatile long droppedMs = 0;
+    private volatile long encodedBytes = 0;
+    private volatile int chunks = 0;
+
+    public LectureRecorder(File lectureDir) {
+        this.dir = lectureDir;
+        for (int i = 0; i < BLOCKS; i++) free.add(new Block());
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        new Thread(this::encodeLoop, "LectureEncoder").start();
+    }
+
+    /** Stops taking audio. The encoder thread finishes the queue and closes the last chunk by itself. */
+    public void stop() {
+        running = false;
+    }
+
+    // --- MIC THREAD ---
+    @Override
+    public void onAudio(short[] pcm, int length, long startMs) {
+        if (!running) return;
+        for (int offset = 0; offset < length; offset += BLOCK_SAMPLES) {
+            int n = Math.min(BLOCK_SAMPLES, length - offset);
+            Block block = free.poll();
+            if (block == null) {
+                droppedMs += n * 1000L / SAMPLE_RATE; // Never stall the mic
+                continue;
+            }
+            System.arraycopy(pcm, offset, block.pcm, 0, n);
+            block.length = n;
+            block.startMs = startMs + offset * 1000L / SAMPLE_RATE;
+            filled.offer(block);
+        }
+    }
+
+    // --- ENCODER THREAD ---
+    private void encodeLoop() {
+        try {
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, SAMPLE_RATE, 1);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, BLOCK_SAMPLES * 2);
+            codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "No AAC encoder", e);
+            running = false;
+            if (codec != null) codec.release();
+            return;
+        }
+
+        try {
+            while (running || !filled.isEmpty()) {
+                Block block = filled.poll(100, TimeUnit.MILLISECONDS);
+                if (block == null) continue;
+                encode(block);
+                free.offer(block);
+            }
+            queueInput(null, 0, true);
+            drain(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Encoding failed", e);
+        } finally {
+            try {
+                closeChunk();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Last chunk lost", e);
+            }
+            try {
+                codec.stop();
+            } catch (RuntimeException ignored) {
+                // Already in an error state
+            }
+            codec.release();
+            running = false;
+            Log.d(TAG, getStatsSummary());
+        }
+    }
+
+    private void encode(Block block) throws IOException {
+        // New file every CHUNK_MS, and after a hole, so file offset = caption time - chunk start
+        boolean gap = nextInputMs >= 0 && Math.abs(block.startMs - nextInputMs) > GAP_MS;
+        if (inputChunkStartMs < 0 || gap || block.startMs - inputChunkStartMs >= CHUNK_MS) {
+            boundaries.add(new Boundary(samplesIn * 1_000_000L / SAMPLE_RATE, block.startMs));
+            inputChunkStartMs = block.startMs;
+        }
+        nextInputMs = block.startMs + block.length * 1000L / SAMPLE_RATE;
+        queueInput(block.pcm, block.length, false);
+    }
+
+    private void queueInput(short[] pcm, int length, boolean endOfStream) throws IOException {
+        int offset = 0;
+        while (true) {
+            int index = codec.dequeueInputBuffer(10_000);
+            if (index < 0) {
+                drain(false); // Encoder full: make room
+                continue;
+            }
+            ByteBuffer in = codec.getInputBuffer(index);
+            in.clear();
+            int n = Math.min(length - offset, in.remaining() / 2);
+            if (n > 0) in.order(ByteOrder.nativeOrder()).asShortBuffer().put(pcm, offset, n);
+            long ptsUs = samplesIn * 1_000_000L / SAMPLE_RATE;
+            samplesIn += n;
+            offset += n;
+            boolean last = offset >= length;
+            codec.queueInputBuffer(index, 0, n * 2, ptsUs, endOfStream && last ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+            drain(false);
+            if (last) return;
+        }
+    }
+
+    private void drain(boolean untilEndOfStream) throws IOException {
+        int idle = 0;
+        while (true) {
+            int index = codec.dequeueOutputBuffer(info, untilEndOfStream ? 10_000 : 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!untilEndOfStream || ++idle > 100) return;
+                continue;
+            }
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                outputFormat = codec.getOutputFormat();
+                continue;
+            }
+            if (index < 0) continue;
+
+            ByteBuffer out = codec.getOutputBuffer(index);
+            boolean endOfStream = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) write(out);
+            codec.releaseOutputBuffer(index, false);
+            if (endOfStream) return;
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        long ptsUs = info.presentationTimeUs;
+        while (!boundaries.isEmpty() && boundaries.peek().ptsUs <= ptsUs) {
+            closeChunk();
+            openChunk(boundaries.poll());
+        }
+        if (muxer == null) return; // Output before the first boundary: priming, nothing to keep
+
+        long frameUs = 1024 * 1_000_000L / SAMPLE_RATE; // One AAC frame
+        chunkEndMs = chunk.startMs + (ptsUs - chunk.ptsUs + frameUs) / 1000;
+        info.presentationTimeUs = ptsUs - chunk.ptsUs; // Each file starts at 0
+        muxer.writeSampleData(track, data, info);
+        encodedBytes += info.size;
+    }
+
+    private void openChunk(Boundary boundary) throws IOException {
+        muxer = new MediaMuxer(new File(dir, boundary.file).getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        track = muxer.addTrack(outputFormat);
+        muxer.start();
+        chunk = boundary;
+        chunkEndMs = boundary.startMs;
+    }
+
+    private void closeChunk() throws IOException {
+        if (muxer == null) return;
+        MediaMuxer closing = muxer;
+        muxer = null;
+        closing.stop();
+        closing.release();
+        chunks++;
+        // Listed only now that the file is playable
+        AudioTimeline.append(dir, new AudioTimeline.Chunk(chunk.file, chunk.startMs, chunkEndMs));
+    }
+
+    public String getStatsSummary() {
+        return String.format(Locale.US, "chunks=%d encoded=%dKB dropped=%dms", chunks, encodedBytes / 1024, droppedMs);
+    }
+}
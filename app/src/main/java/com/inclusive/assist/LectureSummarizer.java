@@ -0,0 +1,367 @@
+package com.inclusive.assist;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes a lecture while it is still going (map-reduce).
+ *
+ * Captions are collected into chunks of about CHUNK_WORDS words. As soon as a chunk is full
+ * it is summarized in the background (map, small fast model). At the end only the short chunk
+ * summaries are merged (reduce, large model), so the final summary takes one request instead
+ * of one huge one. Chunk summaries are saved in the lecture folder (summary-chunks.tsv), so
+ * reopening a lecture doesn't send them again; the final one goes to summary.txt. A chunk whose
+ * request failed is saved with an empty summary: on a reopen its captions, fed again, are sent
+ * once more under the same part number.
+ *
+ * There is one summarizer per lecture folder in the process (forLecture()), so a screen that is
+ * recreated (rotation) keeps feeding the same open chunk instead of reloading the file while
+ * chunk requests are still in flight. A merge is only sent when a chunk changed since the last one.
+ */
+public class LectureSummarizer {
+
+    public interface SummaryCallback {
+        /** OkHttp or caller thread. */
+        void onSummary(String summary);
+
+        void onError(String message);
+    }
+
+    private static final int CHUNK_WORDS = 600;      // ~4 minutes of speech
+    private static final int CHUNK_MAX_TOKENS = 200;
+    private static final int FINAL_MAX_TOKENS = 600;
+    private static final long CHUNK_BUDGET_MS = 20000;
+    private static final long FINAL_BUDGET_MS = 30000;
+    private static final String CHUNKS_FILE = "summary-chunks.tsv";
+    private static final String SUMMARY_FILE = "summary.txt";
+
+    private static final String CHUNK_PROMPT =
+            "You summarize one part of a lecture from live captions, which may contain recognition errors. "
+                    + "Write 3 to 5 short bullet points with the key ideas, definitions, dates, deadlines and homework. "
+                    + "No introduction.";
+    private static final String FINAL_PROMPT =
+            "These are bullet-point notes from consecutive parts of one lecture, in order. Merge them into one "
+                    + "summary for a student: a two-sentence overview, then the key points, then any dates, deadlines "
+                    + "or homework. Drop repeats.";
+
+    /** A failed chunk from before a reopen, collected again as its captions are fed. */
+    private static class Retry {
+        final int index;
+        final int first;
+        final int last;
+        final StringBuilder text = new StringBuilder();
+        int words = 0;
+
+        Retry(int index, int first, int last) {
+            this.index = index;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    /** Per-chunk cost, for the stats. */
+    private static class ChunkStat {
+        final int words;
+        final long latencyMs;
+        final int promptTokens;
+        final int completionTokens;
+
+        ChunkStat(int words, long latencyMs, int promptTokens, int completionTokens) {
+            this.words = words;
+            this.latencyMs = latencyMs;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+        }
+    }
+
+    private static final Map<String, LectureSummarizer> live = new HashMap<>(); // Folder path -> summarizer
+
+    private final ProviderRouter router;
+    private final File dir;
+
+    // Guarded by this
+    private final TreeMap<Integer, String> summaries = new TreeMap<>(); // Chunk index -> summary
+    private final StringBuilder open = new StringBuilder();
+    private int openWords = 0;
+    private int openFirstSegment = -1;
+    private int nextSegment = 0;   // Segments before this are in a chunk already
+    private int nextChunk = 0;
+    private int pending = 0;       // Chunk requests in flight
+    private int failedChunks = 0;
+    private boolean mergeWanted = false; // finish() was called: merge once the chunks are in
+    private int version = 0;             // Bumped whenever a chunk summary is added
+    private int mergedVersion = -1;      // version that summary.txt was made from
+    private String merged;               // And its text
+    private final List<SummaryCallback> waiting = new ArrayList<>();
+    private final List<Retry> retries = new ArrayList<>();
+
+    // --- STATS ---
+    private final LatencyWindow chunkLatency = new LatencyWindow(50);
+    private final List<ChunkStat> chunkStats = new ArrayList<>();
+    private long finalLatencyMs = -1;
+    private int finalTokens = -1;
+
+    /** The summarizer for this lecture folder: the live one if a screen already has it, else a new one. */
+    public static synchronized LectureSummarizer forLecture(ProviderRouter router, File lectureDir) {
+        LectureSummarizer summarizer = live.get(lectureDir.getPath());
+        if (summarizer == null) {
+            summarizer = new LectureSummarizer(router, lectureDir);
+            live.put(lectureDir.getPath(), summarizer);
+        }
+        return summarizer;
+    }
+
+    public LectureSummarizer(ProviderRouter router, File lectureDir) {
+        this.router = router;
+        this.dir = lectureDir;
+        loadChunks();
+    }
+
+    /** The lecture is closed for good. Requests in flight still finish and save. */
+    public void release() {
+        synchronized (LectureSummarizer.class) {
+            if (live.get(dir.getPath()) == this) live.remove(dir.getPath());
+        }
+    }
+
+    /** A new caption, index as returned by TranscriptStore.append(). */
+    public synchronized void add(int segmentIndex, String text) {
+        if (segmentIndex < nextSegment) {
+            // Already summarized before a reopen, unless that chunk's request failed
+            retry(segmentIndex, text);
+            return;
+        }
+        if (openFirstSegment < 0) openFirstSegment = segmentIndex;
+        open.append(text).append(". ");
+        openWords += text.split("\\s+").length;
+        nextSegment = segmentIndex + 1;
+        if (openWords >= CHUNK_WORDS) closeChunk();
+    }
+
+    /**
+     * Lecture over (or the user asked): summarize what's left and merge everything.
+     * The callback runs once the last chunk is in; null just saves summary.txt.
+     */
+    public synchronized void finish(SummaryCallback callback) {
+        if (openWords > 0) closeChunk();
+        for (Retry retry : retries) {
+            // Transcript ended before the failed chunk's last caption: send what came back
+            if (retry.words > 0) send(retry.index, retry.text.toString(), retry.words, retry.first, retry.last);
+        }
+        retries.clear();
+        if (callback != null) waiting.add(callback);
+        mergeWanted = true;
+        if (pending == 0) reduce();
+    }
+
+    private void retry(int segmentIndex, String text) {
+        for (int i = 0; i < retries.size(); i++) {
+            Retry retry = retries.get(i);
+            if (segmentIndex < retry.first || segmentIndex > retry.last) continue;
+            retry.text.append(text).append(". ");
+            retry.words += text.split("\\s+").length;
+            if (segmentIndex == retry.last) {
+                retries.remove(i);
+                send(retry.index, retry.text.toString(), retry.words, retry.first, retry.last);
+            }
+            return;
+        }
+    }
+
+    private void closeChunk() {
+        int index = nextChunk++;
+        String text = open.toString();
+        int words = openWords;
+        int first = openFirstSegment;
+        int last = nextSegment - 1;
+        open.setLength(0);
+        openWords = 0;
+        openFirstSegment = -1;
+        send(index, text, words, first, last);
+    }
+
+    private void send(int index, String text, int words, int first, int last) {
+        pending++;
+        List<ChatMessage> messages = Arrays.asList(
+                ChatMessage.system(CHUNK_PROMPT),
+                ChatMessage.user("Part " + (index + 1) + " of the lecture:\n" + text));
+        router.enqueue(new AiRequest(messages, CHUNK_MAX_TOKENS, AiRequest.Tier.FAST), CHUNK_BUDGET_MS, new ProviderRouter.Callback() {
+            @Override
+            public void onSuccess(AiResponse response) {
+                synchronized (LectureSummarizer.this) {
+                    summaries.put(index, response.text.trim());
+                    version++;
+                    chunkLatency.record(response.latencyMs, true);
+                    chunkStats.add(new ChunkStat(words, response.latencyMs, response.promptTokens, response.completionTokens));
+                    saveChunk(index, first, last, response.text.trim());
+                    chunkDone();
+                }
+            }
+
+            @Override
+            public void onFailure(int lastHttpCode, IOException lastError) {
+                synchronized (LectureSummarizer.this) {
+                    // Keep a trimmed slice of the raw text, so the merge still covers this part
+                    failedChunks++;
+                    chunkLatency.record(CHUNK_BUDGET_MS, false);
+                    summaries.put(index, "(raw captions) " + text.substring(0, Math.min(text.length(), 600)));
+                    version++;
+                    saveChunk(index, first, last, ""); // Empty = failed: sent again after a reopen
+                    chunkDone();
+                }
+            }
+        });
+    }
+
+    private void chunkDone() {
+        pending--;
+        if (pending == 0 && mergeWanted) reduce();
+    }
+
+    private void reduce() {
+        List<SummaryCallback> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        mergeWanted = false;
+        if (summaries.isEmpty()) {
+            for (SummaryCallback callback : callbacks) callback.onError("Nothing to summarize yet");
+            return;
+        }
+        if (mergedVersion == version && merged != null) {
+            // Nothing new since the last merge: don't pay for the large model again
+            for (SummaryCallback callback : callbacks) callback.onSummary(merged);
+            return;
+        }
+        int mergingVersion = version;
+        if (summaries.size() == 1) {
+            // Short lecture: the chunk summary is the summary
+            delivered(mergingVersion, summaries.firstEntry().getValue());
+            deliver(summaries.firstEntry().getValue(), callbacks);
+            return;
+        }
+
+        StringBuilder notes = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : summaries.entrySet()) {
+            notes.append("Part ").append(entry.getKey() + 1).append(":\n").append(entry.getValue()).append("\n\n");
+        }
+        List<ChatMessage> messages = Arrays.asList(ChatMessage.system(FINAL_PROMPT), ChatMessage.user(notes.toString()));
+        router.enqueue(new AiRequest(messages, FINAL_MAX_TOKENS, AiRequest.Tier.LARGE), FINAL_BUDGET_MS, new ProviderRouter.Callback() {
+            @Override
+            public void onSuccess(AiResponse response) {
+                synchronized (LectureSummarizer.this) {
+                    finalLatencyMs = response.latencyMs;
+                    finalTokens = response.promptTokens + response.completionTokens;
+                    delivered(mergingVersion, response.text.trim());
+                }
+                deliver(response.text.trim(), callbacks);
+            }
+
+            @Override
+            public void onFailure(int lastHttpCode, IOException lastError) {
+                for (SummaryCallback callback : callbacks) callback.onError("Could not merge the summary, check the connection");
+            }
+        });
+    }
+
+    private void delivered(int fromVersion, String summary) {
+        // A chunk that landed while the merge was out keeps the next one from being skipped
+        if (fromVersion >= mergedVersion) {
+            mergedVersion = fromVersion;
+            merged = summary;
+        }
+    }
+
+    private void deliver(String summary, List<SummaryCallback> callbacks) {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, SUMMARY_FILE)), StandardCharsets.UTF_8)) {
+            out.write(summary);
+        } catch (IOException e) {
+            // Still show it
+        }
+        for (SummaryCallback callback : callbacks) callback.onSummary(summary);
+    }
+
+    // --- FILES ---
+    private void saveChunk(int index, int firstSegment, int lastSegment, String summary) {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, CHUNKS_FILE), true), StandardCharsets.UTF_8)) {
+            out.write(index + "\t" + firstSegment + "\t" + lastSegment + "\t" + TranscriptStore.escape(summary) + "\n");
+        } catch (IOException e) {
+            // Only costs a resend after a reopen
+        }
+    }
+
+    private void loadChunks() {
+        File file = new File(dir, CHUNKS_FILE);
+        if (!file.exists()) return;
+        Map<Integer, Retry> failed = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length < 4) continue;
+                try {
+                    int index = Integer.parseInt(parts[0]);
+                    int first = Integer.parseInt(parts[1]);
+                    int last = Integer.parseInt(parts[2]);
+                    failed.remove(index); // A later line for the same chunk is a retry's result
+                    if (parts[3].isEmpty()) {
+                        failed.put(index, new Retry(index, first, last));
+                    } else {
+                        summaries.put(index, TranscriptStore.unescape(parts[3]));
+                    }
+                    nextChunk = Math.max(nextChunk, index + 1);
+                    nextSegment = Math.max(nextSegment, last + 1);
+                } catch (NumberFormatException ignored) {
+                    // Torn line
+                }
+            }
+        } catch (IOException e) {
+            // Start over for what we couldn't read
+        }
+        retries.addAll(failed.values());
+        // summary.txt written after the last chunk was saved already covers them all
+        File summary = new File(dir, SUMMARY_FILE);
+        if (summary.exists() && summary.lastModified() >= file.lastModified()) {
+            merged = savedSummary(dir);
+            mergedVersion = version;
+        }
+    }
+
+    /** The last saved final summary of a lecture, or null. */
+    public static String savedSummary(File lectureDir) {
+        File file = new File(lectureDir, SUMMARY_FILE);
+        if (!file.exists()) return null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) sb.append(line).append('\n');
+            return sb.toString().trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized String getStatsSummary() {
+        int tokens = 0;
+        long words = 0;
+        for (ChunkStat stat : chunkStats) {
+            if (stat.promptTokens >= 0) tokens += stat.promptTokens;
+            if (stat.completionTokens >= 0) tokens += stat.completionTokens;
+            words += stat.words;
+        }
+        return String.format(Locale.US, "chunks=%d failed=%d words=%d chunkTokens=%d chunk %s | final %dms tokens=%d",
+                chunkStats.size(), failedChunks, words, tokens, chunkLatency.getSummary(), finalLatencyMs, finalTokens);
+    }
+}
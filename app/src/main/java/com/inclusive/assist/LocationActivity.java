@@ -10,7 +10,6 @@ import android.location.Geocoder;
 import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -34,7 +33,6 @@ import java.util.Locale;
 public class LocationActivity extends AppCompatActivity {
 
     private FusedLocationProviderClient fusedLocationClient;
-    private TextToSpeech tts;
     private TextView tvLocation;
     private EditText etEmergencyContact;
     private String currentAddress = "Locating...";
@@ -55,22 +53,17 @@ public class LocationActivity extends AppCompatActivity {
         // Load previously saved Emergency Number
         loadEmergencyNumber();
 
-        // 1. Initialize Voice
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-                checkPermissionsAndLocate();
-            }
-        });
-
-        // 2. Initialize Location Client
+        // 1. Initialize Location Client
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
-        // 3. Setup Buttons
+        // 2. Setup Buttons
         btnShare.setOnClickListener(v -> shareLocation());
         btnDestination.setOnClickListener(v -> startActivity(new Intent(this, DestinationActivity.class))); // NEW
         btnSaveContact.setOnClickListener(v -> saveEmergencyNumber());
         btnSOS.setOnClickListener(v -> triggerSOS());
+
+        // 3. Locate right away (the shared voice is already warm, no need to wait for it)
+        checkPermissionsAndLocate();
     }
 
     /**
@@ -176,7 +169,7 @@ public class LocationActivity extends AppCompatActivity {
             return;
         }
 
-        speak("Calling Emergency Contact and Sharing Location.");
+        SpeechService.get().speak("Calling Emergency Contact and Sharing Location.", UtteranceScheduler.Priority.EMERGENCY);
 
         // 1. WhatsApp Location Share (via Direct Link)
         try {
@@ -203,9 +196,7 @@ public class LocationActivity extends AppCompatActivity {
     }
 
     private void speak(String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
+        SpeechService.get().speak(text);
     }
 
     @Override
@@ -4,25 +4,28 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
-import android.speech.tts.TextToSpeech;
+import android.util.Log;
 import android.widget.Button;
-import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import java.util.ArrayList;
-import java.util.Locale;
+import androidx.lifecycle.Lifecycle;
+import java.util.EnumSet;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
 
-    TextToSpeech tts;
+    private static final String TAG = "MainActivity";
+
     Button btnBlind, btnDeaf, btnVoice;
-    private SpeechRecognizer speechRecognizer;
+    private VoiceMenuController voiceMenu;
+    // Everything this screen understands by voice (no SOS here, that's the blind menu)
+    private final VoiceCommandGrammar commands = VoiceCommandGrammar.forMenu(EnumSet.complementOf(
+            EnumSet.of(VoiceCommandGrammar.Command.SOS)));
     private static final int PERMISSION_REQUEST_CODE = 200;
-    private boolean isListeningForWakeWord = true;
+    private WakeWordListener wakeWord; // Hands-free: the recorded wake word opens voice commands
+    private boolean isNavigating = false; // A voice command opened another screen
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,29 +39,10 @@ public class MainActivity extends AppCompatActivity {
         Button btnQuick = findViewById(R.id.btnQuickMessages);
         btnVoice = findViewById(R.id.btnVoiceAssistant);
 
-        // 2. Setup Text to Speech
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-                speak("Welcome to Inclusive Assist. Please choose your mode or use Voice Assistant.");
-            }
-        });
-
-        // Initialize SpeechRecognizer
-        speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
+        speak("Welcome to Inclusive Assist. Please choose your mode or use Voice Assistant.");
 
-        // Update the RecognitionListener:
-        speechRecognizer.setRecognitionListener(new RecognitionListener() {
-            @Override
-            public void onReadyForSpeech(Bundle params) { Toast.makeText(MainActivity.this, "Listening...", Toast.LENGTH_SHORT).show(); }
-            @Override
-            public void onBeginningOfSpeech() {}
-            @Override
-            public void onRmsChanged(float rmsdB) {}
-            @Override
-            public void onBufferReceived(byte[] buffer) {}
-            @Override
-            public void onEndOfSpeech() {}
+        // Voice commands: listens as soon as the "Listening" prompt is over
+        voiceMenu = new VoiceMenuController(this, new VoiceMenuController.Listener() {
             @Override
             public void onError(int error) {
                  String message;
@@ -94,6 +78,7 @@ public class MainActivity extends AppCompatActivity {
                          message = "Error occurred";
                          break;
                  }
+                 if (!isNavigating) startWakeWord();
                  // Only speak if it's not a common "no speech" timeout which happens often in background
                  if (error != SpeechRecognizer.ERROR_SPEECH_TIMEOUT && error != SpeechRecognizer.ERROR_NO_MATCH) {
                      speak(message);
@@ -103,16 +88,24 @@ public class MainActivity extends AppCompatActivity {
                  }
             }
             @Override
-            public void onResults(Bundle results) {
-                ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null && !matches.isEmpty()) {
-                    processVoiceCommand(matches.get(0).toLowerCase());
-                }
+            public void onCommand(List<String> alternatives) {
+                processVoiceCommand(alternatives);
+                // A command that opened another screen leaves the mic alone (onResume restarts it)
+                if (!isNavigating) startWakeWord();
             }
+        });
+
+        wakeWord = new WakeWordListener(this, new WakeWordListener.Listener() {
             @Override
-            public void onPartialResults(Bundle partialResults) {}
+            public void onWakeWord() {
+                listen();
+            }
             @Override
-            public void onEvent(int eventType, Bundle params) {}
+            public void onEnrolled() {
+                if (!isNavigating && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                    startWakeWord();
+                }
+            }
         });
 
         // 3. Make the Blind Button work
@@ -148,84 +141,125 @@ public class MainActivity extends AppCompatActivity {
                 listen();
             }
         });
+
+        // 8. Long-press Voice Assistant to record the wake word
+        btnVoice.setOnLongClickListener(v -> {
+            if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                    != PackageManager.PERMISSION_GRANTED) {
+                ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, PERMISSION_REQUEST_CODE);
+            } else {
+                voiceMenu.cancel();
+                wakeWord.enroll();
+            }
+            return true;
+        });
     }
 
     private void listen() {
-        speak("Listening");
-        // Delay listening slightly so TTS doesn't overlap
-        btnVoice.postDelayed(() -> {
-             Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-             intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-             intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1);
-             speechRecognizer.startListening(intent);
-        }, 1000);
+        if (isNavigating) return;
+        // Hand the mic to the recognizer once the wake word thread has let go of it
+        wakeWord.stop(() -> {
+            if (!isNavigating && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                voiceMenu.listen();
+            }
+        });
     }
 
-    private void processVoiceCommand(String command) {
-        if (command.contains("visually") || command.contains("blind") || command.contains("impaired")) {
-            btnBlind.performClick();
-        } else if (command.contains("hearing") || command.contains("deaf")) {
-            btnDeaf.performClick();
-        } else if (command.contains("read") || command.contains("text")) {
-             speak("Opening Text Reader");
-             startActivity(new Intent(MainActivity.this, ReadTextActivity.class));
-        } else if (command.contains("currency") || command.contains("money")) {
-             speak("Opening Currency Checker");
-             startActivity(new Intent(MainActivity.this, CurrencyActivity.class));
-        } else if (command.contains("where") || command.contains("location")) {
-             startActivity(new Intent(MainActivity.this, LocationActivity.class));
-        } else if (command.contains("scene") || command.contains("describe")) {
-             speak("Opening Scene Description");
-             startActivity(new Intent(MainActivity.this, SceneDescriptionActivity.class));
-        } else if (command.contains("object") || command.contains("detect")) {
-             speak("Opening Object Detection");
-             startActivity(new Intent(MainActivity.this, BlindModeActivity.class));
-        } else if (command.contains("assistant") || command.contains("ai")) {
-             speak("Opening AI Assistant");
-             startActivity(new Intent(MainActivity.this, AIAssistantActivity.class));
-        } else if (command.contains("light")) {
-             speak("Opening Light Detector");
-             startActivity(new Intent(MainActivity.this, LightDetectorActivity.class));
-        } else if (command.contains("bus") || command.contains("route")) {
-             speak("Opening Bus Routes");
-             startActivity(new Intent(MainActivity.this, BusRouteActivity.class));
-        } else if (command.contains("quick") || command.contains("message")) {
-             speak("Opening Quick Messages");
-             startActivity(new Intent(MainActivity.this, QuickTextActivity.class));
-        } else if (command.contains("sound") || command.contains("alert")) {
-             speak("Opening Sound Alert");
-             startActivity(new Intent(MainActivity.this, SoundAlertActivity.class));
-        } else {
+    private void startWakeWord() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED) {
+            wakeWord.start();
+        }
+    }
+
+    private void processVoiceCommand(List<String> alternatives) {
+        VoiceCommandGrammar.Match match = commands.match(alternatives);
+        if (match == null) {
             speak("Command not understood.");
+            return;
+        }
+        Log.d(TAG, "Voice command: " + match);
+        isNavigating = true; // Every command but the fallback opens a screen
+        switch (match.command) {
+            case BLIND_MODE:
+                btnBlind.performClick();
+                break;
+            case DEAF_MODE:
+                btnDeaf.performClick();
+                break;
+            case READ_TEXT:
+                speak("Opening Text Reader");
+                startActivity(new Intent(MainActivity.this, ReadTextActivity.class));
+                break;
+            case CURRENCY:
+                speak("Opening Currency Checker");
+                startActivity(new Intent(MainActivity.this, CurrencyActivity.class));
+                break;
+            case LOCATION:
+                startActivity(new Intent(MainActivity.this, LocationActivity.class));
+                break;
+            case SCENE:
+                speak("Opening Scene Description");
+                startActivity(new Intent(MainActivity.this, SceneDescriptionActivity.class));
+                break;
+            case OBJECTS:
+                speak("Opening Object Detection");
+                startActivity(new Intent(MainActivity.this, BlindModeActivity.class));
+                break;
+            case ASSISTANT:
+                speak("Opening AI Assistant");
+                startActivity(new Intent(MainActivity.this, AIAssistantActivity.class));
+                break;
+            case LIGHT:
+                speak("Opening Light Detector");
+                startActivity(new Intent(MainActivity.this, LightDetectorActivity.class));
+                break;
+            case BUS:
+                speak("Opening Bus Routes");
+                startActivity(new Intent(MainActivity.this, BusRouteActivity.class));
+                break;
+            case QUICK_MESSAGES:
+                speak("Opening Quick Messages");
+                startActivity(new Intent(MainActivity.this, QuickTextActivity.class));
+                break;
+            case SOUND_ALERT:
+                speak("Opening Sound Alert");
+                startActivity(new Intent(MainActivity.this, SoundAlertActivity.class));
+                break;
+            default:
+                isNavigating = false;
+                speak("Command not understood.");
+                break;
         }
     }
     
-    // Override onResume not needed for click-to-speak
+    @Override
+    protected void onResume() {
+        super.onResume();
+        isNavigating = false;
+        startWakeWord();
+    }
     
     @Override
     protected void onPause() {
         super.onPause();
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
+        if (voiceMenu != null) {
+            voiceMenu.cancel();
         }
+        wakeWord.stop();
     }
 
     // Helper function to make speaking easier
     private void speak(String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
+        SpeechService.get().speak(text);
     }
 
     @Override
     protected void onDestroy() {
-        if (speechRecognizer != null) {
-            speechRecognizer.destroy();
-        }
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
+        if (voiceMenu != null) {
+            voiceMenu.destroy();
         }
+        Log.d(TAG, "Wake word: " + wakeWord.getStatsSummary());
         super.onDestroy();
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.inclusive.assist;
+
+/**
+ * Mel-frequency cepstral coefficients for 16 kHz speech, one frame at a time.
+ *
+ * 25ms frames (400 samples), Hamming window, 512-point FFT, 26 mel bands, 13 coefficients.
+ * Plain Java, no allocation per frame, so it can run on every mic buffer.
+ */
+public class Mfcc {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int FRAME = 400;  // 25ms
+    public static final int HOP = 160;    // 10ms
+    public static final int COEFFS = 13;
+
+    private static final int FFT = 512;
+    private static final int BANDS = 26;
+    private static final float PRE_EMPHASIS = 0.97f;
+
+    private final float[] window = new float[FRAME];
+    private final float[][] melFilters = new float[BANDS][FFT / 2 + 1];
+    private final float[][] dct = new float[COEFFS][BANDS];
+    private final float[] re = new float[FFT];
+    private final float[] im = new float[FFT];
+    private final float[] bandEnergy = new float[BANDS];
+
+    public Mfcc() {
+        for (int i = 0; i < FRAME; i++) {
+            window[i] = (float) (0.54 - 0.46 * Math.cos(2 * Math.PI * i / (FRAME - 1)));
+        }
+
+        // Triangular filters spaced evenly on the mel scale, 0 - 8000 Hz
+        double maxMel = toMel(SAMPLE_RATE / 2.0);
+        int[] bin = new int[BANDS + 2];
+        for (int i = 0; i < bin.length; i++) {
+            double hz = fromMel(maxMel * i / (BANDS + 1));
+            bin[i] = (int) Math.floor((FFT + 1) * hz / SAMPLE_RATE);
+        }
+        for (int b = 0; b < BANDS; b++) {
+            for (int k = bin[b]; k < bin[b + 1]; k++) {
+                melFilters[b][k] = (k - bin[b]) / (float) Math.max(1, bin[b + 1] - bin[b]);
+            }
+            for (int k = bin[b + 1]; k < bin[b + 2]; k++) {
+                melFilters[b][k] = (bin[b + 2] - k) / (float) Math.max(1, bin[b + 2] - bin[b + 1]);
+            }
+        }
+
+        for (int c = 0; c < COEFFS; c++) {
+            for (int b = 0; b < BANDS; b++) {
+                dct[c][b] = (float) Math.cos(Math.PI * c * (b + 0.5) / BANDS);
+            }
+        }
+    }
+
+    private static double toMel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+
+    private static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    /** Mean square of a frame of 16-bit samples (cheap, used to skip silence). */
+    public static float energy(short[] pcm, int offset) {
+        double sum = 0;
+        for (int i = 0; i < FRAME; i++) {
+            double s = pcm[offset + i];
+            sum += s * s;
+        }
+        return (float) (sum / FRAME);
+    }
+
+    /** MFCCs of the FRAME samples starting at offset, written into out[COEFFS]. */
+    public void compute(short[] pcm, int offset, float[] out) {
+        float prev = offset > 0 ? pcm[offset - 1] : pcm[offset];
+        for (int i = 0; i < FRAME; i++) {
+            float s = pcm[offset + i];
+            re[i] = (s - PRE_EMPHASIS * prev) * window[i];
+            prev = s;
+            im[i] = 0;
+        }
+        for (int i = FRAME; i < FFT; i++) {
+            re[i] = 0;
+            im[i] = 0;
+        }
+        fft(re, im);
+
+        for (int b = 0; b < BANDS; b++) {
+            float[] filter = melFilters[b];
+            double sum = 0;
+            for (int k = 0; k <= FFT / 2; k++) {
+                if (filter[k] != 0) sum += filter[k] * (re[k] * re[k] + im[k] * im[k]);
+            }
+            bandEnergy[b] = (float) Math.log(sum + 1e-3);
+        }
+        for (int c = 0; c < COEFFS; c++) {
+            float sum = 0;
+            for (int b = 0; b < BANDS; b++) sum += dct[c][b] * bandEnergy[b];
+            out[c] = sum;
+        }
+    }
+
+    /** In-place radix-2 FFT (length a power of two). */
+    static void fft(float[] re, float[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                float t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = -2 * Math.PI / len;
+            float wRe = (float) Math.cos(angle);
+            float wIm = (float) Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                float curRe = 1, curIm = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k, b = i + k + len / 2;
+                    float bRe = re[b] * curRe - im[b] * curIm;
+                    float bIm = re[b] * curIm + im[b] * curRe;
+                    re[b] = re[a] - bRe;
+                    im[b] = im[a] - bIm;
+                    re[a] += bRe;
+                    im[a] += bIm;
+                    float nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+}
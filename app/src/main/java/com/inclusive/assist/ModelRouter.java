@@ -0,0 +1,116 @@
+package com.inclusive.assist;
+
+import java.util.Locale;
+
+/**
+ * Picks the model size for an AI assistant question.
+ *
+ * Simple questions ("what time is it", "hello", a short fact) go to the small fast model,
+ * harder ones (explanations, comparisons, long questions) go to the 70B model. Each signal adds
+ * to a score; a deep conversation is one of them, so it tips a borderline question but never
+ * sends small talk to the big model. Each tier keeps its own latency window, and when a tier
+ * is slower than its target we use the other one until the slow tier has had time to recover.
+ */
+public class ModelRouter {
+
+    // Latency targets (p95) for each tier
+    public static final long FAST_TARGET_MS = 1500;
+    public static final long LARGE_TARGET_MS = 5000;
+
+    private static final int WINDOW_SIZE = 20;
+    private static final int MIN_SAMPLES = 5;          // Don't judge a tier on a couple of requests
+    private static final long RETRY_AFTER_MS = 60000;  // Give a slow tier another go after a minute
+
+    private static final int SHORT_PROMPT_WORDS = 8;
+    private static final int LONG_PROMPT_WORDS = 25;
+    private static final int DEEP_CONVERSATION_TURNS = 4;
+    private static final int LARGE_SCORE = 2;          // Score at which a question goes to the large model
+
+    // Words that usually mean the user wants reasoning, not a quick fact (whole words only)
+    private static final String[] HARD_WORDS = {
+            "why", "how does", "how do", "how can", "how to", "explain", "compare", "difference",
+            "versus", "vs", "plan", "write", "summarize", "summarise", "steps", "advice",
+            "should i", "recipe", "story", "translate", "calculate", "solve", "pros and cons"
+    };
+
+    // Small talk and quick lookups the small model handles fine (whole words only)
+    private static final String[] EASY_WORDS = {
+            "hello", "hi", "hey", "thank", "thanks", "what time", "what day", "what date", "who is",
+            "what is", "what's", "define", "spell", "meaning of", "capital of", "yes", "no", "ok", "okay"
+    };
+
+    private final LatencyWindow fastWindow = new LatencyWindow(WINDOW_SIZE);
+    private final LatencyWindow largeWindow = new LatencyWindow(WINDOW_SIZE);
+    private int fallbacks = 0;
+
+    /** Cheap local guess at how hard the question is. No network, no model. */
+    public AiRequest.Tier classify(String prompt, int conversationTurns) {
+        // " what's the capital of france " - punctuation dropped so phrases match on word boundaries
+        String words = prompt.toLowerCase(Locale.US).replaceAll("[^a-z0-9']+", " ").trim();
+        int count = words.isEmpty() ? 0 : words.split(" ").length;
+        String text = " " + words + " ";
+
+        int score = 0;
+        if (count > LONG_PROMPT_WORDS) score += 3;          // Long enough on its own
+        else if (count > SHORT_PROMPT_WORDS) score += 1;
+        // A hard word wins: "what is the difference between..." is not a quick fact
+        if (containsAny(text, HARD_WORDS)) score += 2;
+        else if (containsAny(text, EASY_WORDS)) score -= 2;
+        if (conversationTurns >= DEEP_CONVERSATION_TURNS) score += 1; // Context to keep track of
+
+        return score >= LARGE_SCORE ? AiRequest.Tier.LARGE : AiRequest.Tier.FAST;
+    }
+
+    private static boolean containsAny(String text, String[] phrases) {
+        for (String phrase : phrases) {
+            if (text.contains(" " + phrase + " ")) return true;
+        }
+        return false;
+    }
+
+    /** The tier to use right now: the classified one, unless it is too slow and the other is not. */
+    public synchronized AiRequest.Tier choose(String prompt, int conversationTurns) {
+        AiRequest.Tier preferred = classify(prompt, conversationTurns);
+        AiRequest.Tier other = preferred == AiRequest.Tier.FAST ? AiRequest.Tier.LARGE : AiRequest.Tier.FAST;
+
+        if (isOverTarget(preferred) && !isOverTarget(other)) {
+            fallbacks++;
+            return other;
+        }
+        return preferred;
+    }
+
+    public synchronized void record(AiRequest.Tier tier, long latencyMs, boolean success) {
+        windowFor(tier).record(latencyMs, success);
+    }
+
+    /**
+     * Latency above target on enough recent samples. Old results expire so the tier gets retried.
+     * Until the window is full a p95 is really just the slowest request, so one slow reply would
+     * trip it; judge on the median until then.
+     */
+    private boolean isOverTarget(AiRequest.Tier tier) {
+        LatencyWindow window = windowFor(tier);
+        if (window.size() < MIN_SAMPLES) return false;
+        if (System.currentTimeMillis() - window.lastRecordTime() > RETRY_AFTER_MS) return false;
+        int percentile = window.size() >= WINDOW_SIZE ? 95 : 50;
+        return window.percentile(percentile) > targetFor(tier);
+    }
+
+    private LatencyWindow windowFor(AiRequest.Tier tier) {
+        return tier == AiRequest.Tier.FAST ? fastWindow : largeWindow;
+    }
+
+    private static long targetFor(AiRequest.Tier tier) {
+        return tier == AiRequest.Tier.FAST ? FAST_TARGET_MS : LARGE_TARGET_MS;
+    }
+
+    public LatencyWindow getWindow(AiRequest.Tier tier) {
+        return windowFor(tier);
+    }
+
+    /** e.g. "fast[n=8 err=0 p50=400ms p95=900ms] large[n=3 ...] fallbacks=1" */
+    public synchronized String getStatsSummary() {
+        return "fast[" + fastWindow.getSummary() + "] large[" + largeWindow.getSummary() + "] fallbacks=" + fallbacks;
+    }
+}
@@ -0,0 +1,235 @@
+package com.inclusive.assist;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pre-recorded audio for the fixed phrases the app says all the time
+ * ("Listening", "Opening Text Reader", "500 Rupees", "Emergency! Calling now.").
+ *
+ * On first run each phrase is rendered once with synthesizeToFile() into a WAV file for the
+ * current voice, then loaded into a SoundPool, which starts playing almost instantly.
+ * Rendering uses its own TextToSpeech instance so it never competes with (or gets flushed by)
+ * live speech. A different voice or locale gets its own folder, so a voice change re-renders.
+ */
+public class PhraseCache {
+
+    private static final String TAG = "PhraseCache";
+    private static final int WAV_HEADER_BYTES = 44;
+
+    /** Fixed text spoken by the app. Must match the speak() calls exactly. */
+    static final String[] FIXED_PHRASES = {
+            "Listening",
+            "Opening Text Reader", "Opening Object Detection", "Opening Currency Checker",
+            "Opening Light Detector", "Opening AI Assistant", "Opening Scene Description",
+            "Opening Bus Routes", "Opening Location", "Opening Quick Messages", "Opening Sound Alert",
+            "Visually Impaired mode selected", "Order not understood.", "Command not understood.",
+            "Error starting voice input.", "I didn't catch that.", "Error with voice input.",
+            "Sending SOS", "Emergency! Calling now.", "No emergency number saved.", "Call failed.",
+            "Calling Emergency Contact and Sharing Location.", "Sharing Location",
+            "Tracking stopped.", "Reading...", "Camera not ready.", "Could not read text.",
+            "500 Rupees", "200 Rupees", "100 Rupees", "50 Rupees", "20 Rupees", "10 Rupees",
+            "Voice Mode Enabled. Tap the mic to speak.", "Text Mode Enabled.",
+            "I could not connect to the AI service.", "The AI service returned an error."
+    };
+
+    private static class Clip {
+        final int soundId;
+        final long durationMs;
+        boolean loaded = false;
+
+        Clip(int soundId, long durationMs) {
+            this.soundId = soundId;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SoundPool soundPool;
+    private final Map<String, Clip> clips = new HashMap<>();        // phrase -> clip
+    private final Map<Integer, Clip> clipsBySound = new HashMap<>(); // soundId -> clip
+
+    private TextToSpeech renderer;
+    private File folder;
+    private int nextToRender = 0;
+    private int streamId = 0;
+    private Runnable pendingFinish;
+    private int rendered = 0;
+    private long renderStartedAt;
+
+    public PhraseCache(Context context) {
+        this.context = context.getApplicationContext();
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(1)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, soundId, status) -> {
+            synchronized (PhraseCache.this) {
+                Clip clip = clipsBySound.get(soundId);
+                if (clip != null && status == 0) clip.loaded = true;
+            }
+        });
+    }
+
+    /** Load the phrases rendered earlier, and render the missing ones in the background. */
+    public void prepare() {
+        renderStartedAt = System.currentTimeMillis();
+        renderer = new TextToSpeech(context, status -> {
+            if (status != TextToSpeech.SUCCESS) {
+                Log.e(TAG, "Renderer failed to start: " + status);
+                return;
+            }
+            renderer.setLanguage(Locale.US);
+            folder = folderForVoice(renderer.getVoice());
+            renderer.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+                @Override
+                public void onStart(String utteranceId) {}
+
+                @Override
+                public void onDone(String utteranceId) {
+                    rendered++;
+                    renderNext();
+                }
+
+                @Override
+                public void onError(String utteranceId) {
+                    renderNext();
+                }
+            });
+            renderNext();
+        });
+    }
+
+    private File folderForVoice(Voice voice) {
+        String name = voice != null ? voice.getName() : "default";
+        File root = new File(context.getCacheDir(), "phrases");
+        File dir = new File(root, (name + "_" + Locale.US).replaceAll("[^A-Za-z0-9_-]", "_"));
+
+        // Audio from another voice is useless now
+        File[] old = root.listFiles();
+        if (old != null) {
+            for (File other : old) {
+                if (!other.equals(dir)) deleteRecursively(other);
+            }
+        }
+        if (!dir.exists() && !dir.mkdirs()) Log.e(TAG, "Could not create " + dir);
+        return dir;
+    }
+
+    /** One phrase at a time: load it if the file exists, otherwise render it first. */
+    private void renderNext() {
+        while (nextToRender < FIXED_PHRASES.length) {
+            String phrase = FIXED_PHRASES[nextToRender];
+            File file = fileFor(phrase);
+            if (file.length() > WAV_HEADER_BYTES && !isLoaded(phrase)) {
+                load(phrase, file);
+                nextToRender++;
+                continue;
+            }
+            if (isLoaded(phrase)) {
+                nextToRender++;
+                continue;
+            }
+            // onDone of this one calls renderNext() again, then the file exists and gets loaded
+            if (renderer.synthesizeToFile(phrase, null, file, "phrase-" + nextToRender) != TextToSpeech.SUCCESS) {
+                nextToRender++;
+                continue;
+            }
+            return;
+        }
+
+        Log.d(TAG, "Ready: " + clips.size() + " phrases (" + rendered + " rendered) in "
+                + (System.currentTimeMillis() - renderStartedAt) + "ms");
+        renderer.shutdown();
+    }
+
+    private File fileFor(String phrase) {
+        return new File(folder, Integer.toHexString(phrase.hashCode()) + ".wav");
+    }
+
+    private synchronized boolean isLoaded(String phrase) {
+        return clips.containsKey(phrase);
+    }
+
+    private synchronized void load(String phrase, File file) {
+        long durationMs = wavDurationMs(file);
+        if (durationMs <= 0) return;
+        int soundId = soundPool.load(file.getPath(), 1);
+        Clip clip = new Clip(soundId, durationMs);
+        clips.put(phrase, clip);
+        clipsBySound.put(soundId, clip);
+    }
+
+    /** Length of a PCM WAV from its header (byte rate at offset 28). */
+    private static long wavDurationMs(File file) {
+        byte[] header = new byte[WAV_HEADER_BYTES];
+        try (InputStream in = new FileInputStream(file)) {
+            if (in.read(header) != WAV_HEADER_BYTES) return -1;
+        } catch (IOException e) {
+            return -1;
+        }
+        int byteRate = (header[28] & 0xff) | (header[29] & 0xff) << 8 | (header[30] & 0xff) << 16 | (header[31] & 0xff) << 24;
+        if (byteRate <= 0) return -1;
+        return (file.length() - WAV_HEADER_BYTES) * 1000 / byteRate;
+    }
+
+    /**
+     * Play a cached phrase, cutting off any clip already playing. onDone runs on the main
+     * thread when the clip ends. Returns false if the phrase isn't cached (use live TTS).
+     */
+    public synchronized boolean play(String text, Runnable onDone) {
+        Clip clip = clips.get(text.trim());
+        if (clip == null || !clip.loaded) return false;
+
+        stop();
+        streamId = soundPool.play(clip.soundId, 1f, 1f, 1, 0, 1f);
+        if (streamId == 0) return false;
+
+        pendingFinish = onDone;
+        handler.postDelayed(onDone, clip.durationMs);
+        return true;
+    }
+
+    /** Stop the clip that is playing. Its onDone is not called. */
+    public synchronized void stop() {
+        if (streamId != 0) {
+            soundPool.stop(streamId);
+            streamId = 0;
+        }
+        if (pendingFinish != null) {
+            handler.removeCallbacks(pendingFinish);
+            pendingFinish = null;
+        }
+    }
+
+    public synchronized int size() {
+        return clips.size();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
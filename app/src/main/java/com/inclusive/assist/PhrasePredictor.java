@@ -0,0 +1,432 @@
+package com.inclusive.assist;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Next-word and phrase suggestions for typed replies, learnt from what the user has sent.
+ *
+ * A trigram model stored as a trie of word ids in flat int arrays: a node per n-gram with its
+ * count, children found through one open-addressing hash (parent, word) -> node, and each node
+ * keeping its few most frequent children in order, so a lookup reads at most three short lists.
+ * Scores use stupid backoff (trigram, then bigram x0.4, then unigram x0.16). While a word is half
+ * typed the candidates are filtered by its prefix, topped up from the whole vocabulary. The best
+ * word is also extended into a phrase while the model is sure of the next word.
+ *
+ * Learning is incremental (one sentence at a time). Not thread-safe: one thread at a time.
+ */
+public class PhrasePredictor {
+
+    private static final int TOP = 8;              // Children remembered per node
+    private static final float BACKOFF = 0.4f;
+    private static final int MAX_PHRASE_WORDS = 4;
+    private static final float PHRASE_SURE = 0.5f; // Next word must follow this often to extend
+    private static final int HISTORY_LINES = 5000; // Sent messages kept for retraining
+    private static final int TRIM_SLACK = 500;     // Lines let past HISTORY_LINES before a rewrite
+    private static final int START = 0;            // Sentence start token
+
+    // Vocabulary
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final TreeMap<String, Integer> sorted = new TreeMap<>(); // For prefix completion
+
+    // Trie nodes (0 = root)
+    private int nodes = 1;
+    private int[] nodeWord = new int[1024];
+    private int[] nodeCount = new int[1024];
+    private int[] top = new int[1024 * TOP];        // Best children, by count; -1 = empty
+
+    // Edges: open addressing, key = parent << 32 | word
+    private long[] edgeKeys = new long[2048];
+    private int[] edgeNodes = new int[2048];
+    private int edges = 0;
+
+    // Scratch
+    private final int[] context = new int[2];
+    private final Map<String, Float> scores = new HashMap<>();
+
+    private int historyLines = 0; // Lines in the history file, as far as we know
+
+    public PhrasePredictor() {
+        Arrays.fill(top, -1);
+        Arrays.fill(edgeKeys, -1);
+        ids.put("<s>", START);
+        words.add("<s>");
+    }
+
+    // --- LEARNING ---
+    /** Learn from a message the user sent (or a stock phrase). */
+    public void learn(String message) {
+        for (List<String> sentence : sentences(message)) {
+            int w2 = -1, w1 = START;
+            increment(0, START);
+            for (String word : sentence) {
+                int w = wordId(word);
+                // Context nodes always exist: the steps before counted them
+                increment(0, w);                                    // w
+                increment(child(0, w1), w);                         // w1 w
+                if (w2 >= 0) increment(child(child(0, w2), w1), w); // w2 w1 w
+                w2 = w1;
+                w1 = w;
+            }
+        }
+    }
+
+    private int wordId(String word) {
+        Integer id = ids.get(word);
+        if (id != null) return id;
+        int newId = words.size();
+        ids.put(word, newId);
+        words.add(word);
+        sorted.put(word, newId);
+        return newId;
+    }
+
+    /** Count one more (parent, word); returns the child node. */
+    private int increment(int parent, int word) {
+        int node = child(parent, word);
+        if (node < 0) node = addChild(parent, word);
+        nodeCount[node]++;
+        if (parent == 0) nodeCount[0]++; // Root counts every word seen
+        promote(parent, node);
+        return node;
+    }
+
+    /** Keep parent's best-children list in order after node's count went up. */
+    private void promote(int parent, int node) {
+        int base = parent * TOP;
+        int at = -1;
+        for (int i = 0; i < TOP; i++) {
+            if (top[base + i] == node) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0) {
+            int last = top[base + TOP - 1];
+            if (last >= 0 && nodeCount[last] >= nodeCount[node]) return;
+            at = TOP - 1;
+            top[base + at] = node;
+        }
+        while (at > 0 && (top[base + at - 1] < 0 || nodeCount[top[base + at - 1]] < nodeCount[node])) {
+            top[base + at] = top[base + at - 1];
+            top[base + at - 1] = node;
+            at--;
+        }
+    }
+
+    private int addChild(int parent, int word) {
+        if (nodes == nodeWord.length) {
+            int size = nodes * 2;
+            nodeWord = Arrays.copyOf(nodeWord, size);
+            nodeCount = Arrays.copyOf(nodeCount, size);
+            int oldTop = top.length;
+            top = Arrays.copyOf(top, size * TOP);
+            Arrays.fill(top, oldTop, top.length, -1);
+        }
+        int node = nodes++;
+        nodeWord[node] = word;
+        if ((edges + 1) * 10 > edgeKeys.length * 6) growEdges();
+        putEdge(key(parent, word), node);
+        edges++;
+        return node;
+    }
+
+    private static long key(int parent, int word) {
+        return ((long) parent << 32) | (word & 0xffffffffL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 33) & (edgeKeys.length - 1);
+    }
+
+    private void putEdge(long key, int node) {
+        int i = slot(key);
+        while (edgeKeys[i] != -1) i = (i + 1) & (edgeKeys.length - 1);
+        edgeKeys[i] = key;
+        edgeNodes[i] = node;
+    }
+
+    private void growEdges() {
+        long[] oldKeys = edgeKeys;
+        int[] oldNodes = edgeNodes;
+        edgeKeys = new long[oldKeys.length * 2];
+        edgeNodes = new int[oldKeys.length * 2];
+        Arrays.fill(edgeKeys, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1) putEdge(oldKeys[i], oldNodes[i]);
+        }
+    }
+
+    /** Node for word under parent, or -1. */
+    private int child(int parent, int word) {
+        if (parent < 0) return -1;
+        long key = key(parent, word);
+        int i = slot(key);
+        while (edgeKeys[i] != -1) {
+            if (edgeKeys[i] == key) return edgeNodes[i];
+            i = (i + 1) & (edgeKeys.length - 1);
+        }
+        return -1;
+    }
+
+    // --- SUGGESTING ---
+    /**
+     * Up to max suggestions for what's typed so far. Each one replaces the half-typed word at the
+     * end (if any); the first may be a phrase of several words.
+     */
+    public List<String> suggest(String typed, int max) {
+        List<String> out = new ArrayList<>(max);
+        if (max <= 0) return out;
+
+        // Last two whole words of the current sentence, and the half-typed one
+        int end = typed.length();
+        int wordStart = end;
+        while (wordStart > 0 && isWordChar(typed.charAt(wordStart - 1))) wordStart--;
+        String prefix = typed.substring(wordStart).toLowerCase(Locale.US);
+        int contextWords = 0;
+        context[0] = context[1] = START;
+        int i = wordStart;
+        while (contextWords < 2) {
+            while (i > 0 && !isWordChar(typed.charAt(i - 1))) {
+                if (isSentenceEnd(typed.charAt(i - 1))) i = 0;
+                else i--;
+            }
+            if (i == 0) break;
+            int j = i;
+            while (j > 0 && isWordChar(typed.charAt(j - 1))) j--;
+            Integer id = ids.get(typed.substring(j, i).toLowerCase(Locale.US));
+            context[contextWords++] = id == null ? -1 : id;
+            i = j;
+        }
+        boolean capital = contextWords == 0 || (!prefix.isEmpty() && Character.isUpperCase(typed.charAt(wordStart)));
+        int w1 = contextWords > 0 ? context[0] : START;
+        int w2 = contextWords > 1 ? context[1] : (contextWords == 1 ? START : -1);
+
+        // Stupid backoff over the three contexts
+        scores.clear();
+        int bigramNode = w1 >= 0 ? child(0, w1) : -1;
+        int trigramNode = w2 >= 0 && w1 >= 0 ? child(child(0, w2), w1) : -1;
+        collect(trigramNode, prefix, 1f);
+        collect(bigramNode, prefix, BACKOFF);
+        collect(0, prefix, BACKOFF * BACKOFF);
+        if (!prefix.isEmpty() && scores.size() < max) complete(prefix, max);
+
+        List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
+
+        // The best word, carried on while the next word is a safe bet
+        if (!ranked.isEmpty()) {
+            String best = ranked.get(0).getKey();
+            String phrase = extend(best, bigramNode);
+            if (phrase != null) out.add(capitalise(phrase, capital));
+        }
+        for (Map.Entry<String, Float> e : ranked) {
+            if (out.size() >= max) break;
+            String word = capitalise(e.getKey(), capital);
+            if (!out.contains(word)) out.add(word);
+        }
+        return out;
+    }
+
+    private void collect(int node, String prefix, float weight) {
+        if (node < 0 || nodeCount[node] == 0) return;
+        int base = node * TOP;
+        for (int i = 0; i < TOP; i++) {
+            int c = top[base + i];
+            if (c < 0) break;
+            if (nodeWord[c] == START) continue;
+            String word = words.get(nodeWord[c]);
+            if (!word.startsWith(prefix) || word.equals(prefix)) continue;
+            float score = weight * nodeCount[c] / nodeCount[node];
+            Float old = scores.get(word);
+            if (old == null || old < score) scores.put(word, score);
+        }
+    }
+
+    /** Any known word with the prefix, by how common it is (slower, so only to fill up). */
+    private void complete(String prefix, int max) {
+        SortedMap<String, Integer> range = sorted.subMap(prefix, prefix + Character.MAX_VALUE);
+        String[] best = new String[max];
+        int[] bestCount = new int[max];
+        for (Map.Entry<String, Integer> e : range.entrySet()) {
+            if (e.getKey().equals(prefix)) continue;
+            int count = nodeCount[child(0, e.getValue())];
+            for (int i = 0; i < max; i++) {
+                if (best[i] == null || count > bestCount[i]) {
+                    System.arraycopy(best, i, best, i + 1, max - i - 1);
+                    System.arraycopy(bestCount, i, bestCount, i + 1, max - i - 1);
+                    best[i] = e.getKey();
+                    bestCount[i] = count;
+                    break;
+                }
+            }
+        }
+        float weight = BACKOFF * BACKOFF / Math.max(1, nodeCount[0]);
+        for (int i = 0; i < max && best[i] != null; i++) {
+            if (!scores.containsKey(best[i])) scores.put(best[i], weight * bestCount[i]);
+        }
+    }
+
+    /** word followed by the words that nearly always come next, or null if none do. */
+    private String extend(String word, int contextNode) {
+        int w = ids.get(word);
+        int node = child(contextNode, w); // (previous word, word): what follows both
+        int bigram = child(0, w);         // What follows word alone
+        StringBuilder phrase = new StringBuilder(word);
+        int added = 0;
+        int prev = w;
+        while (added < MAX_PHRASE_WORDS - 1) {
+            int from = node >= 0 && nodeCount[node] >= 2 ? node : bigram;
+            if (from < 0 || nodeCount[from] < 2) break;
+            int next = top[from * TOP];
+            if (next < 0 || nodeWord[next] == START || nodeCount[next] < PHRASE_SURE * nodeCount[from] || nodeCount[next] < 2) break;
+            int nextWord = nodeWord[next];
+            phrase.append(' ').append(words.get(nextWord));
+            added++;
+            node = child(child(0, prev), nextWord);
+            bigram = child(0, nextWord);
+            prev = nextWord;
+        }
+        return added == 0 ? null : phrase.toString();
+    }
+
+    private static String capitalise(String s, boolean capital) {
+        if (s.equals("i") || s.startsWith("i ")) s = "I" + s.substring(1);
+        return capital && !s.isEmpty() ? Character.toUpperCase(s.charAt(0)) + s.substring(1) : s;
+    }
+
+    // --- TEXT ---
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '\'';
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '\n';
+    }
+
+    static List<List<String>> sentences(String text) {
+        List<List<String>> out = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '.';
+            if (isWordChar(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (word.length() > 0) {
+                current.add(word.toString());
+                word.setLength(0);
+            }
+            if (isSentenceEnd(c) && !current.isEmpty()) {
+                out.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        return out;
+    }
+
+    // --- HISTORY ---
+    /** A predictor trained on the stock phrases and the saved history of sent messages. */
+    public static PhrasePredictor load(File history, String[] stockPhrases) {
+        PhrasePredictor predictor = new PhrasePredictor();
+        for (String phrase : stockPhrases) predictor.learn(phrase);
+        if (history.exists()) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(history), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    predictor.learn(line);
+                    predictor.historyLines++;
+                }
+            } catch (IOException e) {
+                // Train on what we could read
+            }
+        }
+        return predictor;
+    }
+
+    /**
+     * Learn a sent message now and append it to the history file on io (a single thread, so the
+     * writes stay in order). Once the file is TRIM_SLACK lines past HISTORY_LINES it is cut back
+     * to the last HISTORY_LINES, so the rewrite happens once every few hundred messages.
+     */
+    public void remember(File history, String message, Executor io) {
+        learn(message);
+        String line = message.replace('\n', ' ').trim();
+        if (line.isEmpty()) return;
+        boolean trim = ++historyLines > HISTORY_LINES + TRIM_SLACK;
+        if (trim) historyLines = HISTORY_LINES;
+        io.execute(() -> {
+            append(history, line);
+            if (trim) trim(history);
+        });
+    }
+
+    private static void append(File history, String line) {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(history, true), StandardCharsets.UTF_8)) {
+            out.write(line);
+            out.write('\n');
+        } catch (IOException e) {
+            // Not in the history: still learnt for this session
+        }
+    }
+
+    private static void trim(File history) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(history), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) lines.add(line);
+        } catch (IOException e) {
+            return; // Try again on a later trim
+        }
+        if (lines.size() <= HISTORY_LINES) return;
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(history), StandardCharsets.UTF_8)) {
+            for (String line : lines.subList(lines.size() - HISTORY_LINES, lines.size())) {
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            // Left untrimmed (or short): it is only training data
+        }
+    }
+
+    // --- STATS ---
+    public int getVocabularySize() {
+        return words.size() - 1;
+    }
+
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /** Rough heap use: the arrays, plus the vocabulary maps at typical JVM object sizes. */
+    public long estimateBytes() {
+        long arrays = 4L * (nodeWord.length + nodeCount.length + top.length + edgeNodes.length) + 8L * edgeKeys.length;
+        long vocabulary = 0;
+        for (String word : words) vocabulary += 40 + 2L * word.length() + 48 + 40 + 16; // String, HashMap + TreeMap entries, Integer
+        return arrays + vocabulary;
+    }
+
+    public String getStatsSummary() {
+        return String.format(Locale.US, "words=%d nodes=%d edges=%d ~%dKB",
+                getVocabularySize(), nodes, edges, estimateBytes() / 1024);
+    }
+}
@@ -0,0 +1,231 @@
+package com.inclusive.assist;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Sends AI requests to the healthiest provider (Groq or Gemini) and fails over to the
+ * next one when a provider errors out or is too slow, all within one latency budget.
+ *
+ * Health = recent latency and error rate of each provider over a sliding window.
+ * The stats are shared by every screen, so a slow Groq seen by the object detector
+ * also steers the AI assistant to Gemini.
+ */
+public class ProviderRouter {
+
+    public interface Callback {
+        void onSuccess(AiResponse response);
+
+        /** All providers failed. lastHttpCode is 0 for network errors / timeouts. */
+        void onFailure(int lastHttpCode, IOException lastError);
+
+        /** Called for every attempt, so the caller can track (and cancel) the call. */
+        default void onCallStarted(Call call) {}
+    }
+
+    private static final int WINDOW_SIZE = 20;
+    private static final long UNKNOWN_LATENCY_MS = 2000; // Assumed latency for a provider without samples
+    private static final long MIN_ATTEMPT_MS = 1000;     // Don't start an attempt with less time than this
+    private static final double FIRST_ATTEMPT_SHARE = 0.6; // Keep 40% of the budget for a failover
+    private static final long FAILURE_COOLDOWN_MS = 30000; // Avoid a failing provider for 30 seconds
+    private static final long FAILURE_PENALTY_MS = 10000;  // Per consecutive failure, during the cooldown
+
+    private static ProviderRouter defaultRouter;
+
+    private final OkHttpClient client;
+    private final List<AiProvider> providers;
+    private final Map<String, LatencyWindow> health;
+    private volatile String lastProvider = "";
+
+    public ProviderRouter(OkHttpClient client, List<AiProvider> providers) {
+        this(client, providers, new HashMap<>());
+        for (AiProvider provider : providers) {
+            health.put(provider.getName(), new LatencyWindow(WINDOW_SIZE));
+        }
+    }
+
+    private ProviderRouter(OkHttpClient client, List<AiProvider> providers, Map<String, LatencyWindow> health) {
+        this.client = client;
+        this.providers = providers;
+        this.health = health;
+    }
+
+    /** App-wide router with the keys from BuildConfig. Groq first, Gemini as backup. */
+    public static synchronized ProviderRouter getDefault() {
+        if (defaultRouter == null) {
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .connectTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(30, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .build();
+            List<AiProvider> providers = new ArrayList<>();
+            providers.add(new GroqProvider(GroqProvider.DEFAULT_URL, BuildConfig.GROQ_API_KEY,
+                    GroqProvider.CHAT_MODEL, GroqProvider.FAST_CHAT_MODEL, GroqProvider.VISION_MODEL));
+            providers.add(new GeminiProvider(GeminiProvider.DEFAULT_URL, BuildConfig.GEMINI_API_KEY,
+                    GeminiProvider.CHAT_MODEL, GeminiProvider.FAST_CHAT_MODEL, GeminiProvider.VISION_MODEL));
+            defaultRouter = new ProviderRouter(client, providers);
+        }
+        return defaultRouter;
+    }
+
+    /** Same providers and shared health stats, but a different HTTP client (timeouts, listeners). */
+    public ProviderRouter using(OkHttpClient otherClient) {
+        return new ProviderRouter(otherClient, providers, health);
+    }
+
+    /** Configured providers that can serve this request, healthiest first. */
+    public List<AiProvider> rankProviders(boolean needsVision) {
+        List<AiProvider> candidates = new ArrayList<>();
+        for (AiProvider provider : providers) {
+            if (provider.isConfigured() && (!needsVision || provider.supportsVision())) {
+                candidates.add(provider);
+            }
+        }
+        // Stable sort: equal scores keep the configured order
+        Collections.sort(candidates, (a, b) -> Double.compare(score(a), score(b)));
+        return candidates;
+    }
+
+    /**
+     * Lower is better: typical latency, a bit worse for every recent error, and much worse
+     * while cooling down after failures. The cooldown ends on its own, so a provider that
+     * recovers gets tried again.
+     */
+    private double score(AiProvider provider) {
+        LatencyWindow window = health.get(provider.getName());
+        long p50 = window.size() > 0 ? window.percentile(50) : UNKNOWN_LATENCY_MS;
+        double score = p50 * (1 + window.errorRate());
+        if (System.currentTimeMillis() - window.lastFailureTime() < FAILURE_COOLDOWN_MS) {
+            score += FAILURE_PENALTY_MS * window.consecutiveFailures();
+        }
+        return score;
+    }
+
+    /**
+     * Sends the request to the best provider, failing over to the next one on
+     * errors or timeouts until the budget runs out. Callbacks run on OkHttp threads.
+     */
+    public void enqueue(AiRequest request, long budgetMs, Callback callback) {
+        List<AiProvider> order = rankProviders(request.hasImage());
+        if (order.isEmpty()) {
+            callback.onFailure(0, new IOException("No AI provider configured"));
+            return;
+        }
+        attempt(request, order, 0, System.currentTimeMillis() + budgetMs, 0, null, callback);
+    }
+
+    private void attempt(AiRequest request, List<AiProvider> order, int index, long deadline,
+                         int lastCode, IOException lastError, Callback callback) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (index >= order.size() || remaining < MIN_ATTEMPT_MS) {
+            callback.onFailure(lastCode, lastError);
+            return;
+        }
+
+        AiProvider provider = order.get(index);
+        Request httpRequest;
+        try {
+            httpRequest = provider.buildRequest(request);
+        } catch (JSONException e) {
+            attempt(request, order, index + 1, deadline, lastCode, new IOException(e), callback);
+            return;
+        }
+
+        // Leave time for the next provider if there is one
+        boolean hasBackup = index < order.size() - 1;
+        long timeout = hasBackup ? Math.max(MIN_ATTEMPT_MS, (long) (remaining * FIRST_ATTEMPT_SHARE)) : remaining;
+
+        Call call = client.newCall(httpRequest);
+        call.timeout().timeout(timeout, TimeUnit.MILLISECONDS);
+        callback.onCallStarted(call);
+
+        long start = System.currentTimeMillis();
+        call.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                // Cancelled by the caller (not by our timeout): stop, no failover
+                if (call.isCanceled() && !(e instanceof InterruptedIOException)) {
+                    callback.onFailure(0, e);
+                    return;
+                }
+                record(provider, start, false);
+                attempt(request, order, index + 1, deadline, 0, e, callback);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                AiResponse result = null;
+                int code = response.code();
+                IOException error = null;
+
+                try (ResponseBody body = response.body()) {
+                    String data = body != null ? body.string() : "";
+                    if (response.isSuccessful()) {
+                        result = provider.parseResponse(data);
+                    } else {
+                        error = new IOException("HTTP " + code + " from " + provider.getName() + ": " + data);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } catch (JSONException e) {
+                    error = new IOException("Bad response from " + provider.getName(), e);
+                }
+
+                if (result == null) {
+                    if (call.isCanceled() && !(error instanceof InterruptedIOException)) {
+                        callback.onFailure(0, error);
+                        return;
+                    }
+                    record(provider, start, false);
+                    attempt(request, order, index + 1, deadline, code, error, callback);
+                    return;
+                }
+
+                result.latencyMs = record(provider, start, true);
+                lastProvider = provider.getName();
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+    private long record(AiProvider provider, long start, boolean success) {
+        long latency = System.currentTimeMillis() - start;
+        health.get(provider.getName()).record(latency, success);
+        return latency;
+    }
+
+    /** Name of the provider that answered last, "" before the first answer. */
+    public String getLastProvider() {
+        return lastProvider;
+    }
+
+    /** Health window of one provider (latency percentiles, error count). */
+    public LatencyWindow getHealth(String providerName) {
+        return health.get(providerName);
+    }
+
+    /** e.g. "groq[n=12 err=1 p50=820ms p95=1500ms] gemini[n=0 ...] last=groq" */
+    public String getStatsSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (AiProvider provider : providers) {
+            sb.append(provider.getName()).append('[').append(health.get(provider.getName()).getSummary()).append("] ");
+        }
+        return sb.append("last=").append(lastProvider).toString();
+    }
+}
@@ -8,6 +8,16 @@ import androidx.appcompat.app.AppCompatActivity;
 
 public class QuickTextActivity extends AppCompatActivity {
 
+    // Also what the reply predictor in SpeechToTextActivity starts from
+    static final String[] MESSAGES = {
+            "I am Deaf.\nPlease communicate visually.",
+            "Please write it down.",
+            "Where is the Hospital?",
+            "I need Police help.",
+            "Where is the Restroom?",
+            "Thank You!"
+    };
+
     private TextView tvFullScreen;
 
     @Override
@@ -18,12 +28,12 @@ public class QuickTextActivity extends AppCompatActivity {
         tvFullScreen = findViewById(R.id.tvFullScreen);
 
         // Setup all buttons using a helper function
-        setupButton(R.id.btnMsg1, "I am Deaf.\nPlease communicate visually.");
-        setupButton(R.id.btnMsg2, "Please write it down.");
-        setupButton(R.id.btnMsg3, "Where is the Hospital?");
-        setupButton(R.id.btnMsg4, "I need Police help.");
-        setupButton(R.id.btnMsg5, "Where is the Restroom?");
-        setupButton(R.id.btnMsg6, "Thank You!");
+        setupButton(R.id.btnMsg1, MESSAGES[0]);
+        setupButton(R.id.btnMsg2, MESSAGES[1]);
+        setupButton(R.id.btnMsg3, MESSAGES[2]);
+        setupButton(R.id.btnMsg4, MESSAGES[3]);
+        setupButton(R.id.btnMsg5, MESSAGES[4]);
+        setupButton(R.id.btnMsg6, MESSAGES[5]);
 
         // Tap the full screen text to close it
         tvFullScreen.setOnClickListener(v -> {
@@ -5,7 +5,6 @@ import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.Matrix;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.util.Log;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
@@ -24,7 +23,6 @@ import com.google.mlkit.vision.text.TextRecognizer;
 import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
 import java.nio.ByteBuffer;
-import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -38,7 +36,6 @@ public class ReadTextActivity extends AppCompatActivity {
     // USING ML KIT (OFFLINE & FREE)
     // -----------------------------------------------------------
 
-    private TextToSpeech tts;
     private PreviewView viewFinder;
     private TextView tvDescription;
     private Bitmap currentImageBitmap;
@@ -55,29 +52,22 @@ public class ReadTextActivity extends AppCompatActivity {
 
         cameraExecutor = Executors.newSingleThreadExecutor();
 
-        // 1. Initialize Text-To-Speech (TTS)
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-            }
-        });
-
-        // 2. Start Camera (Check permissions first)
+        // 1. Start Camera (Check permissions first)
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
             startCamera();
         } else {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, 101);
         }
 
-        // 3. Setup Tap Listener (Tap screen to analyze)
+        // 2. Setup Tap Listener (Tap screen to analyze)
         viewFinder.setOnClickListener(v -> {
             if (currentImageBitmap != null) {
                 tvDescription.setText("Reading text...");
-                tts.speak("Reading...", TextToSpeech.QUEUE_FLUSH, null, null);
+                SpeechService.get().speak("Reading...");
 
                 analyzeImageWithMLKit(currentImageBitmap);
             } else {
-                tts.speak("Camera not ready.", TextToSpeech.QUEUE_FLUSH, null, null);
+                SpeechService.get().speak("Camera not ready.");
             }
         });
     }
@@ -104,12 +94,12 @@ public class ReadTextActivity extends AppCompatActivity {
                     // Display and Speak the result
                     final String textToSpeak = resultText;
                     tvDescription.setText(textToSpeak);
-                    tts.speak(textToSpeak, TextToSpeech.QUEUE_FLUSH, null, null);
+                    SpeechService.get().speak(textToSpeak);
                 })
                 .addOnFailureListener(e -> {
                     String err = "Error: " + e.getMessage();
                     tvDescription.setText(err);
-                    tts.speak("Could not read text.", TextToSpeech.QUEUE_FLUSH, null, null);
+                    SpeechService.get().speak("Could not read text.");
                 });
     }
 
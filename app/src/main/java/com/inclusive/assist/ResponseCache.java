@@ -0,0 +1,372 @@
+package com.inclusive.assist;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers answers to questions the user has asked before, on disk, so repeats are
+ * answered instantly instead of waiting for the AI.
+ *
+ * Prompts are normalized (lowercase, no punctuation, filler words like "please" and "the"
+ * dropped) but keep their word order, so "What is the capital of France, please?" and "what is
+ * capital of france" share one entry while "bus from Majestic to Silk Board" and the reverse
+ * trip don't. Optionally a near match also counts: the words in order must be close (token edit
+ * distance) and only question glue like "can you" may differ - every number and name must be
+ * the same. Entries expire after a TTL and the least recently used ones are evicted when the
+ * cache is full.
+ *
+ * Starts empty: call load() off the UI thread. Lookups before it finishes just miss. The lock
+ * only covers the in-memory map; the file is written from a snapshot after it is released, so a
+ * lookup on the UI thread never waits for the disk.
+ */
+public class ResponseCache {
+
+    // Only words that never change what is being asked
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "please", "kindly", "just", "um", "uh", "umm", "hmm", "er", "oh", "so", "well"));
+
+    // Question glue a near match may reword ("can you tell me" / "what is"); every other word -
+    // numbers, names, places, "to"/"from", "not" - has to match exactly
+    private static final Set<String> GLUE_WORDS = new HashSet<>(Arrays.asList(
+            "is", "are", "was", "were", "be", "am", "do", "does", "did", "can", "could", "would", "will",
+            "i", "me", "my", "you", "your", "we", "our", "tell", "about", "what"));
+
+    // Contractions spelled out, so "what's" and "what is" agree (apostrophes are stripped first)
+    private static final Map<String, String> CONTRACTIONS = new HashMap<>();
+    static {
+        CONTRACTIONS.put("whats", "what is");
+        CONTRACTIONS.put("wheres", "where is");
+        CONTRACTIONS.put("whos", "who is");
+        CONTRACTIONS.put("hows", "how is");
+        CONTRACTIONS.put("whens", "when is");
+        CONTRACTIONS.put("thats", "that is");
+        CONTRACTIONS.put("im", "i am");
+    }
+
+    // Questions whose answer depends on the moment or on the previous turn - never cached
+    private static final Set<String> VOLATILE_WORDS = new HashSet<>(Arrays.asList(
+            "time", "today", "tonight", "now", "tomorrow", "yesterday", "date", "weather", "latest", "news",
+            "it", "that", "this", "there", "he", "she", "they", "them", "him", "her", "those", "these"));
+
+    private static class Entry {
+        final String prompt;   // Original wording, for logs
+        final String answer;
+        final long createdAt;
+
+        Entry(String prompt, String answer, long createdAt) {
+            this.prompt = prompt;
+            this.answer = answer;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /** A cached answer and how old it is. */
+    public static class Hit {
+        public final String answer;
+        public final long ageMs;
+        public final boolean exact;
+
+        Hit(String answer, long ageMs, boolean exact) {
+            this.answer = answer;
+            this.ageMs = ageMs;
+            this.exact = exact;
+        }
+    }
+
+    private final File file;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final double matchThreshold; // 1.0 = exact matches only
+    private boolean loaded = false;      // Until load() is done, saving would wipe the file
+
+    // Snapshots are numbered under the cache lock; an older one never overwrites a newer one
+    private final Object fileLock = new Object();
+    private long snapshots = 0;
+    private long written = 0;
+
+    // Access order = LRU iteration order (eldest first)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int hits = 0;
+    private int approximateHits = 0;
+    private int misses = 0;
+    private int expired = 0;
+    private int evictions = 0;
+    private long totalHitAgeMs = 0;
+
+    public ResponseCache(File file, int maxEntries, long ttlMs, double matchThreshold) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.matchThreshold = matchThreshold;
+    }
+
+    /** Lowercase, strip punctuation, drop filler words; order and repeats kept. "" if nothing is left. */
+    public static String normalize(String prompt) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : prompt.toLowerCase(Locale.US).replaceAll("[^a-z0-9\\s]", "").split("\\s+")) {
+            if (word.isEmpty() || FILLER_WORDS.contains(word)) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(CONTRACTIONS.containsKey(word) ? CONTRACTIONS.get(word) : word);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The words of a normalized key that carry the meaning, in order: "can you tell me bus 500 to
+     * hebbal" -> [bus, 500, to, hebbal]. A near match must have exactly these, so numbers and
+     * names never differ (speech comes in lowercase, so names can't be told apart by capitals).
+     */
+    static List<String> anchors(String[] words) {
+        List<String> anchors = new ArrayList<>();
+        for (String word : words) {
+            if (!GLUE_WORDS.contains(word)) anchors.add(word);
+        }
+        return anchors;
+    }
+
+    /** Every word, lowercase and without punctuation, in the order spoken. */
+    public static String[] words(String prompt) {
+        String cleaned = prompt.toLowerCase(Locale.US).replaceAll("[^a-z0-9\\s]", "").trim();
+        return cleaned.isEmpty() ? new String[0] : cleaned.split("\\s+");
+    }
+
+    /** False for time-sensitive questions and follow-ups that only make sense with the history. */
+    public static boolean isCacheable(String prompt) {
+        for (String word : prompt.toLowerCase(Locale.US).replaceAll("[^a-z0-9\\s]", "").split("\\s+")) {
+            if (VOLATILE_WORDS.contains(word)) return false;
+        }
+        return !normalize(prompt).isEmpty();
+    }
+
+    /** The cached answer for this prompt, or null. */
+    public synchronized Hit lookup(String prompt) {
+        String key = normalize(prompt);
+        long now = System.currentTimeMillis();
+        removeExpired(now);
+
+        Entry entry = entries.get(key);
+        boolean exact = entry != null;
+        if (entry == null) {
+            String nearKey = nearestKey(key);
+            if (nearKey != null) entry = entries.get(nearKey); // get() also marks it recently used
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        if (!exact) approximateHits++;
+        long age = now - entry.createdAt;
+        totalHitAgeMs += age;
+        return new Hit(entry.answer, age, exact);
+    }
+
+    /** True if lookup() would answer this prompt. Doesn't count in the stats or touch the LRU order. */
+    public synchronized boolean contains(String prompt) {
+        String key = normalize(prompt);
+        long now = System.currentTimeMillis();
+        removeExpired(now);
+        return entries.containsKey(key) || nearestKey(key) != null;
+    }
+
+    // Best near match: words close in order, numbers and names identical
+    private String nearestKey(String key) {
+        if (matchThreshold >= 1.0 || key.isEmpty()) return null;
+        String[] words = key.split(" ");
+        List<String> anchors = anchors(words);
+        double best = matchThreshold;
+        String bestKey = null;
+        for (String candidate : entries.keySet()) {
+            String[] candidateWords = candidate.split(" ");
+            double similarity = similarity(words, candidateWords);
+            if (similarity >= best && anchors.equals(anchors(candidateWords))) {
+                best = similarity;
+                bestKey = candidate;
+            }
+        }
+        return bestKey;
+    }
+
+    /** Store an answer and write the cache to disk. Call off the UI thread (the disk executor). */
+    public void put(String prompt, String answer) {
+        String key = normalize(prompt);
+        if (key.isEmpty()) return;
+        Snapshot snapshot;
+        synchronized (this) {
+            entries.put(key, new Entry(prompt, answer, System.currentTimeMillis()));
+            snapshot = loaded ? snapshot() : null;
+        }
+        if (snapshot != null) write(snapshot);
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().createdAt > ttlMs) {
+                it.remove();
+                expired++;
+            }
+        }
+    }
+
+    /** 1 - (word edit distance / longer length): word order counts, so a reversed trip scores low. */
+    static double similarity(String[] a, String[] b) {
+        int longer = Math.max(a.length, b.length);
+        return longer == 0 ? 1 : 1 - (double) editDistance(a, b) / longer;
+    }
+
+    static int editDistance(String[] a, String[] b) {
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) previous[j] = j;
+        for (int i = 1; i <= a.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length; j++) {
+                int substitute = previous[j - 1] + (a[i - 1].equals(b[j - 1]) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length];
+    }
+
+    // --- DISK ---
+    /** Reads the saved answers. Call once, off the UI thread; answers put() meanwhile are kept. */
+    public void load() {
+        List<Entry> saved = new ArrayList<>();
+        if (file != null && file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] data = new byte[(int) file.length()];
+                int read = 0;
+                while (read < data.length) {
+                    int n = in.read(data, read, data.length - read);
+                    if (n < 0) break;
+                    read += n;
+                }
+                JSONArray array = new JSONArray(new String(data, 0, read, StandardCharsets.UTF_8));
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject item = array.getJSONObject(i);
+                    saved.add(new Entry(item.getString("prompt"), item.getString("answer"), item.getLong("createdAt")));
+                }
+            } catch (IOException | JSONException e) {
+                // A broken cache file is not worth crashing over - start empty
+                saved.clear();
+            }
+        }
+
+        Snapshot snapshot = null;
+        synchronized (this) {
+            // Stored eldest first, so re-inserting rebuilds the LRU order; anything put() while
+            // we were reading is newer, so it goes back on top
+            Map<String, Entry> fresh = new LinkedHashMap<>(entries);
+            entries.clear();
+            long now = System.currentTimeMillis();
+            for (Entry entry : saved) {
+                if (now - entry.createdAt <= ttlMs) entries.put(normalize(entry.prompt), entry);
+            }
+            entries.putAll(fresh);
+            loaded = true;
+            if (!fresh.isEmpty()) snapshot = snapshot();
+        }
+        if (snapshot != null) write(snapshot);
+    }
+
+    private static class Snapshot {
+        final long number;
+        final String json;
+
+        Snapshot(long number, String json) {
+            this.number = number;
+            this.json = json;
+        }
+    }
+
+    // Caller holds the cache lock. Null when there is no file or the entries can't be encoded.
+    private Snapshot snapshot() {
+        if (file == null) return null;
+        try {
+            JSONArray array = new JSONArray();
+            for (Entry entry : entries.values()) {
+                JSONObject item = new JSONObject();
+                item.put("prompt", entry.prompt);
+                item.put("answer", entry.answer);
+                item.put("createdAt", entry.createdAt);
+                array.put(item);
+            }
+            return new Snapshot(++snapshots, array.toString());
+        } catch (JSONException e) {
+            return null; // Keep working from memory; the next put() tries again
+        }
+    }
+
+    // Outside the cache lock: lookups carry on while the file is written
+    private void write(Snapshot snapshot) {
+        synchronized (fileLock) {
+            if (snapshot.number <= written) return; // A newer snapshot is already on disk
+            // Write a temp file and rename, so a crash mid-write can't corrupt the cache
+            File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(snapshot.json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                temp.delete();
+                return; // Keep working from memory; the next put() tries again
+            }
+            if (temp.renameTo(file)) {
+                written = snapshot.number;
+            } else {
+                temp.delete();
+            }
+        }
+    }
+
+    // --- STATS ---
+    public synchronized double getHitRate() {
+        int lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /** Average age of the answers we served from the cache (how stale they were). */
+    public synchronized long getAverageHitAgeMs() {
+        return hits == 0 ? 0 : totalHitAgeMs / hits;
+    }
+
+    /** e.g. "entries=40 hits=12 (3 approx) misses=30 hitRate=29% avgAge=3600s expired=2 evicted=0" */
+    public synchronized String getStatsSummary() {
+        return "entries=" + entries.size() + " hits=" + hits + " (" + approximateHits + " approx) misses=" + misses
+                + " hitRate=" + Math.round(getHitRate() * 100) + "% avgAge=" + getAverageHitAgeMs() / 1000 + "s"
+                + " expired=" + expired + " evicted=" + evictions;
+    }
+}
@@ -0,0 +1,187 @@
+package com.inclusive.assist;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The bus network, read straight out of the memory-mapped bus_routes.bin asset (compiled from
+ * src/main/routes/*.json by RouteDbCompiler at build time).
+ *
+ * Opening only maps the file and checks the header, so it costs the same for two routes or the
+ * whole city. Nothing is copied onto the heap up front: names are decoded when asked for, and
+ * the OS pages in what's actually read.
+ *
+ * Layout (little-endian ints, then UTF-8):
+ *   header          magic, version, strings, stops, routes, route stops, string bytes, 0
+ *   stringOffsets   strings + 1   (string i is bytes [off[i], off[i+1]) of the blob)
+ *   stopName        stops         (string ids)
+ *   stopLat/Lon     stops each    (micro-degrees)
+ *   routeNumber     routes        (string ids)
+ *   routeDesc       routes        (string ids)
+ *   routeFirstStop  routes + 1    (route r's stops are routeStops[first[r] .. first[r+1]))
+ *   routeStops      route stops   (stop ids)
+ *   blob            string bytes
+ */
+public class RouteDatabase {
+
+    private static final String TAG = "RouteDatabase";
+    public static final String ASSET = "bus_routes.bin";
+
+    static final int MAGIC = 0x42445242;  // "BRDB" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 8;
+    static final double MICRO = 1e6;
+
+    private static RouteDatabase shared;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int stopCount;
+    private final int routeCount;
+
+    // Byte offsets of each section
+    private final int stringOffsets;
+    private final int stopNames;
+    private final int stopLats;
+    private final int stopLons;
+    private final int routeNumbers;
+    private final int routeDescriptions;
+    private final int routeFirstStops;
+    private final int routeStops;
+    private final int blob;
+
+    // --- STATS ---
+    private long openNs = 0;
+    private long stringsDecoded = 0;
+
+    /** The app's route database, mapped on first use and then shared by the bus screens. */
+    public static synchronized RouteDatabase get(Context context) throws IOException {
+        if (shared == null) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            // Needs the asset stored uncompressed (noCompress "bin" in app/build.gradle.kts)
+            try (AssetFileDescriptor fd = context.getAssets().openFd(ASSET);
+                 FileInputStream in = fd.createInputStream()) {
+                shared = new RouteDatabase(in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        fd.getStartOffset(), fd.getDeclaredLength()));
+            }
+            shared.openNs = SystemClock.elapsedRealtimeNanos() - start;
+            Log.d(TAG, shared.getStatsSummary());
+        }
+        return shared;
+    }
+
+    /** Maps a compiled database file (tests and benchmarks). */
+    public static RouteDatabase map(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return new RouteDatabase(in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+        }
+    }
+
+    public RouteDatabase(ByteBuffer data) throws IOException {
+        buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a route database");
+        }
+        if (buffer.getInt(4) != VERSION) throw new IOException("Route database version " + buffer.getInt(4));
+        stringCount = buffer.getInt(8);
+        stopCount = buffer.getInt(12);
+        routeCount = buffer.getInt(16);
+        int routeStopCount = buffer.getInt(20);
+        int blobBytes = buffer.getInt(24);
+
+        stringOffsets = HEADER_INTS * 4;
+        stopNames = stringOffsets + 4 * (stringCount + 1);
+        stopLats = stopNames + 4 * stopCount;
+        stopLons = stopLats + 4 * stopCount;
+        routeNumbers = stopLons + 4 * stopCount;
+        routeDescriptions = routeNumbers + 4 * routeCount;
+        routeFirstStops = routeDescriptions + 4 * routeCount;
+        routeStops = routeFirstStops + 4 * (routeCount + 1);
+        blob = routeStops + 4 * routeStopCount;
+        if (blob + (long) blobBytes != buffer.capacity()) throw new IOException("Route database is truncated");
+    }
+
+    // --- ROUTES ---
+    public int getRouteCount() {
+        return routeCount;
+    }
+
+    public String getBusNumber(int route) {
+        return string(buffer.getInt(routeNumbers + 4 * route));
+    }
+
+    public String getDescription(int route) {
+        return string(buffer.getInt(routeDescriptions + 4 * route));
+    }
+
+    public int getStopCount(int route) {
+        return buffer.getInt(routeFirstStops + 4 * (route + 1)) - buffer.getInt(routeFirstStops + 4 * route);
+    }
+
+    /** Stop id of the index-th stop on a route. */
+    public int getStop(int route, int index) {
+        return buffer.getInt(routeStops + 4 * (buffer.getInt(routeFirstStops + 4 * route) + index));
+    }
+
+    /** "500-D - Silk Board to Hebbal" for every route, decoded as the list is scrolled. */
+    public List<String> routeLabels() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int route) {
+                return getBusNumber(route) + " - " + getDescription(route);
+            }
+
+            @Override
+            public int size() {
+                return routeCount;
+            }
+        };
+    }
+
+    // --- STOPS ---
+    public int getStopCount() {
+        return stopCount;
+    }
+
+    public String getStopName(int stop) {
+        return string(buffer.getInt(stopNames + 4 * stop));
+    }
+
+    public double getStopLat(int stop) {
+        return buffer.getInt(stopLats + 4 * stop) / MICRO;
+    }
+
+    public double getStopLon(int stop) {
+        return buffer.getInt(stopLons + 4 * stop) / MICRO;
+    }
+
+    private String string(int id) {
+        int start = buffer.getInt(stringOffsets + 4 * id);
+        int end = buffer.getInt(stringOffsets + 4 * (id + 1));
+        byte[] bytes = new byte[end - start];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(blob + start);
+        slice.get(bytes);
+        stringsDecoded++;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- STATS ---
+    public String getStatsSummary() {
+        return String.format(Locale.US, "routes=%d stops=%d strings=%d size=%dKB open=%.2fms decoded=%d",
+                routeCount, stopCount, stringCount, buffer.capacity() / 1024, openNs / 1e6, stringsDecoded);
+    }
+}
@@ -6,23 +6,23 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.net.Uri;
-import android.speech.tts.TextToSpeech;
 import android.widget.Toast;
 import androidx.core.app.ActivityCompat;
 
 public class SOSHelper {
 
-    public static void triggerSOS(Context context, TextToSpeech tts) {
+    public static void triggerSOS(Context context) {
         SharedPreferences prefs = context.getSharedPreferences("InclusiveAssist", Context.MODE_PRIVATE);
         String number = prefs.getString("EmergencyNumber", "");
 
         if (number.isEmpty()) {
-            speak(tts, "No emergency number saved.");
+            speak("No emergency number saved.");
             Toast.makeText(context, "No emergency number saved.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        speak(tts, "Emergency! Calling now.");
+        // Nothing else may talk over this
+        SpeechService.get().speak("Emergency! Calling now.", UtteranceScheduler.Priority.EMERGENCY);
 
         // 1. WhatsApp Location Share (Simplified for generic context, ideally needs loc)
         // We skip location usage here to keep it simple and fast for shake, 
@@ -36,7 +36,7 @@ public class SOSHelper {
                 callIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK); // Needed for non-Activity context if any
                 context.startActivity(callIntent);
             } catch (Exception e) {
-                speak(tts, "Call failed.");
+                speak("Call failed.");
             }
         } else {
             // Fallback to Dial Pad if permission denied
@@ -47,9 +47,7 @@ public class SOSHelper {
         }
     }
 
-    private static void speak(TextToSpeech tts, String text) {
-        if (tts != null) {
-            tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
-        }
+    private static void speak(String text) {
+        SpeechService.get().speak(text);
     }
 }
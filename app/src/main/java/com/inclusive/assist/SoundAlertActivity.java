@@ -3,8 +3,10 @@ package com.inclusive.assist;
 import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Color;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -13,36 +15,74 @@ import android.os.Vibrator;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
+import android.text.InputType;
+import android.text.TextUtils;
 import android.util.Log;
+import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 public class SoundAlertActivity extends AppCompatActivity {
 
     private static final String TAG = "SoundAlertActivity";
-    private TextView tvDecibel, tvStatus, tvTranscription;
+    private TextView tvDecibel, tvStatus, tvTranscription, tvKeywordAlert;
     private ImageView ivSoundIcon;
     private LinearLayout layoutBackground;
-    private Button btnToggle;
+    private Button btnToggle, btnAnnouncements, btnKeywords;
     
     private SpeechRecognizer speechRecognizer;
     private Intent speechIntent;
     private Vibrator vibrator;
+    private SoundLevelMonitor levelMonitor; // Own mic thread: works with or without the recognizer
+    private WatchWordMatcher watchWords;    // Watch list over the announcement transcripts
+    private CaptionRenderer captions;       // Partials drawn once per frame, only the changed tail
+    private SharedPreferences prefs;
     
     private boolean isListening = false;
     private final Handler handler = new Handler(Looper.getMainLooper());
     private static final int PERMISSION_CODE = 200;
 
+    // --- LOUDNESS ---
+    private static final float LOUD_DB = 80f;          // dB(A): shouting, a door slam, a horn nearby
+    private static final float HYSTERESIS_DB = 6f;     // Back to quiet only under 74 dB(A)
+    private static final float DEFAULT_CALIBRATION_DB = 110f; // Typical phone mic: -30 dBFS ~ 80 dB SPL
+    private static final String PREF_CALIBRATION = "sound_calibration_db";
+    private static final String PREF_ANNOUNCEMENTS = "sound_announcements";
+
+    // --- WATCH WORDS ---
+    private static final String PREF_KEYWORDS = "alert_keywords"; // One phrase per line
+    private static final long[] KEYWORD_VIBRATION = {0, 700, 150, 700, 150, 700, 150, 700};
+    private static final int[] KEYWORD_AMPLITUDES = {0, 255, 0, 255, 0, 255, 0, 255};
+
+    // --- RECOGNISED SOUNDS ---
+    private static final long SOUND_ALERT_MS = 4000;   // Class alert stays up this long
+    private SoundClassifier.Sound shownSound;           // Takes over the screen from the loudness alert
+    private boolean loud = false;
+    private final Runnable clearSound = () -> {
+        shownSound = null;
+        tvStatus.setText(isListening ? "Listening..." : "Paused");
+        tvStatus.setTextColor(Color.parseColor("#AAAAAA"));
+        if (loud) {
+            showLoud();
+        } else {
+            clearAlert();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -54,14 +94,66 @@ public class SoundAlertActivity extends AppCompatActivity {
         ivSoundIcon = findViewById(R.id.ivSoundIcon);
         layoutBackground = findViewById(R.id.layoutBackground);
         btnToggle = findViewById(R.id.btnToggle);
+        btnAnnouncements = findViewById(R.id.btnAnnouncements);
+        btnKeywords = findViewById(R.id.btnKeywords);
+        tvKeywordAlert = findViewById(R.id.tvKeywordAlert);
+        captions = new CaptionRenderer(tvTranscription, getWindow());
         
         vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
+        prefs = getSharedPreferences("InclusiveAssist", Context.MODE_PRIVATE);
+
+        levelMonitor = new SoundLevelMonitor(prefs.getFloat(PREF_CALIBRATION, DEFAULT_CALIBRATION_DB), LOUD_DB, HYSTERESIS_DB,
+                new SoundLevelMonitor.Listener() {
+                    @Override
+                    public void onLevel(float levelDb, float peakDbfs) {
+                        tvDecibel.setText(String.format(Locale.US, "%.0f dB(A)", levelDb));
+                    }
+
+                    @Override
+                    public void onLoudChanged(boolean isLoud) {
+                        loud = isLoud;
+                        if (shownSound != null) return; // Sound alert is up; clearSound restores this after
+                        if (isLoud) {
+                            triggerAlert();
+                        } else {
+                            clearAlert();
+                        }
+                    }
+
+                    @Override
+                    public void onSound(SoundClassifier.Sound sound) {
+                        showSound(sound);
+                    }
+                });
+
+        // Long-press the reading to calibrate it against a real sound level meter
+        tvDecibel.setOnLongClickListener(v -> {
+            showCalibration();
+            return true;
+        });
+
+        watchWords = new WatchWordMatcher(loadKeywords());
+        btnKeywords.setOnClickListener(v -> showKeywords());
+        // Tap the highlight to close it
+        tvKeywordAlert.setOnClickListener(v -> tvKeywordAlert.setVisibility(View.GONE));
+
+        updateAnnouncementsButton();
+        btnAnnouncements.setOnClickListener(v -> {
+            boolean on = !announcementsOn();
+            prefs.edit().putBoolean(PREF_ANNOUNCEMENTS, on).apply();
+            updateAnnouncementsButton();
+            if (!isListening) return;
+            if (on) {
+                startRecognizer();
+            } else {
+                stopRecognizer();
+            }
+        });
 
         // Check Permissions
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, PERMISSION_CODE);
         } else {
-            initSpeechRecognizer();
             startListening();
         }
 
@@ -86,9 +178,8 @@ public class SoundAlertActivity extends AppCompatActivity {
         speechRecognizer.setRecognitionListener(new RecognitionListener() {
             @Override
             public void onReadyForSpeech(Bundle params) {
-                 tvStatus.setText("Listening for Announcements...");
-                 ivSoundIcon.setColorFilter(Color.parseColor("#4CAF50")); // Green
-                 layoutBackground.setBackgroundColor(Color.BLACK);
+                 if (shownSound == null) tvStatus.setText("Listening for Announcements...");
+                 // Alert colours belong to levelMonitor: a restart mustn't clear a loud alert
             }
 
             @Override
@@ -96,24 +187,7 @@ public class SoundAlertActivity extends AppCompatActivity {
 
             @Override
             public void onRmsChanged(float rmsdB) {
-                // RMS dB usually ranges from -2 to 10+ depending on device. 
-                // We'll treat > 8 as "Loud" tentatively.
-                int db = (int) rmsdB; // Simplified mapping
-                // For UI, we might want to scale it to look like decibels (e.g., +40 offset?)
-                // Let's just show the raw indicative value or a mapped one.
-                // Assuming typical speech is ~5-6, loud is 8-10.
-                
-                // Let's map it roughly to SPL for display (Approximate)
-                int displayDb = (int) (rmsdB * 4) + 40; 
-                tvDecibel.setText(displayDb + " dB (Approx)");
-
-                if (rmsdB > 10) { // Threshold for "Loud"
-                    triggerAlert();
-                } else {
-                    // reset handled in onReady or manually? 
-                    // We don't want to flash reset constantly.
-                    // Keep detection logic simple.
-                }
+                // Loudness comes from levelMonitor, not from the recognizer
             }
 
             @Override
@@ -130,7 +204,8 @@ public class SoundAlertActivity extends AppCompatActivity {
                 // Automatically restart listening on error (common in continuous listening)
                 // Error 7 is No Match, Error 6 is Input timeout.
                 Log.e(TAG, "Error: " + error);
-                if (isListening) {
+                watchWords.reset();
+                if (isListening && announcementsOn()) {
                     resetRecognizer();
                 }
             }
@@ -140,21 +215,24 @@ public class SoundAlertActivity extends AppCompatActivity {
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 if (matches != null && !matches.isEmpty()) {
                     String text = matches.get(0);
-                    tvTranscription.setText(text);
-                    tvStatus.setText("Announcement Captured!");
+                    captions.showFinal(text);
+                    List<String> heard = watchWords.finish(text);
+                    showKeywordAlert(heard, text);
+                    if (shownSound == null) tvStatus.setText("Announcement Captured!");
                     
                     // If capturing actual speech, assume it's relevant -> Vibrate slightly?
-                    vibrate(50);
+                    if (heard.isEmpty()) vibrate(50); // Don't cut the watch word buzz short
                 }
                 // Continue listening
-                if (isListening) startListening();
+                if (isListening && announcementsOn()) startRecognizer();
             }
 
             @Override
             public void onPartialResults(Bundle partialResults) {
                 ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 if (matches != null && !matches.isEmpty()) {
-                    tvTranscription.setText(matches.get(0));
+                    captions.showPartial(matches.get(0));
+                    showKeywordAlert(watchWords.update(matches.get(0)), matches.get(0));
                 }
             }
 
@@ -164,27 +242,99 @@ public class SoundAlertActivity extends AppCompatActivity {
     }
 
     private void startListening() {
+        levelMonitor.start();
+        isListening = true;
+        btnToggle.setText("Stop Listening");
+        tvStatus.setText("Listening...");
+        if (announcementsOn()) startRecognizer();
+    }
+
+    private void stopListening() {
+        levelMonitor.stop();
+        stopRecognizer();
+        isListening = false;
+        btnToggle.setText("Start Listening");
+        handler.removeCallbacks(clearSound);
+        shownSound = null;
+        loud = false;
+        tvStatus.setText("Paused");
+        tvStatus.setTextColor(Color.parseColor("#AAAAAA"));
+        clearAlert();
+    }
+
+    // --- ANNOUNCEMENTS (optional speech recognizer) ---
+    // The recognizer opens the mic alongside levelMonitor's AudioRecord. Before Android 10 two
+    // captures can't run at once (one of them fails to start), so announcements aren't offered
+    // there. From 10 on both run, but the system may hand silence to one of them while the other
+    // records (e.g. another app's call or assistant), so announcements are off unless the user
+    // asks for them, and sound alerts never depend on the recognizer.
+    private static boolean canShareMic() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    private boolean announcementsOn() {
+        return canShareMic() && prefs.getBoolean(PREF_ANNOUNCEMENTS, false);
+    }
+
+    private void updateAnnouncementsButton() {
+        if (!canShareMic()) {
+            btnAnnouncements.setEnabled(false);
+            btnAnnouncements.setText("Announcements: Needs Android 10");
+            return;
+        }
+        btnAnnouncements.setText(announcementsOn() ? "Announcements: On" : "Announcements: Off");
+    }
+
+    // --- WATCH WORDS ---
+    private List<String> loadKeywords() {
+        return Arrays.asList(prefs.getString(PREF_KEYWORDS, "").split("\n"));
+    }
+
+    private void showKeywords() {
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE);
+        input.setMinLines(3);
+        input.setHint("One per line, e.g.\nplatform 3\nyour name");
+        input.setText(prefs.getString(PREF_KEYWORDS, ""));
+        new AlertDialog.Builder(this)
+                .setTitle("Alert me when I hear")
+                .setView(input)
+                .setPositiveButton("Save", (d, w) -> {
+                    prefs.edit().putString(PREF_KEYWORDS, input.getText().toString().trim()).apply();
+                    watchWords = new WatchWordMatcher(loadKeywords());
+                    Log.d(TAG, "Watch words: " + watchWords.getStatsSummary());
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showKeywordAlert(List<String> heard, String transcript) {
+        if (heard.isEmpty()) return;
+        tvKeywordAlert.setText(TextUtils.join("\n", heard).toUpperCase(Locale.getDefault()) + "\n\n" + transcript);
+        tvKeywordAlert.setVisibility(View.VISIBLE);
+        if (vibrator != null) {
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+                vibrator.vibrate(VibrationEffect.createWaveform(KEYWORD_VIBRATION, KEYWORD_AMPLITUDES, -1));
+            } else {
+                vibrator.vibrate(KEYWORD_VIBRATION, -1);
+            }
+        }
+    }
+
+    private void startRecognizer() {
         if (speechRecognizer == null) initSpeechRecognizer();
-        
         try {
             speechRecognizer.startListening(speechIntent);
-            isListening = true;
-            btnToggle.setText("Stop Listening");
-            tvStatus.setText("Listening...");
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void stopListening() {
+    private void stopRecognizer() {
         if (speechRecognizer != null) {
             speechRecognizer.stopListening();
             speechRecognizer.cancel();
         }
-        isListening = false;
-        btnToggle.setText("Start Listening");
-        tvStatus.setText("Paused");
-        layoutBackground.setBackgroundColor(Color.BLACK);
     }
     
     // Helper to restart
@@ -196,9 +346,53 @@ public class SoundAlertActivity extends AppCompatActivity {
     }
 
     private void triggerAlert() {
+        showLoud();
+        vibrate(100);
+    }
+
+    private void showLoud() {
         ivSoundIcon.setColorFilter(Color.RED);
         layoutBackground.setBackgroundColor(Color.parseColor("#330000")); // Dark Red
-        vibrate(100);
+    }
+
+    /** Each sound has its own colour, label and buzz pattern, so it can be told apart without looking twice. */
+    private void showSound(SoundClassifier.Sound sound) {
+        shownSound = sound;
+        layoutBackground.setBackgroundColor(sound.color);
+        ivSoundIcon.setColorFilter(Color.WHITE);
+        tvStatus.setText(sound.label);
+        tvStatus.setTextColor(Color.WHITE);
+        vibratePattern(sound.vibration);
+        handler.removeCallbacks(clearSound);
+        handler.postDelayed(clearSound, SOUND_ALERT_MS);
+    }
+
+    private void clearAlert() {
+        ivSoundIcon.setColorFilter(Color.parseColor("#4CAF50")); // Green
+        layoutBackground.setBackgroundColor(Color.BLACK);
+    }
+
+    private void showCalibration() {
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        input.setHint("Reading of a real meter, e.g. 65");
+        new AlertDialog.Builder(this)
+                .setTitle("Calibrate sound level")
+                .setView(input)
+                .setPositiveButton("Set", (d, w) -> {
+                    try {
+                        levelMonitor.calibrate(Float.parseFloat(input.getText().toString()));
+                        prefs.edit().putFloat(PREF_CALIBRATION, levelMonitor.getCalibration()).apply();
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Enter a number", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNeutralButton("Reset", (d, w) -> {
+                    levelMonitor.setCalibration(DEFAULT_CALIBRATION_DB);
+                    prefs.edit().remove(PREF_CALIBRATION).apply();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
     
     private void vibrate(long duration) {
@@ -211,9 +405,22 @@ public class SoundAlertActivity extends AppCompatActivity {
         }
     }
 
+    private void vibratePattern(long[] timings) {
+        if (vibrator != null) {
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+                vibrator.vibrate(VibrationEffect.createWaveform(timings, -1));
+            } else {
+                vibrator.vibrate(timings, -1);
+            }
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        handler.removeCallbacks(clearSound);
+        captions.release();
+        levelMonitor.stop();
         if (speechRecognizer != null) {
             speechRecognizer.destroy();
         }
@@ -224,7 +431,6 @@ public class SoundAlertActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == PERMISSION_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                initSpeechRecognizer();
                 startListening();
             } else {
                 Toast.makeText(this, "Permission Denied", Toast.LENGTH_SHORT).show();
@@ -0,0 +1,160 @@
+package com.inclusive.assist;
+
+/**
+ * Sound level from raw PCM: A-weighted RMS and peak per block, in dBFS, plus a calibrated
+ * "dB" reading and a loud/quiet state with hysteresis (so a level hovering at the threshold
+ * doesn't flicker the alert on and off).
+ *
+ * A-weighting is the analog IEC 61672 curve (poles at 20.6, 107.7, 737.9 and 12194 Hz) turned
+ * into six first-order IIR sections with the bilinear transform, normalized to 0 dB at 1 kHz.
+ * All state is preallocated: process() allocates nothing. One thread feeds it; the calibration
+ * and threshold may be changed from another.
+ */
+public class SoundLevelMeter {
+
+    private static final double[] HIGH_PASS_HZ = {20.598997, 20.598997, 107.65265, 737.86223};
+    private static final double[] LOW_PASS_HZ = {12194.217, 12194.217};
+    private static final double FULL_SCALE = 32768.0;
+    private static final float SILENCE_DB = -120f;
+
+    // First-order sections: y = b0*x + b1*x1 - a1*y1
+    private final double[] b0 = new double[6];
+    private final double[] b1 = new double[6];
+    private final double[] a1 = new double[6];
+    private final double[] x1 = new double[6];
+    private final double[] y1 = new double[6];
+    private final double gain;
+
+    private volatile float calibrationDb;  // Added to dBFS: dB SPL for a calibrated phone
+    private volatile float loudOnDb;
+    private volatile float loudOffDb;
+    private final int attackBlocks;
+    private final int releaseBlocks;
+
+    private float rmsDbfs = SILENCE_DB;
+    private float peakDbfs = SILENCE_DB;
+    private boolean loud = false;
+    private int overRun = 0;
+    private int underRun = 0;
+
+    /**
+     * @param loudDb       calibrated level that counts as loud
+     * @param hysteresisDb it has to drop this far below loudDb to count as quiet again
+     * @param attackBlocks blocks in a row over loudDb before it is loud
+     * @param releaseBlocks blocks in a row under the release level before it is quiet
+     */
+    public SoundLevelMeter(int sampleRate, float calibrationDb, float loudDb, float hysteresisDb, int attackBlocks, int releaseBlocks) {
+        double k = 2.0 * sampleRate;
+        int s = 0;
+        for (double hz : HIGH_PASS_HZ) {
+            double w = 2 * Math.PI * hz;
+            b0[s] = k / (k + w);
+            b1[s] = -k / (k + w);
+            a1[s] = (w - k) / (k + w);
+            s++;
+        }
+        for (double hz : LOW_PASS_HZ) {
+            double w = 2 * Math.PI * hz;
+            b0[s] = w / (k + w);
+            b1[s] = w / (k + w);
+            a1[s] = (w - k) / (k + w);
+            s++;
+        }
+        gain = 1.0 / response(1000.0 / sampleRate);
+        this.calibrationDb = calibrationDb;
+        setThreshold(loudDb, hysteresisDb);
+        this.attackBlocks = Math.max(1, attackBlocks);
+        this.releaseBlocks = Math.max(1, releaseBlocks);
+    }
+
+    /** Magnitude of the cascade at a normalized frequency (cycles per sample). */
+    private double response(double f) {
+        double re = Math.cos(2 * Math.PI * f), im = -Math.sin(2 * Math.PI * f); // z^-1
+        double mag = 1;
+        for (int s = 0; s < b0.length; s++) {
+            double numRe = b0[s] + b1[s] * re, numIm = b1[s] * im;
+            double denRe = 1 + a1[s] * re, denIm = a1[s] * im;
+            mag *= Math.sqrt((numRe * numRe + numIm * numIm) / (denRe * denRe + denIm * denIm));
+        }
+        return mag;
+    }
+
+    /** A-weighting gain in dB at hz (for checks and the UI). */
+    public double weightingDb(double hz, int sampleRate) {
+        return 20 * Math.log10(gain * response(hz / sampleRate));
+    }
+
+    public void setCalibration(float calibrationDb) {
+        this.calibrationDb = calibrationDb;
+    }
+
+    public void setThreshold(float loudDb, float hysteresisDb) {
+        this.loudOnDb = loudDb;
+        this.loudOffDb = loudDb - Math.max(0, hysteresisDb);
+    }
+
+    /** Measure one block. Returns true if the loud/quiet state changed. */
+    public boolean process(short[] pcm, int length) {
+        double sum = 0;
+        int peak = 0;
+        for (int i = 0; i < length; i++) {
+            int raw = pcm[i];
+            peak = Math.max(peak, Math.abs(raw));
+            double v = raw * gain;
+            for (int s = 0; s < 6; s++) {
+                double out = b0[s] * v + b1[s] * x1[s] - a1[s] * y1[s];
+                x1[s] = v;
+                y1[s] = out;
+                v = out;
+            }
+            sum += v * v;
+        }
+        rmsDbfs = toDb(Math.sqrt(sum / Math.max(1, length)));
+        peakDbfs = toDb(peak);
+
+        // Hysteresis: on above loudOnDb, off only once below loudOffDb for a while
+        float level = getLevelDb();
+        boolean was = loud;
+        if (!loud) {
+            overRun = level >= loudOnDb ? overRun + 1 : 0;
+            if (overRun >= attackBlocks) {
+                loud = true;
+                underRun = 0;
+            }
+        } else {
+            underRun = level < loudOffDb ? underRun + 1 : 0;
+            if (underRun >= releaseBlocks) {
+                loud = false;
+                overRun = 0;
+            }
+        }
+        return loud != was;
+    }
+
+    private static float toDb(double amplitude) {
+        return amplitude <= 0 ? SILENCE_DB : Math.max(SILENCE_DB, (float) (20 * Math.log10(amplitude / FULL_SCALE)));
+    }
+
+    /** A-weighted RMS of the last block, dBFS (0 = full-scale square wave). */
+    public float getRmsDbfs() {
+        return rmsDbfs;
+    }
+
+    /** Unweighted sample peak of the last block, dBFS. */
+    public float getPeakDbfs() {
+        return peakDbfs;
+    }
+
+    /** Calibrated A-weighted level, "dB(A)". */
+    public float getLevelDb() {
+        return rmsDbfs + calibrationDb;
+    }
+
+    public float getCalibration() {
+        return calibrationDb;
+    }
+
+    public boolean isLoud() {
+        return loud;
+    }
+}
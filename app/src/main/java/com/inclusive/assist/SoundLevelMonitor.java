@@ -0,0 +1,160 @@
+package com.inclusive.assist;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Measures the room on its own AudioRecord thread with a SoundLevelMeter, 10 blocks a second,
+ * and runs the same blocks through a SoundClassifier. Doesn't need the speech recognizer.
+ * Buffers and the UI runnables are made once, so the capture loop allocates nothing per block.
+ */
+public class SoundLevelMonitor {
+
+    private static final String TAG = "SoundLevelMonitor";
+    private static final int SAMPLE_RATE = 44100;        // Every device has it; A-weighting is exact to ~6 kHz
+    private static final int BLOCK = SAMPLE_RATE / 10;   // 100ms
+
+    public interface Listener {
+        /** Main thread, once per block. */
+        void onLevel(float levelDb, float peakDbfs);
+
+        /** Main thread, when the meter goes loud or back to quiet. */
+        void onLoudChanged(boolean loud);
+
+        /** Main thread, when the classifier recognises a sound. */
+        default void onSound(SoundClassifier.Sound sound) {}
+    }
+
+    private final SoundLevelMeter meter;
+    private final SoundClassifier classifier = new SoundClassifier(SAMPLE_RATE);
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Thread thread;
+    private volatile boolean running = false;
+
+    // Latest block, read by the runnables on the main thread
+    private volatile float levelDb;
+    private volatile float peakDbfs;
+    private volatile boolean loud;
+    private volatile SoundClassifier.Sound sound;
+    private final Runnable postLevel = () -> {
+        if (running) listener.onLevel(levelDb, peakDbfs);
+    };
+    private final Runnable postLoud = () -> {
+        if (running) listener.onLoudChanged(loud);
+    };
+    private final Runnable postSound = () -> {
+        if (running) listener.onSound(sound);
+    };
+
+    // --- STATS ---
+    private volatile long blocks = 0;
+    private volatile long cpuNs = 0;
+
+    public SoundLevelMonitor(float calibrationDb, float loudDb, float hysteresisDb, Listener listener) {
+        // Loud after 0.2s over the line, quiet after 1s under it
+        this.meter = new SoundLevelMeter(SAMPLE_RATE, calibrationDb, loudDb, hysteresisDb, 2, 10);
+        this.listener = listener;
+    }
+
+    /** Needs RECORD_AUDIO. */
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::captureLoop, "SoundLevel");
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(postLevel);
+        handler.removeCallbacks(postLoud);
+        handler.removeCallbacks(postSound);
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** The calibrated level we're showing now becomes actualDb (from a reference meter). */
+    public void calibrate(float actualDb) {
+        setCalibration(actualDb - (levelDb - meter.getCalibration()));
+    }
+
+    public void setCalibration(float calibrationDb) {
+        meter.setCalibration(calibrationDb);
+    }
+
+    public float getCalibration() {
+        return meter.getCalibration();
+    }
+
+    @SuppressLint("MissingPermission") // Caller checks RECORD_AUDIO
+    private void captureLoop() {
+        int min = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        // UNPROCESSED would skip AGC/noise suppression but isn't on every device; MIC is
+        AudioRecord record = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, Math.max(min, BLOCK * 2 * 2));
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "Mic not available");
+            record.release();
+            running = false;
+            return;
+        }
+
+        short[] block = new short[BLOCK];
+        classifier.reset(); // Fresh noise floor for this room
+        record.startRecording();
+        try {
+            while (running) {
+                int n = record.read(block, 0, BLOCK);
+                if (n <= 0) {
+                    Log.e(TAG, "Mic read failed: " + n);
+                    break;
+                }
+                long start = System.nanoTime();
+                boolean changed = meter.process(block, n);
+                levelDb = meter.getLevelDb();
+                peakDbfs = meter.getPeakDbfs();
+                loud = meter.isLoud();
+                cpuNs += System.nanoTime() - start;
+                blocks++;
+                SoundClassifier.Sound found = classifier.feed(block, n); // Times itself
+
+                handler.removeCallbacks(postLevel); // UI busy: show only the newest
+                handler.post(postLevel);
+                if (changed) handler.post(postLoud);
+                if (found != null) {
+                    sound = found;
+                    handler.removeCallbacks(postSound);
+                    handler.post(postSound);
+                }
+            }
+        } finally {
+            record.stop();
+            record.release();
+            Log.d(TAG, getStatsSummary());
+        }
+    }
+
+    public String getStatsSummary() {
+        double perBlockUs = blocks == 0 ? 0 : cpuNs / 1000.0 / blocks;
+        return String.format(Locale.US, "blocks=%d dsp=%.0fus/block (%.2f%% of a core) calibration=%.1fdB | classifier %s",
+                blocks, perBlockUs, perBlockUs / 1000.0, meter.getCalibration(), classifier.getStatsSummary());
+    }
+}
@@ -0,0 +1,244 @@
+package com.inclusive.assist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * One TextToSpeech engine for the whole app.
+ *
+ * Started once from InclusiveAssistApp, so the engine is already bound and warm when a
+ * screen opens, instead of every activity binding (and shutting down) its own. What gets
+ * said, and in which order, is decided by an UtteranceScheduler (priorities, dedup);
+ * anything it plays before the engine is ready is held and spoken as soon as it is. If the
+ * engine can't start (tried twice), utterances finish at once so nothing waits behind them.
+ * Fixed phrases are played from pre-rendered audio (PhraseCache), everything else is live TTS.
+ */
+public class SpeechService implements UtteranceScheduler.Player {
+
+    private static final String TAG = "SpeechService";
+    private static final String ID_PREFIX = "say-";
+
+    private static SpeechService instance;
+
+    private final Context context;
+    private TextToSpeech tts;
+    private final UtteranceScheduler scheduler = new UtteranceScheduler(this);
+    private final PhraseCache phraseCache;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long createdAt;
+    private boolean ready = false;
+    private boolean retried = false;
+    private boolean failed = false;  // No engine: utterances finish without being spoken
+    private UtteranceScheduler.Utterance pending; // Played once the engine is ready
+
+    // --- STATS ---
+    private long engineReadyMs = -1;
+    private long firstUtteranceMs = -1;
+    // Not the same end point, so not a like-for-like comparison: SoundPool has no "audio started"
+    // callback, so a clip is timed until play() returns (the mixer starts it a buffer later),
+    // while live speech is timed until the engine's onStart (synthesis done, audio starting)
+    private final LatencyWindow cachedToPlay = new LatencyWindow(50);   // say() -> SoundPool.play() returned
+    private final LatencyWindow liveToStart = new LatencyWindow(50);    // say() -> TTS onStart
+    private long liveId = -1;
+    private long liveSaidAt;
+
+    private SpeechService(Context context) {
+        this.context = context;
+        createdAt = System.currentTimeMillis();
+        phraseCache = new PhraseCache(context);
+        tts = new TextToSpeech(context, this::onInit);
+    }
+
+    /** Call once from Application.onCreate(). */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new SpeechService(context.getApplicationContext());
+        }
+    }
+
+    public static synchronized SpeechService get() {
+        if (instance == null) {
+            throw new IllegalStateException("SpeechService.init() was not called");
+        }
+        return instance;
+    }
+
+    private synchronized void onInit(int status) {
+        if (status != TextToSpeech.SUCCESS) {
+            Log.e(TAG, "TTS engine failed to start: " + status);
+            tts.shutdown();
+            if (!retried) {
+                // Often a one-off (engine updating or still binding): try once more
+                retried = true;
+                tts = new TextToSpeech(context, this::onInit);
+                return;
+            }
+            failed = true;
+            if (pending != null) {
+                // Release the scheduler, or everything queued would wait behind this forever
+                long id = pending.id;
+                pending = null;
+                handler.post(() -> scheduler.onFinished(id));
+            }
+            return;
+        }
+        tts.setLanguage(Locale.US);
+        tts.setOnUtteranceProgressListener(new ProgressListener());
+        ready = true;
+        engineReadyMs = System.currentTimeMillis() - createdAt;
+        Log.d(TAG, "Engine ready in " + engineReadyMs + "ms");
+
+        if (pending != null) {
+            UtteranceScheduler.Utterance utterance = pending;
+            pending = null;
+            say(utterance);
+        }
+
+        // Render/load the fixed phrases now that the main engine is up (separate engine instance)
+        phraseCache.prepare();
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /** Something the user asked for (button, voice command). */
+    public boolean speak(String text) {
+        return speak(text, UtteranceScheduler.Priority.USER, null);
+    }
+
+    public boolean speak(String text, UtteranceScheduler.Priority priority) {
+        return speak(text, priority, null);
+    }
+
+    /**
+     * Queue a message. It may cut off less important speech, wait behind more important
+     * speech, or be dropped as a repeat (returns false, no callback).
+     */
+    public boolean speak(String text, UtteranceScheduler.Priority priority,
+                         @Nullable UtteranceScheduler.UtteranceCallback callback) {
+        return speak(text, priority, callback, null);
+    }
+
+    /**
+     * Same, on behalf of owner (usually the activity): cancel(owner) takes it back. Anything
+     * with a callback into a screen should have one, so the screen isn't kept alive by it.
+     */
+    public boolean speak(String text, UtteranceScheduler.Priority priority,
+                         @Nullable UtteranceScheduler.UtteranceCallback callback, @Nullable Object owner) {
+        return scheduler.submit(text, priority, callback, owner);
+    }
+
+    /** Drop what owner queued and cut it off if it is talking (call from onDestroy). Others keep talking. */
+    public void cancel(Object owner) {
+        scheduler.cancel(owner);
+    }
+
+    /** Silence everything, queued messages included. */
+    public void stop() {
+        scheduler.stopAll();
+    }
+
+    // --- PLAYER (called by the scheduler) ---
+    @Override
+    public synchronized void play(UtteranceScheduler.Utterance u) {
+        if (failed) {
+            // Not from inside the scheduler's call into us
+            handler.post(() -> scheduler.onFinished(u.id));
+            return;
+        }
+        if (!ready) {
+            // Engine still starting: the scheduler only ever has one current utterance
+            pending = u;
+            return;
+        }
+        say(u);
+    }
+
+    @Override
+    public synchronized void stopPlayback() {
+        pending = null;
+        phraseCache.stop();
+        if (ready) tts.stop();
+    }
+
+    private void say(UtteranceScheduler.Utterance u) {
+        // The scheduler already decided this should cut off whatever is playing
+        long start = System.currentTimeMillis();
+        phraseCache.stop();
+
+        // Fixed phrase: pre-rendered clip, no synthesis
+        if (phraseCache.play(u.text, () -> scheduler.onFinished(u.id))) {
+            tts.stop();
+            cachedToPlay.record(System.currentTimeMillis() - start, true);
+            // Not from inside the scheduler's call into us
+            handler.post(() -> scheduler.onStarted(u.id));
+            return;
+        }
+
+        liveId = u.id;
+        liveSaidAt = start;
+        if (tts.speak(u.text, TextToSpeech.QUEUE_FLUSH, null, ID_PREFIX + u.id) != TextToSpeech.SUCCESS) {
+            Log.e(TAG, "TTS rejected: " + u.text);
+            handler.post(() -> scheduler.onFinished(u.id)); // No callback will come for it
+        }
+    }
+
+    private class ProgressListener extends UtteranceProgressListener {
+        @Override
+        public void onStart(String utteranceId) {
+            synchronized (SpeechService.this) {
+                if (idOf(utteranceId) == liveId) liveToStart.record(System.currentTimeMillis() - liveSaidAt, true);
+                if (firstUtteranceMs < 0) {
+                    // From app start, so it includes binding the engine
+                    firstUtteranceMs = System.currentTimeMillis() - createdAt;
+                    Log.d(TAG, "First utterance " + firstUtteranceMs + "ms after start");
+                }
+            }
+            scheduler.onStarted(idOf(utteranceId));
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            scheduler.onFinished(idOf(utteranceId));
+        }
+
+        @Override
+        public void onError(String utteranceId) {
+            scheduler.onFinished(idOf(utteranceId));
+        }
+
+        @Override
+        public void onStop(String utteranceId, boolean interrupted) {
+            // QUEUE_FLUSH cut it off: onDone never comes for this one
+            scheduler.onFinished(idOf(utteranceId));
+        }
+
+        private long idOf(String utteranceId) {
+            return Long.parseLong(utteranceId.substring(ID_PREFIX.length()));
+        }
+    }
+
+    /**
+     * e.g. "engineReady=420ms firstUtterance=610ms cachedToPlay[n=9 ... p50=4ms] liveToStart[n=5 ... p50=180ms]
+     * phrases=37 EMERGENCY[n=1 ...] ... preempted=2 deduped=5 ..."
+     */
+    public String getStatsSummary() {
+        String startup;
+        synchronized (this) {
+            startup = "engineReady=" + engineReadyMs + "ms firstUtterance=" + firstUtteranceMs + "ms cachedToPlay["
+                    + cachedToPlay.getSummary() + "] liveToStart[" + liveToStart.getSummary() + "] phrases="
+                    + phraseCache.size() + " ";
+        }
+        // Outside our lock: the scheduler calls into us while holding its own
+        return startup + scheduler.getStatsSummary();
+    }
+}
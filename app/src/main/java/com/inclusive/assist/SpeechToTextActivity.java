@@ -7,7 +7,10 @@ import android.os.Bundle;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
-import android.speech.tts.TextToSpeech;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -16,14 +19,22 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SpeechToTextActivity extends AppCompatActivity {
 
+    private static final String TAG = "SpeechToText";
+    private static final String HISTORY_FILE = "sent_messages.txt";
+
     // 1. Components for Listening
     private SpeechRecognizer speechRecognizer;
     private TextView tvOutput;
+    private CaptionRenderer captions; // Partials drawn once per frame, only the changed tail
     private FloatingActionButton btnMic;
     private Intent speechIntent;
     private boolean isListening = false;
@@ -31,7 +42,9 @@ public class SpeechToTextActivity extends AppCompatActivity {
     // 2. Components for Speaking (Typing)
     private EditText etTypeBox;
     private Button btnSpeak;
-    private TextToSpeech tts;
+    private Button[] btnSuggest;
+    private PhrasePredictor predictor; // Null until the history has been read
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor(); // History reads and writes
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,22 +56,47 @@ public class SpeechToTextActivity extends AppCompatActivity {
         btnMic = findViewById(R.id.btnMic);
         etTypeBox = findViewById(R.id.etTypeBox);
         btnSpeak = findViewById(R.id.btnSpeak);
+        captions = new CaptionRenderer(tvOutput, getWindow());
+        btnSuggest = new Button[]{
+                findViewById(R.id.btnSuggest1), findViewById(R.id.btnSuggest2), findViewById(R.id.btnSuggest3)
+        };
 
-        // --- PART A: SETUP TEXT-TO-SPEECH (For Typing) ---
-        tts = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                tts.setLanguage(Locale.US);
-            }
-        });
-
+        // --- PART A: SPEAK TYPED TEXT (shared TTS engine) ---
         btnSpeak.setOnClickListener(v -> {
             String text = etTypeBox.getText().toString();
             if (!text.isEmpty()) {
-                tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, null);
+                SpeechService.get().speak(text, UtteranceScheduler.Priority.USER, null, this);
                 Toast.makeText(this, "Speaking...", Toast.LENGTH_SHORT).show();
+                if (predictor != null) predictor.remember(historyFile(), text, diskExecutor); // Appended off the UI thread
+            }
+        });
+
+        // Suggestions: trained off the UI thread from the stock phrases and what was sent before
+        diskExecutor.execute(() -> {
+            PhrasePredictor loaded = PhrasePredictor.load(historyFile(), QuickTextActivity.MESSAGES);
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                predictor = loaded;
+                Log.d(TAG, "Predictor ready: " + loaded.getStatsSummary());
+                updateSuggestions();
+            });
+        });
+
+        etTypeBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateSuggestions();
             }
         });
 
+        for (Button button : btnSuggest) {
+            button.setOnClickListener(v -> acceptSuggestion(((Button) v).getText().toString()));
+        }
+
         // --- PART B: SETUP SPEECH-TO-TEXT (For Listening) ---
 
         // Check Permissions
@@ -70,11 +108,12 @@ public class SpeechToTextActivity extends AppCompatActivity {
         speechIntent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
         speechIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
         speechIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
+        speechIntent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
 
         speechRecognizer.setRecognitionListener(new RecognitionListener() {
             @Override
             public void onReadyForSpeech(Bundle params) {
-                tvOutput.setText("Listening... (Speak clearly)");
+                captions.showStatus("Listening... (Speak clearly)");
                 tvOutput.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
             }
 
@@ -92,7 +131,7 @@ public class SpeechToTextActivity extends AppCompatActivity {
 
             @Override
             public void onError(int error) {
-                tvOutput.setText("Tap mic to try again.");
+                captions.showStatus("Tap mic to try again.");
                 isListening = false;
             }
 
@@ -100,7 +139,7 @@ public class SpeechToTextActivity extends AppCompatActivity {
             public void onResults(Bundle results) {
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 if (matches != null) {
-                    tvOutput.setText(matches.get(0));
+                    captions.showFinal(matches.get(0));
                     tvOutput.setTextColor(getResources().getColor(android.R.color.black));
                 }
             }
@@ -110,7 +149,7 @@ public class SpeechToTextActivity extends AppCompatActivity {
                 // Show text as it is being spoken (Real-time effect)
                 ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                 if (matches != null) {
-                    tvOutput.setText(matches.get(0));
+                    captions.showPartial(matches.get(0));
                 }
             }
 
@@ -131,13 +170,42 @@ public class SpeechToTextActivity extends AppCompatActivity {
         });
     }
 
+    private File historyFile() {
+        return new File(getFilesDir(), HISTORY_FILE);
+    }
+
+    // --- SUGGESTIONS ---
+    private void updateSuggestions() {
+        if (predictor == null) return;
+        String typed = etTypeBox.getText().toString();
+        List<String> suggestions = predictor.suggest(typed, btnSuggest.length);
+        for (int i = 0; i < btnSuggest.length; i++) {
+            if (i < suggestions.size()) {
+                btnSuggest[i].setText(suggestions.get(i));
+                btnSuggest[i].setVisibility(View.VISIBLE);
+            } else {
+                btnSuggest[i].setVisibility(View.INVISIBLE); // Keep the row's height, no jumping
+            }
+        }
+    }
+
+    // Replace the half-typed word (if any) with the suggestion and carry on after it
+    private void acceptSuggestion(String suggestion) {
+        Editable text = etTypeBox.getText();
+        int wordStart = text.length();
+        while (wordStart > 0 && PhrasePredictor.isWordChar(text.charAt(wordStart - 1))) wordStart--;
+        boolean gap = wordStart > 0 && !Character.isWhitespace(text.charAt(wordStart - 1)); // "Hi?" + "Where"
+        text.replace(wordStart, text.length(), (gap ? " " : "") + suggestion + " ");
+        etTypeBox.setSelection(text.length());
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        SpeechService.get().cancel(this);
         if (speechRecognizer != null) speechRecognizer.destroy();
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-        }
+        captions.release();
+        diskExecutor.shutdown(); // Queued history writes still finish
+        if (predictor != null) Log.d(TAG, predictor.getStatsSummary());
     }
 }
\ No newline at end of file
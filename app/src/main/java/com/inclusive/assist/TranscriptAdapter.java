@@ -0,0 +1,100 @@
+package com.inclusive.assist;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Shows a TranscriptStore as a list: one row per segment, plus a last "live" row with the
+ * words being heard right now. A new sentence inserts one row and a partial result re-binds
+ * only the live row, so a long lecture costs the same per update as a short one.
+ */
+public class TranscriptAdapter extends RecyclerView.Adapter<TranscriptAdapter.Row> {
+
+    private static final String PLACEHOLDER = "Captions will appear here...";
+
+    static class Row extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        Row(View view) {
+            super(view);
+            text = view.findViewById(R.id.tvCaption);
+        }
+    }
+
+    public interface OnCaptionClickListener {
+        void onCaptionClick(int index);
+    }
+
+    private TranscriptStore store;
+    private String partial = "";
+    private OnCaptionClickListener clickListener;
+
+    public TranscriptAdapter(TranscriptStore store) {
+        this.store = store;
+    }
+
+    /** Tap on a saved caption (not the live row). */
+    public void setOnCaptionClickListener(OnCaptionClickListener listener) {
+        clickListener = listener;
+    }
+
+    /** New lecture (Clear): the only full rebind. */
+    public void setStore(TranscriptStore store) {
+        this.store = store;
+        partial = "";
+        notifyDataSetChanged();
+    }
+
+    /** Call after store.append(); index is what append() returned. */
+    public void onAppended(int index) {
+        partial = "";
+        notifyItemInserted(index);
+        notifyItemChanged(index + 1); // The live row, now empty again
+    }
+
+    public void setPartial(String text) {
+        partial = text;
+        notifyItemChanged(store.size());
+    }
+
+    /** Position of the live row, for scrolling. */
+    public int getLivePosition() {
+        return store.size();
+    }
+
+    @NonNull
+    @Override
+    public Row onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_caption, parent, false);
+        Row row = new Row(view);
+        view.setOnClickListener(v -> {
+            int position = row.getBindingAdapterPosition();
+            if (clickListener != null && position != RecyclerView.NO_POSITION && position < store.size()) {
+                clickListener.onCaptionClick(position);
+            }
+        });
+        return row;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Row row, int position) {
+        if (position < store.size()) {
+            row.text.setText(store.get(position).text + ".");
+            row.text.setAlpha(1f);
+        } else {
+            // Live row: what is being said, or the hint before anything was
+            row.text.setText(!partial.isEmpty() ? partial : store.size() == 0 ? PLACEHOLDER : "");
+            row.text.setAlpha(0.7f);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return store.size() + 1;
+    }
+}
@@ -0,0 +1,263 @@
+package com.inclusive.assist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Full-text search over lecture transcripts.
+ *
+ * An inverted index from stemmed words to the caption segments they occur in (with word
+ * positions), filled one segment at a time as captions arrive. Results are ranked with BM25
+ * (rare words and short segments count more) plus a bonus when the query words appear next
+ * to each other in order ("exam date"). Not thread-safe: use it from one thread.
+ */
+public class TranscriptIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PHRASE_BONUS = 1.5f;  // Per pair of query words found side by side
+    private static final int RERANK = 50;            // Candidates checked for phrases
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "and", "or", "but", "of", "to", "in", "on", "at", "for", "with", "by",
+            "is", "are", "was", "were", "be", "been", "it", "this", "that", "these", "those", "i", "you",
+            "he", "she", "we", "they", "me", "my", "your", "our", "do", "did", "does", "when", "what",
+            "where", "which", "who", "how", "so", "if", "then", "there", "about", "as", "from", "will",
+            "can", "would", "should", "just", "um", "uh", "okay"));
+
+    public static class Hit {
+        public final String lecture;   // TranscriptStore folder name
+        public final int segment;      // Index inside that lecture
+        public final long startMs;
+        public final String text;
+        public final float score;
+
+        Hit(String lecture, int segment, long startMs, String text, float score) {
+            this.lecture = lecture;
+            this.segment = segment;
+            this.startMs = startMs;
+            this.text = text;
+            this.score = score;
+        }
+    }
+
+    /** Where one word occurs: segment ids (ascending) and, per segment, its word positions. */
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] posStart = new int[5]; // positions of docs[i] are positions[posStart[i] .. posStart[i + 1])
+        int[] positions = new int[4];
+        int docCount = 0;
+        int posCount = 0;
+
+        void add(int doc, int position) {
+            if (docCount == 0 || docs[docCount - 1] != doc) {
+                if (docCount == docs.length) {
+                    docs = Arrays.copyOf(docs, docCount * 2);
+                    posStart = Arrays.copyOf(posStart, docCount * 2 + 1);
+                }
+                docs[docCount] = doc;
+                posStart[docCount] = posCount;
+                docCount++;
+            }
+            if (posCount == positions.length) positions = Arrays.copyOf(positions, posCount * 2);
+            positions[posCount++] = position;
+            posStart[docCount] = posCount;
+        }
+
+        int termFrequency(int i) {
+            return posStart[i + 1] - posStart[i];
+        }
+
+        int find(int doc) {
+            return Arrays.binarySearch(docs, 0, docCount, doc);
+        }
+    }
+
+    private final Map<String, Postings> index = new HashMap<>();
+    private final List<String> lectureNames = new ArrayList<>();
+    private final Map<String, Integer> lectureIds = new HashMap<>();
+
+    // Per segment (doc id = position in these arrays)
+    private int[] docLecture = new int[1024];
+    private int[] docSegment = new int[1024];
+    private long[] docStartMs = new long[1024];
+    private int[] docLength = new int[1024];
+    private final List<String> docText = new ArrayList<>();
+    private int docs = 0;
+    private long totalLength = 0;
+
+    /** Add one caption segment. */
+    public void add(String lecture, int segment, long startMs, String text) {
+        Integer lectureId = lectureIds.get(lecture);
+        if (lectureId == null) {
+            lectureId = lectureNames.size();
+            lectureNames.add(lecture);
+            lectureIds.put(lecture, lectureId);
+        }
+        if (docs == docLecture.length) {
+            int size = docs * 2;
+            docLecture = Arrays.copyOf(docLecture, size);
+            docSegment = Arrays.copyOf(docSegment, size);
+            docStartMs = Arrays.copyOf(docStartMs, size);
+            docLength = Arrays.copyOf(docLength, size);
+        }
+        int doc = docs++;
+        docLecture[doc] = lectureId;
+        docSegment[doc] = segment;
+        docStartMs[doc] = startMs;
+        docText.add(text);
+
+        List<String> terms = terms(text);
+        for (int position = 0; position < terms.size(); position++) {
+            String term = terms.get(position);
+            if (term == null) continue; // Stop word: keeps its position so phrases stay honest
+            Postings postings = index.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                index.put(term, postings);
+            }
+            postings.add(doc, position);
+        }
+        docLength[doc] = terms.size();
+        totalLength += terms.size();
+    }
+
+    /** Best segments for a query, best first. */
+    public List<Hit> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>();
+        for (String term : terms(query)) {
+            if (term != null && !queryTerms.contains(term)) queryTerms.add(term);
+        }
+        if (queryTerms.isEmpty() || docs == 0) return Collections.emptyList();
+
+        // BM25, summed over the query words, only for segments that have one of them
+        float avgLength = (float) totalLength / docs;
+        float[] scores = new float[docs];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String term : queryTerms) {
+            Postings postings = index.get(term);
+            if (postings == null) continue;
+            float idf = (float) Math.log(1 + (docs - postings.docCount + 0.5) / (postings.docCount + 0.5));
+            for (int i = 0; i < postings.docCount; i++) {
+                int doc = postings.docs[i];
+                int tf = postings.termFrequency(i);
+                float norm = K1 * (1 - B + B * docLength[doc] / avgLength);
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        // Top candidates by BM25 (min-heap), then reward query words that are next to each other
+        int k = Math.max(limit, RERANK);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int t = 0; t < touchedCount; t++) {
+            int doc = touched[t];
+            if (heap.size() < k) {
+                heap.add(doc);
+            } else if (scores[doc] > scores[heap.peek()]) {
+                heap.poll();
+                heap.add(doc);
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        for (int doc : heap) {
+            float score = scores[doc] + PHRASE_BONUS * adjacentPairs(queryTerms, doc);
+            hits.add(new Hit(lectureNames.get(docLecture[doc]), docSegment[doc], docStartMs[doc], docText.get(doc), score));
+        }
+        Collections.sort(hits, (a, b) -> Float.compare(b.score, a.score));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /** How many consecutive query word pairs occur side by side (allowing one stop word between). */
+    private int adjacentPairs(List<String> queryTerms, int doc) {
+        int pairs = 0;
+        for (int q = 0; q + 1 < queryTerms.size(); q++) {
+            Postings first = index.get(queryTerms.get(q));
+            Postings second = index.get(queryTerms.get(q + 1));
+            if (first == null || second == null) continue;
+            int i = first.find(doc), j = second.find(doc);
+            if (i < 0 || j < 0) continue;
+            found:
+            for (int a = first.posStart[i]; a < first.posStart[i + 1]; a++) {
+                for (int b = second.posStart[j]; b < second.posStart[j + 1]; b++) {
+                    int gap = second.positions[b] - first.positions[a];
+                    if (gap == 1 || gap == 2) {
+                        pairs++;
+                        break found;
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    public int getSegmentCount() {
+        return docs;
+    }
+
+    public int getTermCount() {
+        return index.size();
+    }
+
+    public boolean hasLecture(String lecture) {
+        return lectureIds.containsKey(lecture);
+    }
+
+    // --- TEXT ---
+
+    /** Stemmed words of text, with null where a stop word was (so positions line up). */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        String clean = text.toLowerCase(Locale.US).replaceAll("[^a-z0-9' ]", " ");
+        for (String word : clean.split("\\s+")) {
+            word = word.replace("'", "");
+            if (word.isEmpty()) continue;
+            terms.add(STOP_WORDS.contains(word) ? null : stem(word));
+        }
+        return terms;
+    }
+
+    /**
+     * Light suffix stripping so "exams" and "exam" meet, "examination", "examined" and "examine"
+     * do, and "mentioned", "mentioning", "mentions" do. Not full Porter, but the same idea for
+     * common endings. ("exam" and "examine" stay apart: that would need a dictionary.)
+     */
+    static String stem(String word) {
+        if (word.length() <= 3 || Character.isDigit(word.charAt(0))) return word;
+        String[][] rules = {
+                {"ational", "ate"}, {"ization", "ize"}, {"inations", "ine"}, {"ination", "ine"},
+                {"ations", "ate"}, {"ation", "ate"},
+                {"nesses", ""}, {"ness", ""}, {"ments", ""}, {"ment", ""}, {"ingly", ""},
+                {"edly", ""}, {"ies", "y"}, {"ing", ""}, {"ed", ""}, {"ly", ""}, {"es", ""}, {"s", ""}
+        };
+        for (String[] rule : rules) {
+            String suffix = rule[0];
+            if (word.endsWith(suffix) && word.length() - suffix.length() >= 3) {
+                if (suffix.equals("s") && (word.endsWith("ss") || word.endsWith("us") || word.endsWith("is"))) return word;
+                String stem = word.substring(0, word.length() - suffix.length()) + rule[1];
+                // "planned" -> "plan", "stopping" -> "stop"
+                int n = stem.length();
+                if (rule[1].isEmpty() && n >= 2 && stem.charAt(n - 1) == stem.charAt(n - 2)
+                        && "aeiouslz".indexOf(stem.charAt(n - 1)) < 0) {
+                    stem = stem.substring(0, n - 1);
+                }
+                // Trailing e is dropped too, so "date"/"dated"/"dates" and "examine"/"examined" meet
+                if (stem.endsWith("e") && stem.length() > 3) stem = stem.substring(0, stem.length() - 1);
+                return stem;
+            }
+        }
+        return word.endsWith("e") && word.length() > 3 ? word.substring(0, word.length() - 1) : word;
+    }
+}
@@ -0,0 +1,221 @@
+package com.inclusive.assist;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lecture transcript as an append-only list of timestamped segments.
+ *
+ * Each lecture is a folder of rolling part files (part-00000.tsv, ...), one line per segment
+ * ("startMs TAB endMs TAB text"). Every append is written and flushed right away on a
+ * background thread, so a crash or screen rotation loses at most the line being written;
+ * reopening the screen reloads the lecture. Old lectures stay on disk.
+ */
+public class TranscriptStore {
+
+    private static final int SEGMENTS_PER_FILE = 200;
+    private static final long CONTINUE_WITHIN_MS = 30 * 60 * 1000L; // Same lecture if we were captioning < 30 min ago
+
+    public static class Segment {
+        public final long startMs;
+        public final long endMs;
+        public final String text;
+
+        public Segment(long startMs, long endMs, String text) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.text = text;
+        }
+    }
+
+    private final File dir;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private Writer out;        // Writer thread only
+    private int outFileIndex;  // Writer thread only
+    private int inCurrentFile; // Writer thread only
+
+    private TranscriptStore(File dir) {
+        this.dir = dir;
+    }
+
+    /** The lecture that was being captioned recently (crash, rotation), or a new one. */
+    public static TranscriptStore openRecent(File root, long now) {
+        File latest = latestLecture(root);
+        if (latest != null) {
+            TranscriptStore store = new TranscriptStore(latest);
+            store.load();
+            long last = store.segments.isEmpty() ? latest.lastModified() : store.lastSegment().endMs;
+            if (now - last < CONTINUE_WITHIN_MS) return store;
+            store.close();
+        }
+        return create(root, now);
+    }
+
+    /** Start a new lecture. */
+    public static TranscriptStore create(File root, long now) {
+        File dir = new File(root, "lecture-" + now);
+        if (!dir.exists()) dir.mkdirs();
+        return new TranscriptStore(dir);
+    }
+
+    /** All lecture folders, oldest first. */
+    public static List<File> lectures(File root) {
+        File[] dirs = root.listFiles(f -> f.isDirectory() && f.getName().startsWith("lecture-"));
+        if (dirs == null) return Collections.emptyList();
+        Arrays.sort(dirs, (a, b) -> Long.compare(lectureTime(a), lectureTime(b)));
+        return Arrays.asList(dirs);
+    }
+
+    private static File latestLecture(File root) {
+        List<File> all = lectures(root);
+        return all.isEmpty() ? null : all.get(all.size() - 1);
+    }
+
+    private static long lectureTime(File dir) {
+        try {
+            return Long.parseLong(dir.getName().substring("lecture-".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Read one lecture without opening it for writing. */
+    public static List<Segment> read(File lectureDir) {
+        TranscriptStore store = new TranscriptStore(lectureDir);
+        store.load();
+        store.writer.shutdown();
+        return store.getSegments();
+    }
+
+    private void load() {
+        File[] parts = partFiles();
+        for (File part : parts) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(part), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    Segment segment = parse(line);
+                    if (segment != null) segments.add(segment); // A torn last line is just skipped
+                }
+            } catch (IOException e) {
+                // Keep what we could read
+            }
+        }
+        // Carry on in a fresh part file, never after a possibly torn line
+        outFileIndex = parts.length;
+    }
+
+    private File[] partFiles() {
+        File[] parts = dir.listFiles((d, name) -> name.startsWith("part-") && name.endsWith(".tsv"));
+        if (parts == null) return new File[0];
+        Arrays.sort(parts);
+        return parts;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /** Add a segment. Memory is updated now, the disk write is queued. Returns its index. */
+    public synchronized int append(long startMs, long endMs, String text) {
+        Segment segment = new Segment(startMs, endMs, text);
+        segments.add(segment);
+        String line = startMs + "\t" + endMs + "\t" + escape(text) + "\n";
+        writer.execute(() -> write(line));
+        return segments.size() - 1;
+    }
+
+    private void write(String line) {
+        try {
+            if (out == null || inCurrentFile >= SEGMENTS_PER_FILE) {
+                if (out != null) out.close();
+                File part = new File(dir, String.format(Locale.US, "part-%05d.tsv", outFileIndex++));
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(part, true), StandardCharsets.UTF_8));
+                inCurrentFile = 0;
+            }
+            out.write(line);
+            out.flush(); // Into the OS right away: survives the app dying
+            inCurrentFile++;
+        } catch (IOException e) {
+            out = null; // Next append opens a new part file
+        }
+    }
+
+    public synchronized int size() {
+        return segments.size();
+    }
+
+    public synchronized Segment get(int index) {
+        return segments.get(index);
+    }
+
+    public synchronized Segment lastSegment() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    public synchronized List<Segment> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    /** Finish pending writes and close the file. */
+    public void close() {
+        writer.execute(() -> {
+            try {
+                if (out != null) out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- LINE FORMAT ---
+    static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Segment parse(String line) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length < 3) return null;
+        try {
+            return new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]), unescape(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
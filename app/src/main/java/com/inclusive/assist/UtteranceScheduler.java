@@ -0,0 +1,278 @@
+package com.inclusive.assist;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides what the app says next.
+ *
+ * Every message has a priority class. A more important message cuts off a less important
+ * one (an emergency is never talked over by "Analyzing..."), the same text is not repeated
+ * within a short window, and camera results that pile up while something else is speaking
+ * collapse to the latest one. The actual audio is done by a Player (SpeechService).
+ *
+ * Messages can carry an owner (usually the screen that asked): cancel(owner) takes back just
+ * that owner's messages when it goes away, leaving everyone else's alone.
+ */
+public class UtteranceScheduler {
+
+    /** Lowest first. */
+    public enum Priority {
+        PERIODIC,  // Repeating camera results (objects, money, scene)
+        USER,      // Answers to something the user just did
+        ARRIVAL,   // Navigation: "You have arrived"
+        EMERGENCY  // SOS
+    }
+
+    /** Per-utterance progress. onDone is also called when it is cut off, dropped or fails. */
+    public interface UtteranceCallback {
+        void onStart();
+        void onDone();
+    }
+
+    public interface Player {
+        /** Start speaking u right away, cutting off anything playing. */
+        void play(Utterance u);
+
+        void stopPlayback();
+    }
+
+    public static class Utterance {
+        public final long id;
+        public final String text;
+        public final Priority priority;
+        final String key;
+        final UtteranceCallback callback;
+        final Object owner;
+        final long requestedAt;
+
+        Utterance(long id, String text, Priority priority, UtteranceCallback callback, Object owner, long requestedAt) {
+            this.id = id;
+            this.text = text;
+            this.priority = priority;
+            this.key = text.trim().toLowerCase(Locale.US).replaceAll("\\s+", " ");
+            this.callback = callback;
+            this.owner = owner;
+            this.requestedAt = requestedAt;
+        }
+    }
+
+    private static final long PERIODIC_MAX_WAIT_MS = 4000; // A camera result older than this is not worth saying
+
+    private final Player player;
+    private final List<ArrayDeque<Utterance>> queues = new ArrayList<>(); // By priority ordinal
+    private final LatencyWindow[] queueLatency; // request -> player reports it started (see SpeechService), per class
+    private final Map<String, Long> lastSpoken = new HashMap<>();
+    private Utterance current;
+    private long nextId = 0;
+
+    private int preempted = 0;
+    private int deduped = 0;
+    private int coalesced = 0;
+    private int expired = 0;
+    private int cancelled = 0;
+
+    public UtteranceScheduler(Player player) {
+        this.player = player;
+        int classes = Priority.values().length;
+        queueLatency = new LatencyWindow[classes];
+        for (int i = 0; i < classes; i++) {
+            queues.add(new ArrayDeque<>());
+            queueLatency[i] = new LatencyWindow(50);
+        }
+    }
+
+    /** How long the same text stays muted after it was said. USER repeats are allowed (they asked). */
+    private static long dedupWindow(Priority priority) {
+        switch (priority) {
+            case PERIODIC: return 8000;
+            case USER: return 0;
+            default: return 5000;
+        }
+    }
+
+    /** Same-class messages that replace each other instead of waiting their turn. */
+    private static boolean latestWins(Priority priority) {
+        return priority == Priority.PERIODIC || priority == Priority.USER;
+    }
+
+    /**
+     * Queue or play a message. owner may be null (only stopAll() removes it). Returns false if
+     * it was dropped as a duplicate (its callback is not called in that case).
+     */
+    public boolean submit(String text, Priority priority, UtteranceCallback callback, Object owner) {
+        List<UtteranceCallback> done = new ArrayList<>();
+        boolean accepted;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Utterance u = new Utterance(nextId++, text, priority, callback, owner, now);
+            accepted = !isDuplicate(u, now);
+            if (!accepted) {
+                deduped++;
+            } else if (current == null) {
+                start(u);
+            } else if (priority.ordinal() > current.priority.ordinal()
+                    || (priority == current.priority && latestWins(priority))) {
+                // Cut off what is playing; the player's flush stops the audio
+                preempted++;
+                done.add(current.callback);
+                current = null;
+                start(u);
+            } else {
+                ArrayDeque<Utterance> queue = queues.get(priority.ordinal());
+                if (priority == Priority.PERIODIC) {
+                    // Only the newest camera result is worth saying
+                    for (Utterance stale : queue) done.add(stale.callback);
+                    coalesced += queue.size();
+                    queue.clear();
+                }
+                queue.add(u);
+            }
+        }
+        notifyDone(done);
+        return accepted;
+    }
+
+    private boolean isDuplicate(Utterance u, long now) {
+        if (current != null && current.key.equals(u.key)) return true;
+        for (ArrayDeque<Utterance> queue : queues) {
+            for (Utterance queued : queue) {
+                if (queued.key.equals(u.key)) return true;
+            }
+        }
+        Long spokenAt = lastSpoken.get(u.key);
+        return spokenAt != null && now - spokenAt < dedupWindow(u.priority);
+    }
+
+    private void start(Utterance u) {
+        current = u;
+        lastSpoken.put(u.key, System.currentTimeMillis());
+        if (lastSpoken.size() > 100) pruneLastSpoken();
+        player.play(u);
+    }
+
+    private void pruneLastSpoken() {
+        long now = System.currentTimeMillis();
+        Iterator<Long> it = lastSpoken.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() > dedupWindow(Priority.PERIODIC)) it.remove();
+        }
+    }
+
+    /** The player started the audio for this utterance. */
+    public void onStarted(long id) {
+        UtteranceCallback callback;
+        synchronized (this) {
+            if (current == null || current.id != id) return; // Already cut off
+            queueLatency[current.priority.ordinal()].record(System.currentTimeMillis() - current.requestedAt, true);
+            callback = current.callback;
+        }
+        if (callback != null) callback.onStart();
+    }
+
+    /** The player finished, failed or was stopped for this utterance: play the next one. */
+    public void onFinished(long id) {
+        List<UtteranceCallback> done = new ArrayList<>();
+        synchronized (this) {
+            if (current == null || current.id != id) return; // Preempted ones were handled already
+            done.add(current.callback);
+            current = null;
+            startNext(done);
+        }
+        notifyDone(done);
+    }
+
+    private void startNext(List<UtteranceCallback> done) {
+        long now = System.currentTimeMillis();
+        for (int i = queues.size() - 1; i >= 0; i--) {
+            ArrayDeque<Utterance> queue = queues.get(i);
+            while (!queue.isEmpty()) {
+                Utterance next = queue.poll();
+                if (next.priority == Priority.PERIODIC && now - next.requestedAt > PERIODIC_MAX_WAIT_MS) {
+                    expired++;
+                    done.add(next.callback);
+                    continue;
+                }
+                start(next);
+                return;
+            }
+        }
+    }
+
+    /** Drop everything, including what is playing. */
+    public void stopAll() {
+        List<UtteranceCallback> done = new ArrayList<>();
+        synchronized (this) {
+            for (ArrayDeque<Utterance> queue : queues) {
+                for (Utterance u : queue) done.add(u.callback);
+                queue.clear();
+            }
+            if (current != null) {
+                done.add(current.callback);
+                current = null;
+                player.stopPlayback();
+            }
+        }
+        notifyDone(done);
+    }
+
+    /**
+     * Drop this owner's messages, cutting it off if it is playing, and go on with the rest.
+     * Its callbacks are not called: the owner is going away or already moved on. Emergencies
+     * are always said in full.
+     */
+    public void cancel(Object owner) {
+        if (owner == null) return;
+        List<UtteranceCallback> done = new ArrayList<>();
+        synchronized (this) {
+            for (ArrayDeque<Utterance> queue : queues) {
+                Iterator<Utterance> it = queue.iterator();
+                while (it.hasNext()) {
+                    if (isCancellable(it.next(), owner)) {
+                        it.remove();
+                        cancelled++;
+                    }
+                }
+            }
+            if (current != null && isCancellable(current, owner)) {
+                cancelled++;
+                current = null;
+                player.stopPlayback();
+                startNext(done);
+            }
+        }
+        notifyDone(done);
+    }
+
+    private static boolean isCancellable(Utterance u, Object owner) {
+        return u.owner == owner && u.priority != Priority.EMERGENCY;
+    }
+
+    // Callbacks run outside the lock, they may speak again
+    private static void notifyDone(List<UtteranceCallback> callbacks) {
+        for (UtteranceCallback callback : callbacks) {
+            if (callback != null) callback.onDone();
+        }
+    }
+
+    /** Request-to-audio latency of one priority class. */
+    public LatencyWindow getQueueLatency(Priority priority) {
+        return queueLatency[priority.ordinal()];
+    }
+
+    /** e.g. "EMERGENCY[n=1 ...] ARRIVAL[...] USER[...] PERIODIC[...] preempted=3 deduped=7 coalesced=4 expired=1 cancelled=2" */
+    public synchronized String getStatsSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = queues.size() - 1; i >= 0; i--) {
+            sb.append(Priority.values()[i]).append('[').append(queueLatency[i].getSummary()).append("] ");
+        }
+        return sb.append("preempted=").append(preempted).append(" deduped=").append(deduped)
+                .append(" coalesced=").append(coalesced).append(" expired=").append(expired)
+                .append(" cancelled=").append(cancelled).toString();
+    }
+}
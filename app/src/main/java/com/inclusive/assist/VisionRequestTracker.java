@@ -0,0 +1,134 @@
+package com.inclusive.assist;
+
+import okhttp3.Call;
+
+/**
+ * Keeps track of the vision request that is currently in flight.
+ *
+ * Every captured frame gets a new "generation". Only the newest generation is allowed
+ * to update the screen or speak. Older calls are cancelled when a newer frame replaces
+ * them, and everything is cancelled when the activity is destroyed, so a late answer
+ * never reaches a dead activity.
+ *
+ * Also counts how many requests and upload bytes were saved by cancelling early. A call only
+ * saves its upload if it's cancelled before the body has been written (uploadFinished()).
+ */
+public class VisionRequestTracker {
+
+    private Call currentCall;
+    private long currentGeneration = 0;
+    private long currentBytes = 0;     // Upload still to be written for the current call
+    private Call uploadedCall;         // Body written before track() saw the call
+    private long currentStartTime = 0;
+    private boolean closed = false;
+
+    // Stats
+    private int cancelledRequests = 0;
+    private long savedBytes = 0;
+    private int droppedResponses = 0;
+
+    /**
+     * Starts a new generation. Any call still running for an older frame is cancelled.
+     * Returns the generation number to pass back to isCurrent() / finish().
+     */
+    public synchronized long newGeneration() {
+        cancelCurrent();
+        currentGeneration++;
+        currentStartTime = System.currentTimeMillis();
+        return currentGeneration;
+    }
+
+    /**
+     * Attaches the OkHttp call (and its upload size) to a generation.
+     * If the generation is already stale, the call is cancelled right away.
+     */
+    public synchronized void track(long generation, Call call, long requestBytes) {
+        if (closed || generation != currentGeneration) {
+            call.cancel();
+            cancelledRequests++;
+            savedBytes += requestBytes;
+            return;
+        }
+        currentCall = call;
+        currentBytes = call == uploadedCall ? 0 : requestBytes;
+    }
+
+    /**
+     * The call's request body has been fully written (OkHttp requestBodyEnd). Cancelling it
+     * now saves no upload, only the wait. Any thread.
+     */
+    public synchronized void uploadFinished(Call call) {
+        if (call == currentCall) {
+            currentBytes = 0;
+        } else {
+            uploadedCall = call;
+        }
+    }
+
+    /** True if a response for this generation may still be shown to the user. */
+    public synchronized boolean isCurrent(long generation) {
+        return !closed && generation == currentGeneration;
+    }
+
+    /** A response arrived for a stale generation and was thrown away. */
+    public synchronized void responseDropped() {
+        droppedResponses++;
+    }
+
+    /** Marks the generation as finished (response handled or failed). */
+    public synchronized void finish(long generation) {
+        if (generation == currentGeneration) {
+            currentCall = null;
+            currentBytes = 0;
+            uploadedCall = null;
+        }
+    }
+
+    /** True while a call is running. */
+    public synchronized boolean isBusy() {
+        return currentCall != null;
+    }
+
+    /** How long the current call has been running, or 0 if idle. */
+    public synchronized long inFlightMillis() {
+        return currentCall != null ? System.currentTimeMillis() - currentStartTime : 0;
+    }
+
+    /** Cancels everything and refuses new calls. Call from onDestroy(). */
+    public synchronized void close() {
+        cancelCurrent();
+        closed = true;
+    }
+
+    private void cancelCurrent() {
+        if (currentCall != null) {
+            if (!currentCall.isCanceled()) {
+                currentCall.cancel();
+                cancelledRequests++;
+                savedBytes += currentBytes;
+            }
+            currentCall = null;
+            currentBytes = 0;
+        }
+        uploadedCall = null;
+    }
+
+    public synchronized int getCancelledRequests() {
+        return cancelledRequests;
+    }
+
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    public synchronized int getDroppedResponses() {
+        return droppedResponses;
+    }
+
+    /** Short summary for the log. */
+    public synchronized String getStatsSummary() {
+        return "cancelled=" + cancelledRequests
+                + " savedBytes=" + savedBytes
+                + " droppedResponses=" + droppedResponses;
+    }
+}
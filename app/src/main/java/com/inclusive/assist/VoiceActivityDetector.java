@@ -0,0 +1,53 @@
+package com.inclusive.assist;
+
+/**
+ * Is someone talking? Energy of 10ms frames against a tracked noise floor, with a
+ * hangover so the short pauses between words don't end the speech.
+ */
+public class VoiceActivityDetector {
+
+    public static final int FRAME = 160; // 10ms at 16 kHz
+
+    private static final float SPEECH_RATIO = 4f;  // ~6dB over the floor
+    private static final float MIN_ENERGY = 2000f; // Absolute silence level, 16-bit mean square
+    private static final int ONSET_FRAMES = 3;     // 30ms of sound before we call it speech
+
+    private final int hangoverFrames;
+    private float noiseFloor = -1;
+    private boolean speaking = false;
+    private int loudRun = 0;
+    private int quietRun = 0;
+
+    public VoiceActivityDetector(int hangoverMs) {
+        hangoverFrames = Math.max(1, hangoverMs / 10);
+    }
+
+    /** Feed one FRAME of 16 kHz samples starting at offset. Returns true while in speech. */
+    public boolean process(short[] pcm, int offset) {
+        double sum = 0;
+        for (int i = 0; i < FRAME; i++) {
+            double s = pcm[offset + i];
+            sum += s * s;
+        }
+        float energy = (float) (sum / FRAME);
+        if (noiseFloor < 0) noiseFloor = Math.max(energy, MIN_ENERGY / SPEECH_RATIO);
+        boolean loud = energy > noiseFloor * SPEECH_RATIO && energy > MIN_ENERGY;
+
+        if (loud) {
+            loudRun++;
+            quietRun = 0;
+            if (loudRun >= ONSET_FRAMES) speaking = true;
+        } else {
+            loudRun = 0;
+            quietRun++;
+            if (quietRun >= hangoverFrames) speaking = false;
+            // Follow the room noise: down at once, up slowly
+            noiseFloor = energy < noiseFloor ? Math.max(energy, 1f) : noiseFloor + 0.02f * (energy - noiseFloor);
+        }
+        return speaking;
+    }
+
+    public boolean isSpeaking() {
+        return speaking;
+    }
+}
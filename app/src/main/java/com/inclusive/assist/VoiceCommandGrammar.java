@@ -0,0 +1,212 @@
+package com.inclusive.assist;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns what the recognizer heard into a menu command.
+ *
+ * Every command has a list of phrases (synonyms). They are compiled into a trie of whole
+ * words, so "ai" matches "open the AI" but not "wait" or "detail", and a two-word phrase
+ * ("text message") beats a one-word one ("text"). Longer words also match with a typo or
+ * two ("curency", "assistent"). All N-best alternatives from the recognizer are tried;
+ * lower-ranked ones count a little less.
+ */
+public class VoiceCommandGrammar {
+
+    public enum Command {
+        BLIND_MODE, DEAF_MODE, READ_TEXT, OBJECTS, CURRENCY, LIGHT, ASSISTANT, SCENE,
+        BUS, LOCATION, QUICK_MESSAGES, SOUND_ALERT, SOS
+    }
+
+    /** Phrases for every command. Order matters only for ties: earlier wins. */
+    private static final Object[][] MENU_PHRASES = {
+            {Command.BLIND_MODE, "visually", "blind", "impaired", "visually impaired", "blind mode"},
+            {Command.DEAF_MODE, "hearing", "deaf", "hard of hearing", "deaf mode"},
+            {Command.READ_TEXT, "read", "text", "reader", "reading", "read text", "text reader"},
+            {Command.OBJECTS, "object", "objects", "detect", "detection", "object detection"},
+            {Command.CURRENCY, "currency", "money", "cash", "rupees", "note", "currency checker"},
+            {Command.LIGHT, "light", "brightness", "light detector"},
+            {Command.ASSISTANT, "assistant", "ai", "a i", "chat", "ai assistant"},
+            {Command.SCENE, "scene", "describe", "surroundings", "what s around", "scene description"},
+            {Command.BUS, "bus", "route", "routes", "bus route", "bus routes"},
+            {Command.LOCATION, "where", "location", "where am i"},
+            {Command.QUICK_MESSAGES, "quick", "message", "messages", "text message", "quick messages"},
+            {Command.SOUND_ALERT, "sound", "alert", "sound alert"},
+            {Command.SOS, "help", "sos", "s o s", "emergency"}
+    };
+
+    private static final int FUZZY_MIN_LENGTH = 6;   // Shorter words must match exactly ("there" is not "where")
+    private static final double FUZZY_PENALTY = 0.4; // Per edit
+    private static final double RANK_PENALTY = 0.25; // Per place down the N-best list
+    private static final double MIN_SCORE = 0.5;
+
+    public static class Match {
+        public final Command command;
+        public final String phrase;      // The phrase that matched, e.g. "text reader"
+        public final String heard;       // The alternative it was found in
+        public final int alternative;    // 0 = recognizer's best guess
+        public final int edits;          // 0 = exact words
+        public final double score;
+
+        Match(Command command, String phrase, String heard, int alternative, int edits, double score) {
+            this.command = command;
+            this.phrase = phrase;
+            this.heard = heard;
+            this.alternative = alternative;
+            this.edits = edits;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return command + " (\"" + phrase + "\" in \"" + heard + "\", alt=" + alternative
+                    + " edits=" + edits + " score=" + String.format(Locale.US, "%.2f", score) + ")";
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Command command;   // Set if a phrase ends here
+        String phrase;
+        int order;         // Registration order, for ties
+    }
+
+    private final Node root = new Node();
+    private int phraseCount = 0;
+
+    /** Grammar for a menu screen, with only the commands that screen handles. */
+    public static VoiceCommandGrammar forMenu(Set<Command> commands) {
+        VoiceCommandGrammar grammar = new VoiceCommandGrammar();
+        for (Object[] row : MENU_PHRASES) {
+            Command command = (Command) row[0];
+            if (!commands.contains(command)) continue;
+            for (int i = 1; i < row.length; i++) grammar.add(command, (String) row[i]);
+        }
+        return grammar;
+    }
+
+    public static VoiceCommandGrammar forMenu() {
+        return forMenu(EnumSet.allOf(Command.class));
+    }
+
+    public void add(Command command, String phrase) {
+        String[] words = tokenize(phrase);
+        if (words.length == 0) return;
+        Node node = root;
+        for (String word : words) {
+            Node child = node.children.get(word);
+            if (child == null) {
+                child = new Node();
+                node.children.put(word, child);
+            }
+            node = child;
+        }
+        if (node.command == null) {
+            node.command = command;
+            node.phrase = String.join(" ", words);
+            node.order = phraseCount++;
+        }
+    }
+
+    /** Best command over all recognizer alternatives (best first), or null if nothing fits. */
+    public Match match(List<String> alternatives) {
+        Match best = null;
+        for (int i = 0; i < alternatives.size(); i++) {
+            Match match = matchOne(alternatives.get(i), i);
+            if (match != null && (best == null || match.score > best.score)) best = match;
+        }
+        return best;
+    }
+
+    public Match match(String utterance) {
+        return matchOne(utterance, 0);
+    }
+
+    private Match matchOne(String utterance, int rank) {
+        String[] words = tokenize(utterance);
+        Match best = null;
+        int bestOrder = Integer.MAX_VALUE;
+        for (int start = 0; start < words.length; start++) {
+            // Walk the trie from each word; exact and fuzzy branches both followed
+            List<Node> nodes = new ArrayList<>();
+            List<Integer> edits = new ArrayList<>();
+            nodes.add(root);
+            edits.add(0);
+            for (int end = start; end < words.length && !nodes.isEmpty(); end++) {
+                List<Node> nextNodes = new ArrayList<>();
+                List<Integer> nextEdits = new ArrayList<>();
+                for (int n = 0; n < nodes.size(); n++) {
+                    step(nodes.get(n), words[end], edits.get(n), nextNodes, nextEdits);
+                }
+                nodes = nextNodes;
+                edits = nextEdits;
+
+                for (int n = 0; n < nodes.size(); n++) {
+                    Node node = nodes.get(n);
+                    if (node.command == null) continue;
+                    int length = end - start + 1;
+                    double score = length - FUZZY_PENALTY * edits.get(n) - RANK_PENALTY * rank;
+                    if (score < MIN_SCORE) continue;
+                    if (best == null || score > best.score || (score == best.score && node.order < bestOrder)) {
+                        best = new Match(node.command, node.phrase, utterance, rank, edits.get(n), score);
+                        bestOrder = node.order;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static void step(Node node, String word, int editsSoFar, List<Node> outNodes, List<Integer> outEdits) {
+        Node exact = node.children.get(word);
+        if (exact != null) {
+            outNodes.add(exact);
+            outEdits.add(editsSoFar);
+        }
+        if (word.length() < FUZZY_MIN_LENGTH) return;
+        int allowed = word.length() >= 8 ? 2 : 1;
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            String key = child.getKey();
+            if (key.length() < FUZZY_MIN_LENGTH || key.equals(word)) continue;
+            if (Math.abs(key.length() - word.length()) > allowed) continue;
+            int d = editDistance(key, word, allowed);
+            if (d <= allowed) {
+                outNodes.add(child.getValue());
+                outEdits.add(editsSoFar + d);
+            }
+        }
+    }
+
+    /** Levenshtein distance, giving up (returns limit + 1) once it can't be within limit. */
+    static int editDistance(String a, String b, int limit) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        return prev[b.length()];
+    }
+
+    /** Lowercase words; punctuation splits words ("A.I." -> "a i", "what's" -> "what s"). */
+    static String[] tokenize(String text) {
+        String clean = text.toLowerCase(Locale.US).replaceAll("[^a-z0-9]+", " ").trim();
+        return clean.isEmpty() ? new String[0] : clean.split(" ");
+    }
+}
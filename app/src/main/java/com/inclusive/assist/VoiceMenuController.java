@@ -0,0 +1,252 @@
+package com.inclusive.assist;
+
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioManager;
+import android.media.ToneGenerator;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Voice commands for the menu screens (MainActivity, BlindMenuActivity).
+ *
+ * The mic opens when the "Listening" prompt has actually finished (its onDone), not after a
+ * fixed delay. After the first prompt on a screen a short beep is used instead, which is
+ * over in ~150ms. Tapping again while the prompt plays cuts it off and opens the mic at once.
+ * Anything the recognizer hears of our own prompt is thrown away (self-echo).
+ */
+public class VoiceMenuController {
+
+    private static final String TAG = "VoiceMenu";
+    private static final String PROMPT = "Listening";
+    private static final int EARCON_MS = 150;
+
+    public interface Listener {
+        /** Recognized alternatives, best first, echo of our own prompt removed. */
+        void onCommand(List<String> alternatives);
+
+        void onError(int error);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SpeechRecognizer recognizer;
+    private ToneGenerator earcon;
+
+    // Bumped on every listen()/cancel(): callbacks from an older session are ignored
+    private int session = 0;
+    private boolean promptPlaying = false;
+    private boolean micOpen = false;
+    private boolean prompted = false; // Spoken prompt once per screen, earcon after that
+    private Set<String> promptWords = new HashSet<>();
+    private long tapAt;
+    private long promptEndAt;
+
+    // --- STATS ---
+    private final LatencyWindow promptToReady = new LatencyWindow(50); // Prompt ends -> mic ready
+    private final LatencyWindow tapToReady = new LatencyWindow(50);
+    private int promptsSkipped = 0;
+    private int echoDropped = 0;
+
+    public VoiceMenuController(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+        recognizer.setRecognitionListener(new MenuRecognitionListener());
+    }
+
+    /** Prompt the user and open the mic as soon as the prompt is over. Main thread only. */
+    public void listen() {
+        listen(prompted ? null : PROMPT);
+    }
+
+    /** Speak a prompt (null = just beep) and then listen. */
+    public void listen(String prompt) {
+        // Tapping again while prompting means "I know, let me talk"
+        if (promptPlaying) {
+            skipPrompt();
+            return;
+        }
+        final int mySession = ++session;
+        recognizer.cancel();
+        micOpen = false;
+        tapAt = System.currentTimeMillis();
+
+        if (prompt == null) {
+            promptWords = new HashSet<>();
+            playEarcon(mySession);
+            return;
+        }
+
+        prompted = true;
+        promptWords = wordsOf(prompt);
+        promptPlaying = true;
+        boolean accepted = SpeechService.get().speak(prompt, UtteranceScheduler.Priority.USER,
+                new UtteranceScheduler.UtteranceCallback() {
+                    @Override
+                    public void onStart() {}
+
+                    @Override
+                    public void onDone() {
+                        handler.post(() -> onPromptDone(mySession));
+                    }
+                }, this);
+        if (!accepted) {
+            // Same prompt already playing (double tap): don't wait for it
+            promptPlaying = false;
+            playEarcon(mySession);
+        }
+    }
+
+    /** Cut the prompt off and listen right away. */
+    private void skipPrompt() {
+        promptsSkipped++;
+        int mySession = session;
+        promptPlaying = false;
+        promptEndAt = System.currentTimeMillis();
+        // Only our own prompt: an arrival or emergency announcement keeps playing
+        SpeechService.get().cancel(this);
+        if (!micOpen) startMic(mySession);
+    }
+
+    private void onPromptDone(int mySession) {
+        if (mySession != session || !promptPlaying) return;
+        promptPlaying = false;
+        promptEndAt = System.currentTimeMillis();
+        if (!micOpen) startMic(mySession);
+    }
+
+    private void playEarcon(int mySession) {
+        try {
+            if (earcon == null) earcon = new ToneGenerator(AudioManager.STREAM_MUSIC, 80);
+            earcon.startTone(ToneGenerator.TONE_PROP_BEEP, EARCON_MS);
+        } catch (RuntimeException e) {
+            // No tone generator on this device, just listen
+            Log.e(TAG, "Earcon failed", e);
+        }
+        handler.postDelayed(() -> {
+            if (mySession != session) return;
+            promptEndAt = System.currentTimeMillis();
+            startMic(mySession);
+        }, EARCON_MS);
+    }
+
+    private void startMic(int mySession) {
+        if (mySession != session) return;
+        micOpen = true;
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 5); // N-best, the grammar checks them all
+        recognizer.startListening(intent);
+    }
+
+    /** Stop listening and forget any prompt in flight (leaving the screen, command handled). */
+    public void cancel() {
+        session++;
+        promptPlaying = false;
+        micOpen = false;
+        handler.removeCallbacksAndMessages(null);
+        recognizer.cancel();
+    }
+
+    public void destroy() {
+        cancel();
+        SpeechService.get().cancel(this); // Drops the prompt's callbacks into this controller
+        recognizer.destroy();
+        if (earcon != null) {
+            earcon.release();
+            earcon = null;
+        }
+        Log.d(TAG, getStatsSummary());
+    }
+
+    // --- SELF-ECHO ---
+    private static Set<String> wordsOf(String text) {
+        String clean = text.toLowerCase(Locale.US).replaceAll("[^a-z0-9 ]", " ").trim();
+        Set<String> words = new HashSet<>();
+        if (!clean.isEmpty()) words.addAll(Arrays.asList(clean.split("\\s+")));
+        return words;
+    }
+
+    /** A result made only of words from our own prompt is the mic hearing the speaker. */
+    private boolean isEcho(String result) {
+        Set<String> words = wordsOf(result);
+        return !promptWords.isEmpty() && !words.isEmpty() && promptWords.containsAll(words);
+    }
+
+    private class MenuRecognitionListener implements RecognitionListener {
+        @Override
+        public void onReadyForSpeech(Bundle params) {
+            long now = System.currentTimeMillis();
+            promptToReady.record(Math.max(0, now - promptEndAt), true);
+            tapToReady.record(now - tapAt, true);
+            Toast.makeText(context, "Listening...", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {}
+
+        @Override
+        public void onRmsChanged(float rmsdB) {}
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {}
+
+        @Override
+        public void onEndOfSpeech() {}
+
+        @Override
+        public void onError(int error) {
+            micOpen = false;
+            listener.onError(error);
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            micOpen = false;
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (matches == null || matches.isEmpty()) {
+                listener.onError(SpeechRecognizer.ERROR_NO_MATCH);
+                return;
+            }
+
+            List<String> kept = new ArrayList<>();
+            for (String match : matches) {
+                if (!isEcho(match)) kept.add(match);
+            }
+            if (kept.isEmpty()) {
+                echoDropped++;
+                Log.d(TAG, "Dropped echo of prompt: " + matches.get(0));
+                listener.onError(SpeechRecognizer.ERROR_NO_MATCH);
+                return;
+            }
+            listener.onCommand(kept);
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {}
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {}
+    }
+
+    /** e.g. "promptToReady[n=6 ... p50=90ms] tapToReady[n=6 ... p50=820ms] promptsSkipped=1 echoDropped=0" */
+    public String getStatsSummary() {
+        return "promptToReady[" + promptToReady.getSummary() + "] tapToReady[" + tapToReady.getSummary()
+                + "] promptsSkipped=" + promptsSkipped + " echoDropped=" + echoDropped;
+    }
+}
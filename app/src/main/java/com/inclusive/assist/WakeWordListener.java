@@ -0,0 +1,259 @@
+package com.inclusive.assist;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.media.ToneGenerator;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hands-free start for the menus: listens on the mic, fully offline, for the wake word the
+ * user recorded (KeywordSpotter), and on a hit stops and tells the screen, which then opens
+ * the normal command recognizer. The mic is only ever used by one of the two at a time.
+ *
+ * Recording the wake word: long-press the voice button, then say it after each beep (3 times).
+ * CPU time spent per second of audio is measured on the audio thread and logged.
+ */
+public class WakeWordListener {
+
+    private static final String TAG = "WakeWord";
+    private static final String MODEL_FILE = "wakeword.bin";
+    private static final int ENROLL_TAKES = 3;
+    private static final int ENROLL_SECONDS = 2;
+
+    public interface Listener {
+        /** Main thread. The mic has already been released. */
+        void onWakeWord();
+
+        /** Main thread. A new wake word was saved; start() again if the screen is still up. */
+        void onEnrolled();
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final File modelFile;
+    private volatile KeywordSpotter spotter; // Replaced on the main thread after enrollment
+    private Thread thread;
+    private volatile boolean running = false;
+    // Audio thread that still has the mic open, even after stop() (guarded by this)
+    private Thread active;
+    private final List<Runnable> afterRelease = new ArrayList<>();
+    private boolean startWhenReleased = false;
+
+    // --- STATS (audio thread writes, anyone reads) ---
+    private volatile long audioMs = 0;
+    private volatile long cpuNs = 0;
+
+    public WakeWordListener(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        modelFile = new File(this.context.getFilesDir(), MODEL_FILE);
+        spotter = KeywordSpotter.load(modelFile);
+    }
+
+    public boolean isEnrolled() {
+        return spotter != null;
+    }
+
+    /** Start listening for the wake word. Needs RECORD_AUDIO; does nothing if none is enrolled. */
+    public synchronized void start() {
+        if (running || spotter == null) return;
+        if (active != null) {
+            // Two AudioRecords on one mic: wait for the last thread to let go
+            startWhenReleased = true;
+            return;
+        }
+        running = true;
+        spotter.reset();
+        thread = new Thread(this::listenLoop, "WakeWord");
+        active = thread;
+        thread.start();
+    }
+
+    /** Release the mic. Returns right away; the audio thread lets go after its current chunk. */
+    public void stop() {
+        stop(null);
+    }
+
+    /**
+     * Same, and then (main thread) runs once the mic is really free, e.g. to start the
+     * recognizer. Never waits on the caller's thread, which is usually the UI thread.
+     */
+    public void stop(@Nullable Runnable then) {
+        boolean free;
+        synchronized (this) {
+            running = false;
+            startWhenReleased = false;
+            thread = null;
+            free = active == null;
+            if (!free && then != null) afterRelease.add(then);
+        }
+        if (free && then != null) handler.post(then);
+    }
+
+    /** Audio thread, last thing it does: the mic is closed. */
+    private void released() {
+        List<Runnable> ready;
+        boolean restart;
+        synchronized (this) {
+            active = null;
+            running = false; // Also when the mic gave out, so start() can try again
+            ready = new ArrayList<>(afterRelease);
+            afterRelease.clear();
+            restart = startWhenReleased;
+            startWhenReleased = false;
+        }
+        for (Runnable r : ready) handler.post(r);
+        if (restart) handler.post(this::start);
+    }
+
+    @SuppressLint("MissingPermission") // Callers check RECORD_AUDIO first
+    private static AudioRecord openMic() {
+        int min = AudioRecord.getMinBufferSize(Mfcc.SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, Mfcc.SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, Math.max(min, Mfcc.SAMPLE_RATE / 5 * 2));
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            return null;
+        }
+        return record;
+    }
+
+    private void listenLoop() {
+        try {
+            listenUntilStopped();
+        } finally {
+            released();
+        }
+    }
+
+    private void listenUntilStopped() {
+        AudioRecord record = openMic();
+        if (record == null) {
+            Log.e(TAG, "Mic not available");
+            running = false;
+            return;
+        }
+        short[] chunk = new short[Mfcc.SAMPLE_RATE / 10]; // 100ms
+        boolean heard = false;
+        record.startRecording();
+        try {
+            while (running) {
+                int n = record.read(chunk, 0, chunk.length);
+                if (n <= 0) break;
+                long cpuStart = Debug.threadCpuTimeNanos();
+                heard = spotter.feed(chunk, n);
+                cpuNs += Debug.threadCpuTimeNanos() - cpuStart;
+                audioMs += n * 1000L / Mfcc.SAMPLE_RATE;
+                if (heard) break;
+            }
+        } finally {
+            record.stop();
+            record.release();
+        }
+
+        if (heard) {
+            Log.d(TAG, "Wake word, distance " + spotter.getLastDistance());
+            synchronized (this) {
+                running = false;
+                thread = null;
+            }
+            handler.post(listener::onWakeWord);
+        }
+    }
+
+    // --- ENROLLMENT ---
+
+    /** Record the wake word ENROLL_TAKES times, prompting by voice, then save it. */
+    public void enroll() {
+        stop();
+        SpeechService.get().speak("After each beep, say your wake word.", UtteranceScheduler.Priority.USER,
+                new UtteranceScheduler.UtteranceCallback() {
+                    @Override
+                    public void onStart() {}
+
+                    @Override
+                    public void onDone() {
+                        new Thread(WakeWordListener.this::recordTakes, "WakeWordEnroll").start();
+                    }
+                });
+    }
+
+    private void recordTakes() {
+        List<float[][]> templates = new ArrayList<>();
+        ToneGenerator beep = new ToneGenerator(AudioManager.STREAM_MUSIC, 80);
+        try {
+            for (int take = 0; take < ENROLL_TAKES; take++) {
+                beep.startTone(ToneGenerator.TONE_PROP_BEEP, 150);
+                Thread.sleep(250); // Don't record the beep
+                float[][] template = recordTake();
+                if (template != null) templates.add(template);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            beep.release();
+        }
+
+        if (templates.size() < 2) {
+            SpeechService.get().speak("I didn't hear the wake word. Please try again.");
+            return;
+        }
+        KeywordSpotter enrolled = new KeywordSpotter(templates);
+        try {
+            enrolled.save(modelFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save wake word", e);
+        }
+        Log.d(TAG, "Enrolled " + templates.size() + " takes, threshold " + enrolled.getThreshold());
+        handler.post(() -> {
+            spotter = enrolled;
+            SpeechService.get().speak("Wake word saved.");
+            listener.onEnrolled();
+        });
+    }
+
+    private static float[][] recordTake() {
+        AudioRecord record = openMic();
+        if (record == null) return null;
+        short[] pcm = new short[Mfcc.SAMPLE_RATE * ENROLL_SECONDS];
+        int filled = 0;
+        record.startRecording();
+        try {
+            while (filled < pcm.length) {
+                int n = record.read(pcm, filled, pcm.length - filled);
+                if (n <= 0) break;
+                filled += n;
+            }
+        } finally {
+            record.stop();
+            record.release();
+        }
+        return KeywordSpotter.templateFrom(pcm, filled);
+    }
+
+    /** e.g. "audio=600s cpu=540ms (0.9ms per audio second) frames=60000 mfcc=3100 bursts=12 hits=3 ..." */
+    public String getStatsSummary() {
+        long audio = audioMs;
+        long cpu = cpuNs / 1_000_000;
+        String perSecond = audio > 0 ? String.format(Locale.US, "%.1f", cpuNs / 1000f / audio) : "-";
+        return "audio=" + audio / 1000 + "s cpu=" + cpu + "ms (" + perSecond + "ms per audio second) "
+                + (spotter != null ? spotter.getStatsSummary() : "not enrolled");
+    }
+}
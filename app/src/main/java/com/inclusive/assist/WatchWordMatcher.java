@@ -0,0 +1,349 @@
+package com.inclusive.assist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Watches a stream of speech recognizer hypotheses for the user's watch list ("platform 3", their name).
+ *
+ * Words are turned into sound-alike keys (Soundex-style consonant classes, number words to digits,
+ * plural s dropped), so "Ragav" finds "Raghav" and "platform three" finds "platform 3". Longer
+ * watch words also get variants with one sound missing. All variants go into one Aho-Corasick
+ * automaton over the keys. Words with a very short key ("Ann" is just "AM", like "in" and "on")
+ * have to be heard spelt exactly.
+ *
+ * Partial results repeat the whole hypothesis each time. We keep the automaton state after every
+ * key character, rewind to where the new hypothesis stops agreeing with the last one and only run
+ * the rest, so an update costs what changed. A phrase is reported once per word position per
+ * utterance, however often the partials repeat it.
+ */
+public class WatchWordMatcher {
+
+    private static final char SEP = ' ';
+    private static final int MIN_CLASSES_FOR_VARIANTS = 4; // Short words are too easy to hit by accident
+    private static final int MAX_VARIANTS = 32;            // Per phrase
+    private static final int MIN_SOUND_KEY = 3;            // Shorter keys must match the spelling too
+
+    private static final String[] NUMBERS = {
+            "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine", "ten",
+            "eleven", "twelve", "thirteen", "fourteen", "fifteen", "sixteen", "seventeen", "eighteen", "nineteen", "twenty"
+    };
+
+    // Key alphabet: separator, leading vowel, 6 consonant classes, number marker, digits
+    private static final String ALPHABET = " ABCDLMR#0123456789";
+    private static final int SYMBOLS = ALPHABET.length();
+    private static final int[] SYMBOL = new int[128];
+    static {
+        for (int i = 0; i < SYMBOLS; i++) SYMBOL[ALPHABET.charAt(i)] = i;
+    }
+
+    private final List<String> phrases;
+    private int[][] next;         // Full DFA: next[state][symbol]
+    private int[][] outputs;      // Phrase ids ending at each state (with failure-link outputs merged)
+    private int[] outputWords;    // Words in each phrase's pattern, to tell match positions apart
+    private String[][] exact;     // Per phrase: spelling each word must have, or null if sound is enough
+
+    // Stream state for the current utterance
+    private final StringBuilder fed = new StringBuilder();  // Keys fed so far
+    private int[] stateAt = new int[64];                    // stateAt[i]: state after i chars of fed
+    private int[] wordsAt = new int[64];                    // Separators seen in the first i chars
+    private final Set<Long> reported = new HashSet<>();     // (phrase, word position) already alerted
+    private final StringBuilder keys = new StringBuilder(); // Scratch
+
+    // --- STATS ---
+    private long updates = 0;
+    private long charsSeen = 0;
+    private long charsRun = 0;
+    private long matches = 0;
+
+    public WatchWordMatcher(List<String> watchList) {
+        phrases = new ArrayList<>();
+        for (String phrase : watchList) {
+            if (phrase != null && !phrase.trim().isEmpty()) phrases.add(phrase.trim());
+        }
+        build();
+        reset();
+    }
+
+    public List<String> getPhrases() {
+        return Collections.unmodifiableList(phrases);
+    }
+
+    /** A partial hypothesis for the current utterance. Returns phrases newly heard (usually empty). */
+    public List<String> update(String hypothesis) {
+        updates++;
+        keys.setLength(0);
+        keys.append(SEP);
+        encodeText(hypothesis, keys);
+        charsSeen += keys.length();
+
+        // Rewind to the longest common prefix with what's already been run
+        int common = 0;
+        int max = Math.min(fed.length(), keys.length());
+        while (common < max && fed.charAt(common) == keys.charAt(common)) common++;
+        fed.setLength(common);
+
+        List<String> found = Collections.emptyList();
+        List<String> heardWords = null; // Spelling of the hypothesis, only split if a short word matched
+        ensureCapacity(keys.length() + 1);
+        int state = stateAt[common];
+        int words = wordsAt[common];
+        for (int i = common; i < keys.length(); i++) {
+            char c = keys.charAt(i);
+            state = next[state][symbol(c)];
+            if (c == SEP) words++;
+            fed.append(c);
+            stateAt[i + 1] = state;
+            wordsAt[i + 1] = words;
+            charsRun++;
+            for (int id : outputs[state]) {
+                if (exact[id] != null) {
+                    if (heardWords == null) heardWords = splitWords(hypothesis);
+                    if (!spelledAsWatched(exact[id], heardWords, words - 1 - outputWords[id])) continue;
+                }
+                // Pattern ends on a separator: key for where it starts is stable across rewrites
+                long at = ((long) id << 32) | (words - outputWords[id]);
+                if (reported.add(at)) {
+                    if (found.isEmpty()) found = new ArrayList<>();
+                    if (!found.contains(phrases.get(id))) found.add(phrases.get(id));
+                    matches++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /** The final result of an utterance: matched like a partial, then the stream starts over. */
+    public List<String> finish(String text) {
+        List<String> found = update(text);
+        reset();
+        return found;
+    }
+
+    /** Drop the current utterance (recognizer error or restart). */
+    public void reset() {
+        fed.setLength(0);
+        stateAt[0] = 0;
+        wordsAt[0] = 0;
+        reported.clear();
+    }
+
+    public String getStatsSummary() {
+        return String.format(Locale.US, "phrases=%d states=%d updates=%d run=%d/%d chars matches=%d",
+                phrases.size(), next.length, updates, charsRun, charsSeen, matches);
+    }
+
+    // Each hypothesis word has exactly one key, so word positions in both agree
+    private static boolean spelledAsWatched(String[] spelling, List<String> heard, int first) {
+        if (first < 0 || first + spelling.length > heard.size()) return false;
+        for (int w = 0; w < spelling.length; w++) {
+            if (spelling[w] != null && !spelling[w].equals(heard.get(first + w))) return false;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= stateAt.length) return;
+        int size = Math.max(n, stateAt.length * 2);
+        stateAt = Arrays.copyOf(stateAt, size);
+        wordsAt = Arrays.copyOf(wordsAt, size);
+    }
+
+    // --- AUTOMATON ---
+    private void build() {
+        // Trie of every variant of every phrase
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(newNode());
+        out.add(new ArrayList<>());
+        outputWords = new int[phrases.size()];
+        exact = new String[phrases.size()][];
+
+        for (int id = 0; id < phrases.size(); id++) {
+            List<String> words = new ArrayList<>();
+            List<String> spelling = new ArrayList<>();
+            boolean needsSpelling = false;
+            StringBuilder key = new StringBuilder();
+            for (String word : splitWords(phrases.get(id))) {
+                key.setLength(0);
+                encodeWord(word, key);
+                if (key.length() == 0) continue;
+                words.add(key.toString());
+                boolean shortKey = key.charAt(0) != '#' && key.length() < MIN_SOUND_KEY;
+                spelling.add(shortKey ? word : null);
+                needsSpelling |= shortKey;
+            }
+            outputWords[id] = words.size();
+            if (needsSpelling) exact[id] = spelling.toArray(new String[0]);
+            for (String pattern : variants(words)) {
+                int node = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    int s = symbol(pattern.charAt(i));
+                    if (trie.get(node)[s] < 0) {
+                        trie.get(node)[s] = trie.size();
+                        trie.add(newNode());
+                        out.add(new ArrayList<>());
+                    }
+                    node = trie.get(node)[s];
+                }
+                if (!out.get(node).contains(id)) out.get(node).add(id);
+            }
+        }
+
+        // Breadth-first: failure links, folded straight into a full transition table
+        int n = trie.size();
+        next = new int[n][];
+        outputs = new int[n][];
+        int[] fail = new int[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        next[0] = new int[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            int child = trie.get(0)[s];
+            if (child > 0) {
+                fail[child] = 0;
+                queue[tail++] = child;
+                next[0][s] = child;
+            }
+        }
+        outputs[0] = toArray(out.get(0));
+        while (head < tail) {
+            int node = queue[head++];
+            List<Integer> merged = out.get(node);
+            for (int id : outputs[fail[node]]) if (!merged.contains(id)) merged.add(id);
+            outputs[node] = toArray(merged);
+            next[node] = new int[SYMBOLS];
+            for (int s = 0; s < SYMBOLS; s++) {
+                int child = trie.get(node)[s];
+                if (child > 0) {
+                    fail[child] = next[fail[node]][s];
+                    queue[tail++] = child;
+                    next[node][s] = child;
+                } else {
+                    next[node][s] = next[fail[node]][s];
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[SYMBOLS];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) array[i] = list.get(i);
+        return array;
+    }
+
+    /** " k1 k2 " plus versions with one sound dropped from a longer word. */
+    private static List<String> variants(List<String> words) {
+        List<String> patterns = new ArrayList<>();
+        if (words.isEmpty()) return patterns;
+        patterns.add(join(words));
+        for (int w = 0; w < words.size() && patterns.size() < MAX_VARIANTS; w++) {
+            String word = words.get(w);
+            if (word.charAt(0) == '#' || word.length() < MIN_CLASSES_FOR_VARIANTS) continue;
+            for (int drop = 1; drop < word.length() && patterns.size() < MAX_VARIANTS; drop++) { // Keep the first sound
+                List<String> copy = new ArrayList<>(words);
+                copy.set(w, word.substring(0, drop) + word.substring(drop + 1));
+                String pattern = join(copy);
+                if (!patterns.contains(pattern)) patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    private static String join(List<String> words) {
+        StringBuilder sb = new StringBuilder().append(SEP);
+        for (String word : words) sb.append(word).append(SEP);
+        return sb.toString();
+    }
+
+    private static int symbol(char c) {
+        return SYMBOL[c];
+    }
+
+    // --- ENCODING ---
+    private static List<String> splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (word.length() > 0 && Character.isDigit(c) != Character.isDigit(word.charAt(0))) {
+                    words.add(word.toString()); // "3b" -> "3", "b"
+                    word.setLength(0);
+                }
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /** Each word's key followed by a separator. */
+    private static void encodeText(String text, StringBuilder out) {
+        for (String word : splitWords(text)) {
+            int before = out.length();
+            encodeWord(word, out);
+            if (out.length() > before) out.append(SEP);
+        }
+    }
+
+    /** Sound-alike key of one lower-case word (or "#digits" for a number). */
+    static void encodeWord(String word, StringBuilder out) {
+        for (int n = 0; n < NUMBERS.length; n++) {
+            if (NUMBERS[n].equals(word)) {
+                word = Integer.toString(n);
+                break;
+            }
+        }
+        if (Character.isDigit(word.charAt(0))) {
+            out.append('#').append(word);
+            return;
+        }
+        int end = word.length();
+        if (end > 3 && word.endsWith("s") && !word.endsWith("ss")) end--; // Plural
+
+        char last = 0;
+        for (int i = 0; i < end; i++) {
+            char code = consonantClass(word.charAt(i));
+            if (code == 0) {
+                if (i == 0) out.append('A'); // Leading vowel sound
+                if (word.charAt(i) != 'h' && word.charAt(i) != 'w') last = 0; // Vowel splits repeats; h/w don't
+                continue;
+            }
+            if (code != last) out.append(code);
+            last = code;
+        }
+    }
+
+    private static char consonantClass(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v':
+                return 'B';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z':
+                return 'C';
+            case 'd': case 't':
+                return 'D';
+            case 'l':
+                return 'L';
+            case 'm': case 'n':
+                return 'M';
+            case 'r':
+                return 'R';
+            default:
+                return 0; // Vowels, h, w, y
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.inclusive.assist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build-time tool: compiles bus route JSON into the binary file RouteDatabase maps at runtime.
+ * Run by the app module's compile<Variant>RouteDb Gradle tasks (and by the tests). Plain JDK
+ * only, so it runs on the build machine without Android or org.json.
+ *
+ * Input is one or more files shaped like {"routes": [{"bus_number", "description", "stops":
+ * [{"name", "lat", "lon"}]}]}. Every string is stored once (stop names repeat across hundreds of
+ * routes), stops shared by routes are stored once, and coordinates become int arrays of
+ * micro-degrees (~11 cm). The layout is documented on RouteDatabase.
+ *
+ * Usage: RouteDbCompiler out.bin routes.json [more.json ...]
+ */
+public class RouteDbCompiler {
+
+    // Same values as RouteDatabase (this tool is built without the app's sources)
+    static final int MAGIC = 0x42445242;  // "BRDB" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 8;
+    static final double MICRO = 1e6;
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<String, Integer> stops = new LinkedHashMap<>(); // name|lat|lon -> stop id
+    private final IntList stopName = new IntList();
+    private final IntList stopLat = new IntList();
+    private final IntList stopLon = new IntList();
+    private final IntList routeNumber = new IntList();
+    private final IntList routeDescription = new IntList();
+    private final IntList routeFirstStop = new IntList();
+    private final IntList routeStops = new IntList();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RouteDbCompiler out.bin routes.json [more.json ...]");
+            System.exit(2);
+        }
+        RouteDbCompiler compiler = new RouteDbCompiler();
+        for (int i = 1; i < args.length; i++) {
+            compiler.add(new String(Files.readAllBytes(new File(args[i]).toPath()), StandardCharsets.UTF_8), args[i]);
+        }
+        File out = new File(args[0]);
+        if (out.getParentFile() != null) out.getParentFile().mkdirs();
+        try (OutputStream stream = new FileOutputStream(out)) {
+            compiler.write(stream);
+        }
+        System.out.println("RouteDbCompiler: " + compiler.getRouteCount() + " routes, " + compiler.stops.size()
+                + " stops, " + compiler.strings.size() + " strings -> " + out.length() + " bytes");
+    }
+
+    public RouteDbCompiler() {
+        routeFirstStop.add(0);
+    }
+
+    /** Adds every route in one JSON document. source is only for error messages. */
+    @SuppressWarnings("unchecked")
+    public void add(String json, String source) {
+        Object root = new JsonReader(json, source).readDocument();
+        if (!(root instanceof Map) || !(((Map<String, Object>) root).get("routes") instanceof List)) {
+            throw new IllegalArgumentException(source + ": expected {\"routes\": [...]}");
+        }
+        List<Object> routes = (List<Object>) ((Map<String, Object>) root).get("routes");
+        for (int r = 0; r < routes.size(); r++) {
+            String where = source + ": routes[" + r + "]";
+            Map<String, Object> route = object(routes.get(r), where);
+            routeNumber.add(intern(string(route, "bus_number", where)));
+            routeDescription.add(intern(string(route, "description", where)));
+            Object stopList = route.get("stops");
+            if (!(stopList instanceof List)) throw new IllegalArgumentException(where + ": missing \"stops\"");
+            List<Object> routeStopList = (List<Object>) stopList;
+            for (int s = 0; s < routeStopList.size(); s++) {
+                String stopWhere = where + ".stops[" + s + "]";
+                Map<String, Object> stop = object(routeStopList.get(s), stopWhere);
+                routeStops.add(stop(string(stop, "name", stopWhere),
+                        microDegrees(stop, "lat", stopWhere), microDegrees(stop, "lon", stopWhere)));
+            }
+            routeFirstStop.add(routeStops.size());
+        }
+    }
+
+    public int getRouteCount() {
+        return routeNumber.size();
+    }
+
+    /** Writes the database; see RouteDatabase for the layout. */
+    public void write(OutputStream out) throws IOException {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        int i = 0;
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            blob.write(bytes, 0, bytes.length);
+            stringOffsets[++i] = blob.size();
+        }
+
+        int stopCount = stopName.size();
+        int routeCount = routeNumber.size();
+        int ints = HEADER_INTS + stringOffsets.length + 3 * stopCount + 3 * routeCount + 1 + routeStops.size();
+        ByteBuffer buffer = ByteBuffer.allocate(ints * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(strings.size())
+                .putInt(stopCount)
+                .putInt(routeCount)
+                .putInt(routeStops.size())
+                .putInt(blob.size())
+                .putInt(0);
+        for (int offset : stringOffsets) buffer.putInt(offset);
+        stopName.writeTo(buffer);
+        stopLat.writeTo(buffer);
+        stopLon.writeTo(buffer);
+        routeNumber.writeTo(buffer);
+        routeDescription.writeTo(buffer);
+        routeFirstStop.writeTo(buffer);
+        routeStops.writeTo(buffer);
+        out.write(buffer.array());
+        blob.writeTo(out);
+    }
+
+    private int intern(String s) {
+        Integer id = strings.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.put(s, id);
+        }
+        return id;
+    }
+
+    private int stop(String name, int lat, int lon) {
+        String key = name + '|' + lat + '|' + lon;
+        Integer id = stops.get(key);
+        if (id == null) {
+            id = stops.size();
+            stops.put(key, id);
+            stopName.add(intern(name));
+            stopLat.add(lat);
+            stopLon.add(lon);
+        }
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value, String where) {
+        if (!(value instanceof Map)) throw new IllegalArgumentException(where + ": expected an object");
+        return (Map<String, Object>) value;
+    }
+
+    private static String string(Map<String, Object> object, String key, String where) {
+        Object value = object.get(key);
+        if (!(value instanceof String)) throw new IllegalArgumentException(where + ": missing \"" + key + "\"");
+        return (String) value;
+    }
+
+    private static int microDegrees(Map<String, Object> object, String key, String where) {
+        Object value = object.get(key);
+        if (!(value instanceof Double)) throw new IllegalArgumentException(where + ": missing \"" + key + "\"");
+        double degrees = (Double) value;
+        if (Math.abs(degrees) > 180) throw new IllegalArgumentException(where + ": bad \"" + key + "\" " + degrees);
+        return (int) Math.round(degrees * MICRO);
+    }
+
+    private static class IntList {
+        private int[] values = new int[256];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            for (int i = 0; i < size; i++) buffer.putInt(values[i]);
+        }
+    }
+
+    // --- JSON ---
+    // Just enough JSON for route files: objects, arrays, strings, numbers (as Double), true/false/null
+    private static class JsonReader {
+        private final String text;
+        private final String source;
+        private int pos = 0;
+
+        JsonReader(String text, String source) {
+            this.text = text;
+            this.source = source;
+        }
+
+        Object readDocument() {
+            Object value = readValue();
+            skipSpace();
+            if (pos < text.length()) throw error("trailing characters");
+            return value;
+        }
+
+        private Object readValue() {
+            skipSpace();
+            if (pos >= text.length()) throw error("unexpected end");
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    expect("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expect("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expect("null");
+                    return null;
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos++;
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipSpace();
+                if (peek() != '"') throw error("expected a key");
+                String key = readString();
+                skipSpace();
+                if (peek() != ':') throw error("expected ':'");
+                pos++;
+                object.put(key, readValue());
+                skipSpace();
+                char c = next();
+                if (c == '}') return object;
+                if (c != ',') throw error("expected ',' or '}'");
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipSpace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipSpace();
+                char c = next();
+                if (c == ']') return array;
+                if (c != ',') throw error("expected ',' or ']'");
+            }
+        }
+
+        private String readString() {
+            StringBuilder sb = new StringBuilder();
+            pos++; // Opening quote
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) throw error("bad \\u escape");
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(e); // \" \\ \/
+                }
+            }
+        }
+
+        private Double readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+            if (start == pos) throw error("unexpected '" + text.charAt(pos) + "'");
+            try {
+                return Double.valueOf(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("bad number");
+            }
+        }
+
+        private void expect(String word) {
+            if (!text.startsWith(word, pos)) throw error("expected " + word);
+            pos += word.length();
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private char peek() {
+            if (pos >= text.length()) throw error("unexpected end");
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(source + ": " + message + " at offset " + pos);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: trains a PhrasePredictor on a full history of sent messages (synthetic: a user
+ * who repeats a few hundred habitual replies with small changes, plus free text over a Zipf
+ * vocabulary), then types held-out messages one key at a time, asking for suggestions on every
+ * keystroke. Reports memory, lookup latency and how many keystrokes the suggestions would save.
+ * Run with: ./gradlew :app:testDebugUnitTest --tests "*PhrasePredictorBenchmark"
+ */
+public class PhrasePredictorBenchmark {
+
+    private static final int HISTORY = 5000;     // The predictor keeps this many sent messages
+    private static final int HELD_OUT = 500;
+    private static final int VOCABULARY = 3000;
+    private static final int HABITS = 300;       // Replies this user sends again and again
+    private static final double HABIT_SHARE = 0.7;
+
+    private static final String[] STOCK = {
+            "I am Deaf.\nPlease communicate visually.", "Please write it down.", "Where is the Hospital?",
+            "I need Police help.", "Where is the Restroom?", "Thank You!"
+    };
+
+    private static final String[] COMMON = {
+            "i", "you", "the", "to", "a", "is", "please", "can", "it", "what", "where", "my", "me", "do", "for",
+            "that", "need", "am", "are", "thank", "how", "help", "time", "here", "will", "not", "we", "your",
+            "want", "when", "go", "bus", "stop", "train", "ticket", "water", "doctor", "home", "today", "tomorrow"
+    };
+
+    private static String[] vocabulary(Random random) {
+        String[] syllables = {"ka", "lo", "mi", "ter", "sun", "pra", "vel", "dor", "tion", "es", "ing", "ed", "ra", "ba", "qui"};
+        String[] words = new String[VOCABULARY];
+        System.arraycopy(COMMON, 0, words, 0, COMMON.length);
+        for (int i = COMMON.length; i < VOCABULARY; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = 1 + random.nextInt(3);
+            for (int s = 0; s < n; s++) sb.append(syllables[random.nextInt(syllables.length)]);
+            words[i] = sb.toString();
+        }
+        return words;
+    }
+
+    private static String sentence(Random random, String[] words, double[] cumulative, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < length; w++) {
+            int r = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+            if (w > 0) sb.append(' ');
+            sb.append(words[r < 0 ? Math.min(-r - 1, words.length - 1) : r]);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> messages(Random random, String[] words, double[] cumulative, String[] habits, int n) {
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (random.nextDouble() < HABIT_SHARE) {
+                // A habit, sometimes with one word changed ("see you tomorrow" / "see you today")
+                String[] habit = habits[(int) Math.min(habits.length - 1, Math.abs(random.nextGaussian()) * habits.length / 3)].split(" ");
+                if (random.nextDouble() < 0.2) habit[random.nextInt(habit.length)] = sentence(random, words, cumulative, 1);
+                out.add(String.join(" ", habit));
+            } else {
+                out.add(sentence(random, words, cumulative, 3 + random.nextInt(10)));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void typingWithSuggestions() {
+        Random random = new Random(7);
+        String[] words = vocabulary(random);
+        double[] cumulative = new double[words.length];
+        double sum = 0;
+        for (int r = 0; r < words.length; r++) {
+            sum += 1.0 / (r + 1);
+            cumulative[r] = sum;
+        }
+        String[] habits = new String[HABITS];
+        for (int h = 0; h < HABITS; h++) habits[h] = sentence(random, words, cumulative, 3 + random.nextInt(6));
+        List<String> history = messages(random, words, cumulative, habits, HISTORY);
+        List<String> typed = messages(random, words, cumulative, habits, HELD_OUT);
+
+        // Train, and weigh it
+        System.gc();
+        long heapBefore = usedHeap();
+        long trainStart = System.nanoTime();
+        PhrasePredictor predictor = new PhrasePredictor();
+        for (String phrase : STOCK) predictor.learn(phrase);
+        for (String message : history) predictor.learn(message);
+        long trainMs = (System.nanoTime() - trainStart) / 1_000_000;
+        System.gc();
+        long heapBytes = usedHeap() - heapBefore;
+
+        // Stock phrases come back
+        assertTrue(predictor.suggest("Where is the h", 3).contains("hospital"));
+        assertTrue(predictor.suggest("Please write ", 3).get(0).startsWith("it"));
+
+        // Warm up, then one suggest() per keystroke, taking a suggestion whenever it's what we were going to type
+        for (String message : typed.subList(0, 50)) predictor.suggest(message, 3);
+        List<Long> times = new ArrayList<>();
+        long keys = 0, saved = 0;
+        for (String message : typed) {
+            String text = "";
+            while (text.length() < message.length()) {
+                long start = System.nanoTime();
+                List<String> suggestions = predictor.suggest(text, 3);
+                times.add(System.nanoTime() - start);
+
+                int wordStart = text.lastIndexOf(' ') + 1;
+                String taken = null;
+                for (String s : suggestions) {
+                    String candidate = text.substring(0, wordStart) + s.toLowerCase(Locale.US);
+                    if (message.startsWith(candidate) && (candidate.length() == message.length() || message.charAt(candidate.length()) == ' ')) {
+                        if (taken == null || candidate.length() > taken.length()) taken = candidate;
+                    }
+                }
+                if (taken != null && taken.length() > text.length() + 1) {
+                    saved += taken.length() - text.length() - 1; // One tap instead of the letters
+                    text = taken.length() < message.length() ? taken + " " : taken;
+                } else {
+                    text = message.substring(0, text.length() + 1);
+                }
+            }
+            keys += message.length();
+            predictor.learn(message); // Sent: learnt straight away, like the app does
+        }
+
+        long[] sortedTimes = new long[times.size()];
+        for (int i = 0; i < sortedTimes.length; i++) sortedTimes[i] = times.get(i);
+        Arrays.sort(sortedTimes);
+        double p50Us = sortedTimes[sortedTimes.length / 2] / 1e3;
+        double p99Us = sortedTimes[sortedTimes.length * 99 / 100] / 1e3;
+        double maxUs = sortedTimes[sortedTimes.length - 1] / 1e3;
+        double keystrokeSavings = (double) saved / keys;
+
+        System.out.println(String.format(Locale.US,
+                "PhrasePredictor: %d messages trained in %dms, %s, heap ~%dKB | %d lookups p50=%.1fus p99=%.1fus max=%.0fus | keystrokes saved %.0f%%",
+                HISTORY + STOCK.length, trainMs, predictor.getStatsSummary(), heapBytes / 1024,
+                sortedTimes.length, p50Us, p99Us, maxUs, keystrokeSavings * 100));
+
+        assertTrue("p99 lookup too slow: " + p99Us + "us", p99Us < 5000);
+        assertTrue("Model too big: " + predictor.estimateBytes(), predictor.estimateBytes() < 8L * 1024 * 1024);
+        assertTrue("Suggestions barely help: " + keystrokeSavings, keystrokeSavings > 0.15);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
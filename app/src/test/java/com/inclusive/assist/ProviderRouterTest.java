@@ -0,0 +1,193 @@
+package com.inclusive.assist;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs ProviderRouter against two local stand-in servers that speak the Groq and
+ * Gemini JSON formats, with configurable status codes and delays.
+ */
+public class ProviderRouterTest {
+
+    private static final String GROQ_OK =
+            "{\"model\":\"llama\",\"choices\":[{\"message\":{\"content\":\"from groq\"}}],"
+                    + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3}}";
+    private static final String GEMINI_OK =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"from gemini\"}]}}],"
+                    + "\"usageMetadata\":{\"promptTokenCount\":10,\"candidatesTokenCount\":2}}";
+
+    /** A tiny HTTP server that answers every request with a fixed status/body after a delay. */
+    private static class StandIn {
+        final HttpServer server;
+        volatile int status = 200;
+        volatile long delayMs = 0;
+        final AtomicInteger hits = new AtomicInteger();
+
+        StandIn(String body) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+            server.createContext("/", exchange -> {
+                hits.incrementAndGet();
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException ignored) {
+                }
+                byte[] bytes = (status == 200 ? body : "{\"error\":\"down\"}").getBytes(StandardCharsets.UTF_8);
+                try {
+                    exchange.sendResponseHeaders(status, bytes.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(bytes);
+                    }
+                } catch (IOException ignored) {
+                    // Client gave up (timeout) - expected in the slow tests
+                }
+            });
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        }
+    }
+
+    /** Collects the single callback result of one routed request. */
+    private static class Result implements ProviderRouter.Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+        AiResponse response;
+        int failureCode = -1;
+
+        @Override
+        public void onSuccess(AiResponse response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(int lastHttpCode, IOException lastError) {
+            failureCode = lastHttpCode;
+            done.countDown();
+        }
+
+        Result await() throws InterruptedException {
+            assertTrue("request did not finish", done.await(10, TimeUnit.SECONDS));
+            return this;
+        }
+    }
+
+    private StandIn groq;
+    private StandIn gemini;
+    private ProviderRouter router;
+
+    @Before
+    public void setUp() throws IOException {
+        groq = new StandIn(GROQ_OK);
+        gemini = new StandIn(GEMINI_OK);
+
+        List<AiProvider> providers = new ArrayList<>();
+        providers.add(new GroqProvider(groq.url() + "chat", "groq-key", "chat-model", "fast-model", "vision-model"));
+        providers.add(new GeminiProvider(gemini.url(), "gemini-key", "gemini-chat", "gemini-fast", "gemini-vision"));
+        router = new ProviderRouter(new OkHttpClient(), providers);
+    }
+
+    @After
+    public void tearDown() {
+        groq.server.stop(0);
+        gemini.server.stop(0);
+    }
+
+    private Result ask(long budgetMs) throws InterruptedException {
+        Result result = new Result();
+        router.enqueue(new AiRequest(Collections.singletonList(ChatMessage.user("hello")), 0), budgetMs, result);
+        return result.await();
+    }
+
+    @Test
+    public void healthyPrimaryAnswers() throws Exception {
+        Result result = ask(5000);
+
+        assertEquals("from groq", result.response.text);
+        assertEquals("groq", result.response.provider);
+        assertEquals(12, result.response.promptTokens);
+        assertEquals(0, gemini.hits.get());
+        assertEquals("groq", router.getLastProvider());
+    }
+
+    @Test
+    public void failsOverOn503() throws Exception {
+        groq.status = 503;
+
+        Result result = ask(5000);
+
+        assertEquals("from gemini", result.response.text);
+        assertEquals(1, groq.hits.get());
+        assertEquals(1, router.getHealth("groq").errorCount());
+        assertEquals(0, router.getHealth("gemini").errorCount());
+    }
+
+    @Test
+    public void failsOverWhenPrimaryIsTooSlow() throws Exception {
+        groq.delayMs = 4000;
+
+        long start = System.currentTimeMillis();
+        Result result = ask(4000);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("from gemini", result.response.text);
+        assertTrue("took " + elapsed + "ms, budget was 4000ms", elapsed < 4000);
+    }
+
+    @Test
+    public void reportsFailureWhenAllProvidersAreDown() throws Exception {
+        groq.status = 503;
+        gemini.status = 500;
+
+        Result result = ask(5000);
+
+        assertNull(result.response);
+        assertEquals(500, result.failureCode);
+    }
+
+    @Test
+    public void unhealthyProviderIsRankedLast() throws Exception {
+        groq.status = 503;
+        ask(5000);
+        ask(5000);
+
+        assertEquals("gemini", router.rankProviders(false).get(0).getName());
+
+        // Next request goes straight to Gemini
+        int groqHits = groq.hits.get();
+        ask(5000);
+        assertEquals(groqHits, groq.hits.get());
+    }
+
+    @Test
+    public void skipsProvidersWithoutKey() {
+        List<AiProvider> providers = new ArrayList<>();
+        providers.add(new GroqProvider(groq.url(), "null", "chat", "fast", "vision"));
+        providers.add(new GeminiProvider(gemini.url(), "key", "chat", "fast", "vision"));
+        ProviderRouter keyless = new ProviderRouter(new OkHttpClient(), providers);
+
+        List<AiProvider> ranked = keyless.rankProviders(true);
+        assertEquals(1, ranked.size());
+        assertEquals("gemini", ranked.get(0).getName());
+    }
+}
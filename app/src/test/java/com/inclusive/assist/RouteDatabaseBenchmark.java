@@ -0,0 +1,197 @@
+package com.inclusive.assist;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: the old way of loading routes (whole bus_routes.json into an org.json DOM, every
+ * route kept as a JSONObject) against mapping the compiled RouteDatabase, on a synthetic network
+ * the size of Bangalore's (BMTC: a few thousand routes, ~10k stops). Also checks the compiled demo
+ * routes read back exactly as the JSON says.
+ * Run with: ./gradlew :app:testDebugUnitTest --tests "*RouteDatabaseBenchmark"
+ */
+public class RouteDatabaseBenchmark {
+
+    private static final int ROUTES = 2500;
+    private static final int STOPS = 9000;
+    private static final int MIN_ROUTE_STOPS = 20;
+    private static final int MAX_ROUTE_STOPS = 60;
+    private static final int RUNS = 5;
+
+    private static final String DEMO_ROUTES = "src/main/routes/bus_routes.json";
+
+    @Test
+    public void demoRoutesRoundTrip() throws Exception {
+        File json = new File(DEMO_ROUTES);
+        if (!json.exists()) json = new File("app/" + DEMO_ROUTES); // Run from the repo root
+        String text = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+        RouteDatabase db = RouteDatabase.map(compile(text));
+
+        JSONArray routes = new JSONObject(text).getJSONArray("routes");
+        assertEquals(routes.length(), db.getRouteCount());
+        for (int r = 0; r < routes.length(); r++) {
+            JSONObject route = routes.getJSONObject(r);
+            assertEquals(route.getString("bus_number"), db.getBusNumber(r));
+            assertEquals(route.getString("description"), db.getDescription(r));
+            JSONArray stops = route.getJSONArray("stops");
+            assertEquals(stops.length(), db.getStopCount(r));
+            for (int s = 0; s < stops.length(); s++) {
+                JSONObject stop = stops.getJSONObject(s);
+                int id = db.getStop(r, s);
+                assertEquals(stop.getString("name"), db.getStopName(id));
+                assertEquals(stop.getDouble("lat"), db.getStopLat(id), 1e-6);
+                assertEquals(stop.getDouble("lon"), db.getStopLon(id), 1e-6);
+            }
+        }
+        assertEquals(routes.getJSONObject(0).getString("bus_number") + " - " + routes.getJSONObject(0).getString("description"),
+                db.routeLabels().get(0));
+    }
+
+    @Test
+    public void jsonVersusMapped() throws Exception {
+        File json = File.createTempFile("bus_routes", ".json");
+        json.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(json)) {
+            out.write(network(new Random(5)).getBytes(StandardCharsets.UTF_8));
+        }
+        long compileStart = System.nanoTime();
+        File bin = compile(new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8));
+        long compileMs = (System.nanoTime() - compileStart) / 1_000_000;
+
+        // Load time: best of a few runs, each from the file (page cache warm for both)
+        long jsonNs = Long.MAX_VALUE, mappedNs = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            List<JSONObject> routes = loadJson(json, new ArrayList<>());
+            jsonNs = Math.min(jsonNs, System.nanoTime() - start);
+            assertEquals(ROUTES, routes.size());
+
+            start = System.nanoTime();
+            RouteDatabase db = RouteDatabase.map(bin);
+            mappedNs = Math.min(mappedNs, System.nanoTime() - start);
+            assertEquals(ROUTES, db.getRouteCount());
+        }
+
+        // Heap kept alive by each, with the route list on screen. Reported only: System.gc() is a
+        // hint, so these numbers are too noisy to assert on
+        System.gc();
+        long before = usedHeap();
+        List<String> jsonLabels = new ArrayList<>();
+        List<JSONObject> jsonRoutes = loadJson(json, jsonLabels);
+        System.gc();
+        long jsonHeap = usedHeap() - before;
+
+        before = usedHeap();
+        RouteDatabase db = RouteDatabase.map(bin);
+        List<String> labels = db.routeLabels();
+        System.gc();
+        long mappedHeap = Math.max(0, usedHeap() - before);
+
+        // Same answers, and what a voice search (scan every route) costs each way
+        assertEquals(jsonLabels.get(ROUTES - 1), labels.get(ROUTES - 1));
+        JSONObject someStop = jsonRoutes.get(7).getJSONArray("stops").getJSONObject(3);
+        assertEquals(someStop.getString("name"), db.getStopName(db.getStop(7, 3)));
+        long start = System.nanoTime();
+        int jsonHits = 0;
+        for (JSONObject route : jsonRoutes) if (route.getString("description").toLowerCase(Locale.US).contains("majestic")) jsonHits++;
+        long jsonScanNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        int hits = 0;
+        for (int r = 0; r < db.getRouteCount(); r++) if (db.getDescription(r).toLowerCase(Locale.US).contains("majestic")) hits++;
+        long mappedScanNs = System.nanoTime() - start;
+        assertEquals(jsonHits, hits);
+
+        System.out.println(String.format(Locale.US,
+                "RouteDatabase: %d routes, %d stops | json %dKB load=%.1fms heap=%dKB | bin %dKB (compiled in %dms) open=%.3fms heap=%dKB | scan json=%.1fms bin=%.1fms",
+                ROUTES, db.getStopCount(), json.length() / 1024, jsonNs / 1e6, jsonHeap / 1024,
+                bin.length() / 1024, compileMs, mappedNs / 1e6, mappedHeap / 1024, jsonScanNs / 1e6, mappedScanNs / 1e6));
+        assertTrue(jsonRoutes.size() == ROUTES); // Keep the DOM alive until here
+
+        assertTrue("Mapped open not much faster: " + mappedNs + "ns vs " + jsonNs + "ns", mappedNs * 20 < jsonNs);
+        assertTrue("Binary bigger than JSON", bin.length() * 3 < json.length());
+    }
+
+    /** What BusRouteActivity.loadBusData used to do. */
+    private static List<JSONObject> loadJson(File file, List<String> labels) throws Exception {
+        byte[] buffer;
+        try (InputStream is = new FileInputStream(file)) {
+            buffer = new byte[(int) file.length()];
+            int read = 0;
+            while (read < buffer.length) read += is.read(buffer, read, buffer.length - read);
+        }
+        JSONArray routes = new JSONObject(new String(buffer, StandardCharsets.UTF_8)).getJSONArray("routes");
+        List<JSONObject> all = new ArrayList<>();
+        for (int i = 0; i < routes.length(); i++) {
+            JSONObject route = routes.getJSONObject(i);
+            all.add(route);
+            labels.add(route.getString("bus_number") + " - " + route.getString("description"));
+        }
+        return all;
+    }
+
+    private static File compile(String json) throws IOException {
+        RouteDbCompiler compiler = new RouteDbCompiler();
+        compiler.add(json, "test");
+        File bin = File.createTempFile("bus_routes", ".bin");
+        bin.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(bin)) {
+            compiler.write(out);
+        }
+        return bin;
+    }
+
+    // Stops scattered over the city, routes as walks between nearby stops, in the assets' JSON shape
+    private static String network(Random random) {
+        String[] parts = {"Hebbal", "Silk Board", "Majestic", "Whitefield", "Jayanagar", "Yelahanka", "Banashankari",
+                "Kengeri", "Marathahalli", "Domlur", "Indiranagar", "Koramangala", "Hosur Road", "Peenya", "Vijayanagar"};
+        String[] kinds = {"Bus Stand", "Cross", "Circle", "Gate", "Main Road", "Bridge", "Depot", "Signal", "Layout"};
+        String[] names = new String[STOPS];
+        double[] lat = new double[STOPS], lon = new double[STOPS];
+        for (int s = 0; s < STOPS; s++) {
+            names[s] = parts[random.nextInt(parts.length)] + " " + (1 + s / 60) + " " + kinds[random.nextInt(kinds.length)];
+            lat[s] = 12.85 + 0.3 * random.nextDouble();
+            lon[s] = 77.45 + 0.35 * random.nextDouble();
+        }
+
+        StringBuilder sb = new StringBuilder("{\n    \"routes\": [\n");
+        for (int r = 0; r < ROUTES; r++) {
+            int first = random.nextInt(STOPS);
+            int last = random.nextInt(STOPS);
+            sb.append("        {\n            \"bus_number\": \"").append(100 + r / 4).append('-').append((char) ('A' + r % 4))
+                    .append("\",\n            \"description\": \"").append(names[first]).append(" to ").append(names[last])
+                    .append("\",\n            \"stops\": [\n");
+            int count = MIN_ROUTE_STOPS + random.nextInt(MAX_ROUTE_STOPS - MIN_ROUTE_STOPS + 1);
+            int stop = first;
+            for (int k = 0; k < count; k++) {
+                if (k > 0) sb.append(",\n");
+                sb.append(String.format(Locale.US,
+                        "                {\n                    \"name\": \"%s\",\n                    \"lat\": %.4f,\n                    \"lon\": %.4f\n                }",
+                        names[stop], lat[stop], lon[stop]));
+                stop = k == count - 2 ? last : (stop + 1 + random.nextInt(40)) % STOPS;
+            }
+            sb.append("\n            ]\n        }").append(r < ROUTES - 1 ? ",\n" : "\n");
+        }
+        return sb.append("    ]\n}\n").toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
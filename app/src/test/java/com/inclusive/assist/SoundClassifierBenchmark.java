@@ -0,0 +1,107 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: streams the WAV fixtures in src/test/resources/sounds/ through SoundClassifier
+ * in 100ms blocks, like SoundLevelMonitor does, at the file's rate and at the app's 44.1 kHz.
+ * Each file must give its sound (or nothing, for "none-*") and the classifier has to stay
+ * within a few percent of one core.
+ *
+ * The fixtures are synthetic (SoundFixtures), made by the same code the templates were tuned
+ * against, so passing is a regression check, not a measure of accuracy on real sounds.
+ * Run with: ./gradlew :app:testDebugUnitTest --tests "*SoundClassifierBenchmark"
+ */
+public class SoundClassifierBenchmark {
+
+    private static final int[] RATES = {SoundFixtures.RATE, 44100};
+    private static final int ROUNDS = 5; // Timing over a few passes, after a warm-up
+    private static final double MAX_CPU_SHARE = 0.03;
+
+    @Test
+    public void syntheticFixturesRegression() throws IOException {
+        File[] files = fixtures();
+        assertTrue("No fixtures found", files.length > 0);
+
+        List<String> wrong = new ArrayList<>();
+        for (int rate : RATES) {
+            for (File file : files) {
+                String expected = file.getName().substring(0, file.getName().indexOf('-')).toUpperCase(Locale.US);
+                SoundClassifier classifier = new SoundClassifier(rate);
+                List<SoundClassifier.Sound> found = run(classifier, load(file, rate), rate);
+                boolean ok = expected.equals("NONE")
+                        ? found.isEmpty()
+                        : found.size() == 1 && found.get(0).name().equals(expected);
+                System.out.println(String.format(Locale.US, "synthetic %-22s %5d Hz  expected=%-8s got=%s",
+                        file.getName(), rate, expected, found));
+                if (!ok) wrong.add(file.getName() + "@" + rate + " -> " + found);
+            }
+        }
+        assertTrue("Synthetic fixtures changed result: " + wrong, wrong.isEmpty());
+    }
+
+    @Test
+    public void cpuBudget() throws IOException {
+        File[] files = fixtures();
+        for (int rate : RATES) {
+            List<short[]> audio = new ArrayList<>();
+            for (File file : files) audio.add(load(file, rate));
+            for (short[] pcm : audio) run(new SoundClassifier(rate), pcm, rate); // Warm-up
+
+            SoundClassifier classifier = new SoundClassifier(rate);
+            for (int round = 0; round < ROUNDS; round++) {
+                for (short[] pcm : audio) {
+                    classifier.reset();
+                    run(classifier, pcm, rate);
+                }
+            }
+            double share = classifier.getCpuShare();
+            System.out.println(String.format(Locale.US, "SoundClassifier @ %d Hz: %s (%.3f%% of one core)",
+                    rate, classifier.getStatsSummary(), share * 100));
+            assertTrue("Too slow at " + rate + " Hz: " + share * 100 + "%", share < MAX_CPU_SHARE);
+        }
+    }
+
+    /** Stream in 100ms blocks and collect what comes out. */
+    private static List<SoundClassifier.Sound> run(SoundClassifier classifier, short[] pcm, int rate) {
+        List<SoundClassifier.Sound> found = new ArrayList<>();
+        short[] block = new short[rate / 10];
+        for (int pos = 0; pos < pcm.length; pos += block.length) {
+            int n = Math.min(block.length, pcm.length - pos);
+            System.arraycopy(pcm, pos, block, 0, n);
+            SoundClassifier.Sound sound = classifier.feed(block, n);
+            if (sound != null) found.add(sound);
+        }
+        return found;
+    }
+
+    private static short[] load(File file, int rate) throws IOException {
+        int[] fileRate = new int[1];
+        short[] pcm;
+        try (InputStream in = new FileInputStream(file)) {
+            pcm = SoundFixtures.readWav(in, fileRate);
+        }
+        return fileRate[0] == rate ? pcm : SoundFixtures.resample(pcm, fileRate[0], rate);
+    }
+
+    private static File[] fixtures() {
+        URL dir = SoundClassifierBenchmark.class.getClassLoader().getResource("sounds");
+        assertNotNull("Missing src/test/resources/sounds", dir);
+        File[] files = new File(dir.getPath()).listFiles((d, name) -> name.endsWith(".wav"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        return files;
+    }
+}
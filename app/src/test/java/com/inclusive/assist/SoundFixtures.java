@@ -0,0 +1,229 @@
+package com.inclusive.assist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * WAV fixtures for SoundClassifierBenchmark, in src/test/resources/sounds/.
+ *
+ * File names are "<expected>-<what>.wav", expected being a SoundClassifier.Sound name in lower
+ * case or "none". The committed files were made with main() below: synthetic stand-ins shaped
+ * like the real sounds (sweeps, harmonics, decays, pulses) over room noise. Real recordings can
+ * be dropped in with the same naming, 16-bit mono at any rate.
+ * Regenerate with: java SoundFixtures app/src/test/resources/sounds
+ */
+public class SoundFixtures {
+
+    static final int RATE = 16000;
+    private static final double SECONDS = 3.0;
+    private static final double LEAD_IN = 0.5; // Room noise first, like a mic that was already on
+
+    /** Samples of a 16-bit mono WAV; rate[0] gets the sample rate. */
+    static short[] readWav(InputStream in, int[] rate) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) bytes.write(buffer, 0, n);
+        ByteBuffer wav = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.getInt(0) != 0x46464952 || wav.getInt(8) != 0x45564157) throw new IOException("Not a WAV file");
+        int pos = 12;
+        short[] samples = null;
+        while (pos + 8 <= wav.limit()) {
+            int id = wav.getInt(pos), size = wav.getInt(pos + 4);
+            if (id == 0x20746d66) { // "fmt "
+                if (wav.getShort(pos + 8) != 1 || wav.getShort(pos + 10) != 1 || wav.getShort(pos + 22) != 16) {
+                    throw new IOException("Only 16-bit mono PCM");
+                }
+                rate[0] = wav.getInt(pos + 12);
+            } else if (id == 0x61746164) { // "data"
+                samples = new short[size / 2];
+                for (int i = 0; i < samples.length; i++) samples[i] = wav.getShort(pos + 8 + i * 2);
+            }
+            pos += 8 + size + (size & 1);
+        }
+        if (samples == null) throw new IOException("No data chunk");
+        return samples;
+    }
+
+    static void writeWav(File file, short[] samples, int rate) throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        wav.putInt(0x46464952).putInt(36 + samples.length * 2).putInt(0x45564157);
+        wav.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(rate).putInt(rate * 2).putShort((short) 2).putShort((short) 16);
+        wav.putInt(0x61746164).putInt(samples.length * 2);
+        for (short s : samples) wav.putShort(s);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(wav.array());
+        }
+    }
+
+    /** Linear-interpolation resample, to run the fixtures at the app's 44.1 kHz too. */
+    static short[] resample(short[] in, int from, int to) {
+        short[] out = new short[(int) ((long) in.length * to / from)];
+        for (int i = 0; i < out.length; i++) {
+            double x = (double) i * from / to;
+            int a = (int) x;
+            int b = Math.min(in.length - 1, a + 1);
+            out[i] = (short) Math.round(in[a] + (in[b] - in[a]) * (x - a));
+        }
+        return out;
+    }
+
+    // --- GENERATOR ---
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "app/src/test/resources/sounds");
+        if (!dir.exists()) dir.mkdirs();
+        Random random = new Random(7);
+        int n = (int) (SECONDS * RATE);
+
+        write(dir, "siren-wail", n, random, (t, s) -> t < LEAD_IN ? 0
+                : 0.3 * tone(s.phase(1050 + 400 * Math.sin(2 * Math.PI * t / 4 + 1.2)), 0.2, 0.1));
+        write(dir, "siren-yelp", n, random, (t, s) -> t < LEAD_IN ? 0
+                : 0.3 * tone(s.phase(1150 + 450 * triangle(t / 0.32)), 0.15, 0.05));
+        write(dir, "horn-car", n, random, (t, s) -> t < LEAD_IN || t > 2.2 ? 0
+                : 0.25 * buzz(s.phase(415), 10) * ramp(t - LEAD_IN, 2.2 - t));
+        write(dir, "horn-truck", n, random, (t, s) -> t < LEAD_IN || t > 2.6 ? 0
+                : 0.3 * buzz(s.phase(300), 12) * ramp(t - LEAD_IN, 2.6 - t));
+        write(dir, "doorbell-dingdong", n, random, (t, s) ->
+                0.3 * (bell(t - 0.6, 659, 0.35) + bell(t - 1.2, 523, 0.4)));
+        write(dir, "doorbell-chime", n, random, (t, s) ->
+                0.3 * (bell(t - 0.6, 784, 0.3) + bell(t - 1.0, 659, 0.3) + bell(t - 1.4, 523, 0.45)));
+        write(dir, "alarm-smoke", n, random, (t, s) -> {
+            double cycle = (t - LEAD_IN) % 1.0;
+            return t < LEAD_IN || cycle > 0.5 ? 0 : 0.3 * tone(s.phase(3100), 0.1, 0) * ramp(cycle, 0.5 - cycle);
+        });
+        write(dir, "alarm-clock", n, random, (t, s) -> {
+            double cycle = (t - LEAD_IN) % 0.2;
+            return t < LEAD_IN || cycle > 0.1 ? 0 : 0.25 * tone(s.phase(2450), 0.05, 0) * ramp(cycle, 0.1 - cycle);
+        });
+        write(dir, "baby_cry-1", n, random, (t, s) -> cry(t, s, 470, new double[][]{{0.5, 1.45}, {1.75, 2.8}}));
+        write(dir, "baby_cry-2", n, random, (t, s) -> cry(t, s, 540, new double[][]{{0.6, 1.3}, {1.6, 2.5}}));
+        write(dir, "none-speech", n, random, SoundFixtures::speech);
+        write(dir, "none-traffic", n, random, (t, s) -> 0.6 * s.rumble());
+        write(dir, "none-slam", n, random, (t, s) -> {
+            double a = t >= 1.0 && t < 1.3 ? Math.exp(-(t - 1.0) / 0.04) : 0;
+            double b = t >= 2.0 && t < 2.3 ? Math.exp(-(t - 2.0) / 0.06) : 0;
+            return 0.8 * (a + b) * s.white();
+        });
+    }
+
+    private interface Signal {
+        double at(double t, State state);
+    }
+
+    /** Oscillator phase and noise generators for one file. */
+    private static class State {
+        final Random random;
+        double phase = 0;
+        double pink = 0, brown = 0;
+
+        State(Random random) {
+            this.random = random;
+        }
+
+        /** Advance by one sample at frequency hz, return the phase in radians. */
+        double phase(double hz) {
+            phase += 2 * Math.PI * hz / RATE;
+            if (phase > 2 * Math.PI) phase -= 2 * Math.PI;
+            return phase;
+        }
+
+        double white() {
+            return random.nextDouble() * 2 - 1;
+        }
+
+        double noise() {
+            pink = 0.97 * pink + 0.03 * white() * 4;
+            return 0.5 * pink + 0.15 * white();
+        }
+
+        double rumble() {
+            brown = Math.max(-1, Math.min(1, 0.995 * brown + 0.02 * white()));
+            return brown + 0.05 * white();
+        }
+    }
+
+    private static void write(File dir, String name, int n, Random random, Signal signal) throws IOException {
+        State state = new State(random);
+        short[] samples = new short[n];
+        for (int i = 0; i < n; i++) {
+            double t = (double) i / RATE;
+            double v = signal.at(t, state) + 0.02 * state.noise() + 0.01 * state.rumble(); // Room noise
+            samples[i] = (short) Math.max(-32768, Math.min(32767, Math.round(v * 32767)));
+        }
+        writeWav(new File(dir, name + ".wav"), samples, RATE);
+    }
+
+    private static double tone(double phase, double second, double third) {
+        return Math.sin(phase) + second * Math.sin(2 * phase) + third * Math.sin(3 * phase);
+    }
+
+    /** Sawtooth-like: all harmonics at 1/h, like a horn's reed. */
+    private static double buzz(double phase, int harmonics) {
+        double v = 0;
+        for (int h = 1; h <= harmonics; h++) v += Math.sin(h * phase) / h;
+        return v;
+    }
+
+    private static double triangle(double x) {
+        double f = x - Math.floor(x);
+        return f < 0.5 ? 4 * f - 1 : 3 - 4 * f;
+    }
+
+    /** 20ms fade in and out. */
+    private static double ramp(double sinceStart, double untilEnd) {
+        return Math.min(1, Math.min(sinceStart, untilEnd) / 0.02);
+    }
+
+    /** A struck bar: fundamental plus a weak inharmonic partial, ringing down. */
+    private static double bell(double t, double hz, double decaySeconds) {
+        if (t < 0) return 0;
+        double envelope = Math.exp(-t / decaySeconds) * Math.min(1, t / 0.003);
+        return envelope * (Math.sin(2 * Math.PI * hz * t) + 0.15 * Math.sin(2 * Math.PI * hz * 2.76 * t));
+    }
+
+    /** Crying: a strained 400-600 Hz voice, pitch rising then falling with vibrato, in bursts. */
+    private static double cry(double t, State s, double base, double[][] bursts) {
+        for (double[] burst : bursts) {
+            if (t >= burst[0] && t < burst[1]) {
+                double x = (t - burst[0]) / (burst[1] - burst[0]);
+                double f0 = base * (1 + 0.18 * Math.sin(Math.PI * x)) * (1 + 0.03 * Math.sin(2 * Math.PI * 7 * t));
+                double phase = s.phase(f0);
+                double v = 0;
+                for (int h = 1; h <= 10; h++) {
+                    double hz = h * f0;
+                    // Formant-ish emphasis around 1.2 kHz and 3 kHz
+                    double gain = 0.3 + Math.exp(-Math.pow((hz - 1200) / 500, 2)) + 0.6 * Math.exp(-Math.pow((hz - 3000) / 600, 2));
+                    v += gain * Math.sin(h * phase) / Math.sqrt(h);
+                }
+                return 0.12 * v * ramp(t - burst[0], burst[1] - t) + 0.03 * s.white();
+            }
+        }
+        return 0;
+    }
+
+    /** Speech-like: 100-180 Hz voice through changing vowel formants, syllables and pauses. */
+    private static double speech(double t, State s) {
+        if (t < LEAD_IN || (t > 1.6 && t < 1.85)) return 0;
+        double syllable = Math.max(0, Math.sin(2 * Math.PI * 4.2 * t));
+        double f0 = 140 + 30 * Math.sin(2 * Math.PI * 0.7 * t) + 10 * Math.sin(2 * Math.PI * 3 * t);
+        double phase = s.phase(f0);
+        int vowel = (int) (t / 0.24) % 3;
+        double f1 = new double[]{700, 400, 550}[vowel], f2 = new double[]{1200, 2100, 900}[vowel];
+        double v = 0;
+        for (int h = 1; h * f0 < 4000; h++) {
+            double hz = h * f0;
+            double gain = Math.exp(-Math.pow((hz - f1) / 120, 2)) + 0.6 * Math.exp(-Math.pow((hz - f2) / 160, 2)) + 0.05;
+            v += gain * Math.sin(h * phase);
+        }
+        return 0.1 * v * syllable;
+    }
+}
@@ -0,0 +1,134 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: builds a TranscriptIndex from a synthetic 100-hour lecture corpus
+ * (~6s captions at ~150 words a minute, Zipf-distributed vocabulary) and times queries.
+ * A few known sentences are planted so the answers can be checked too.
+ * Run with: ./gradlew :app:testDebugUnitTest --tests "*TranscriptIndexBenchmark"
+ */
+public class TranscriptIndexBenchmark {
+
+    private static final int HOURS = 100;
+    private static final int LECTURE_MINUTES = 50;
+    private static final int SEGMENT_MS = 6000;
+    private static final int WORDS_PER_SEGMENT = 15;
+    private static final int VOCABULARY = 20000;
+
+    private static final String[] COMMON = {
+            "the", "and", "of", "to", "a", "in", "is", "that", "it", "we", "this", "so", "you", "on", "for",
+            "what", "are", "be", "with", "as", "now", "here", "if", "can", "have", "one", "see", "do", "about",
+            "equation", "energy", "cell", "function", "value", "example", "problem", "system", "number", "point"
+    };
+
+    private static final String[] PLANTED = {
+            "remember the exam date is the fourteenth of november",
+            "your assignment deadline moved to next thursday",
+            "photosynthesis converts light energy into chemical energy"
+    };
+
+    private static final String[] QUERIES = {
+            "when is the exam date", "assignment deadline", "photosynthesis", "energy", "cell function example",
+            "the", "number value problem", "chemical energy", "fourteenth november", "what did we say about equations"
+    };
+
+    /** Pseudo words from syllables, so stemming and hashing see realistic shapes. */
+    private static String[] vocabulary(Random random) {
+        String[] syllables = {"ka", "lo", "mi", "ter", "sun", "pra", "vel", "dor", "tion", "es", "ing", "ed", "ra", "ba", "qui"};
+        String[] words = new String[VOCABULARY];
+        System.arraycopy(COMMON, 0, words, 0, COMMON.length);
+        for (int i = COMMON.length; i < VOCABULARY; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = 2 + random.nextInt(3);
+            for (int s = 0; s < n; s++) sb.append(syllables[random.nextInt(syllables.length)]);
+            words[i] = sb.toString() + i % 97;
+        }
+        return words;
+    }
+
+    @Test
+    public void hundredHourCorpus() {
+        Random random = new Random(42);
+        String[] words = vocabulary(random);
+        // Zipf: P(rank r) ~ 1/r, sampled through the cumulative table
+        double[] cumulative = new double[words.length];
+        double sum = 0;
+        for (int r = 0; r < words.length; r++) {
+            sum += 1.0 / (r + 1);
+            cumulative[r] = sum;
+        }
+
+        int lectures = HOURS * 60 / LECTURE_MINUTES;
+        int segmentsPerLecture = LECTURE_MINUTES * 60 * 1000 / SEGMENT_MS;
+        List<String> captions = new ArrayList<>(lectures * segmentsPerLecture);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lectures * segmentsPerLecture; i++) {
+            sb.setLength(0);
+            for (int w = 0; w < WORDS_PER_SEGMENT; w++) {
+                int r = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                if (w > 0) sb.append(' ');
+                sb.append(words[r < 0 ? Math.min(-r - 1, words.length - 1) : r]);
+            }
+            captions.add(sb.toString());
+        }
+        int[] plantedAt = new int[PLANTED.length];
+        for (int p = 0; p < PLANTED.length; p++) {
+            plantedAt[p] = random.nextInt(captions.size());
+            captions.set(plantedAt[p], PLANTED[p]);
+        }
+
+        long buildStart = System.nanoTime();
+        TranscriptIndex index = new TranscriptIndex();
+        for (int i = 0; i < captions.size(); i++) {
+            int lecture = i / segmentsPerLecture;
+            int segment = i % segmentsPerLecture;
+            index.add("lecture-" + lecture, segment, (long) segment * SEGMENT_MS, captions.get(i));
+        }
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        // Answers first
+        for (int p = 0; p < PLANTED.length; p++) {
+            List<TranscriptIndex.Hit> hits = index.search(QUERIES[p], 5);
+            assertFalse(hits.isEmpty());
+            assertEquals(PLANTED[p], hits.get(0).text);
+            assertEquals("lecture-" + plantedAt[p] / segmentsPerLecture, hits.get(0).lecture);
+        }
+
+        int sink = 0;
+        for (int r = 0; r < 50; r++) {
+            for (String query : QUERIES) sink += index.search(query, 20).size();
+        }
+        long[] times = new long[QUERIES.length * 20];
+        int t = 0;
+        for (int r = 0; r < 20; r++) {
+            for (String query : QUERIES) {
+                long start = System.nanoTime();
+                sink += index.search(query, 20).size();
+                times[t++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(times);
+        double p50Ms = times[times.length / 2] / 1e6;
+        double maxMs = times[times.length - 1] / 1e6;
+
+        System.out.println(String.format(Locale.US,
+                "TranscriptIndex: %d hours, %d lectures, %d segments, %d terms | build %dms (%.1fus/segment)"
+                        + " | query p50 %.2fms, max %.2fms (sink=%d)",
+                HOURS, lectures, index.getSegmentCount(), index.getTermCount(), buildMs,
+                buildMs * 1000.0 / index.getSegmentCount(), p50Ms, maxMs, sink));
+
+        assertEquals(lectures * segmentsPerLecture, index.getSegmentCount());
+        // Generous bounds for a slow CI box; a phone is slower than a desktop JVM but not 10x
+        assertTrue("query too slow: " + p50Ms + "ms", p50Ms < 50);
+        assertTrue("build too slow: " + buildMs + "ms", buildMs < 30_000);
+    }
+}
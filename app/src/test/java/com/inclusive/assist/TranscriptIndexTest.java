@@ -0,0 +1,71 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ranking and stemming checks for TranscriptIndex on a handful of hand-written captions.
+ */
+public class TranscriptIndexTest {
+
+    private static TranscriptIndex sample() {
+        TranscriptIndex index = new TranscriptIndex();
+        index.add("lecture-1", 0, 0, "Good morning everyone, today we start with cell biology");
+        index.add("lecture-1", 1, 6000, "The mitochondria is where the cell makes its energy");
+        index.add("lecture-1", 2, 12000, "Please remember the date for the lab report");
+        index.add("lecture-2", 0, 0, "The exam will be on the twelfth of March");
+        index.add("lecture-2", 1, 5000, "I mentioned the exam date last week, it is the twelfth");
+        index.add("lecture-2", 2, 9000, "Examination rooms are on the second floor");
+        return index;
+    }
+
+    @Test
+    public void stemsCommonEndings() {
+        assertEquals(TranscriptIndex.stem("mention"), TranscriptIndex.stem("mentioned"));
+        assertEquals(TranscriptIndex.stem("mention"), TranscriptIndex.stem("mentioning"));
+        assertEquals(TranscriptIndex.stem("date"), TranscriptIndex.stem("dates"));
+        assertEquals(TranscriptIndex.stem("exam"), TranscriptIndex.stem("exams"));
+        assertEquals(TranscriptIndex.stem("examine"), TranscriptIndex.stem("examination"));
+        assertEquals(TranscriptIndex.stem("examine"), TranscriptIndex.stem("examined"));
+        assertEquals(TranscriptIndex.stem("create"), TranscriptIndex.stem("creation"));
+        assertEquals(TranscriptIndex.stem("plan"), TranscriptIndex.stem("planned"));
+        assertEquals("class", TranscriptIndex.stem("class"));
+    }
+
+    @Test
+    public void phraseMatchRanksFirst() {
+        List<TranscriptIndex.Hit> hits = sample().search("when did the teacher mention the exam date", 5);
+        assertFalse(hits.isEmpty());
+        assertEquals("lecture-2", hits.get(0).lecture);
+        assertEquals(1, hits.get(0).segment);
+        assertEquals(5000, hits.get(0).startMs);
+    }
+
+    @Test
+    public void searchesAcrossLectures() {
+        List<TranscriptIndex.Hit> hits = sample().search("dates", 10);
+        assertEquals(2, hits.size());
+        boolean first = false, second = false;
+        for (TranscriptIndex.Hit hit : hits) {
+            first |= hit.lecture.equals("lecture-1");
+            second |= hit.lecture.equals("lecture-2");
+        }
+        assertTrue(first && second);
+    }
+
+    @Test
+    public void stopWordsAndUnknownWordsFindNothing() {
+        TranscriptIndex index = sample();
+        assertTrue(index.search("the and of", 5).isEmpty());
+        assertTrue(index.search("photosynthesis", 5).isEmpty());
+        assertTrue(new TranscriptIndex().search("exam", 5).isEmpty());
+    }
+
+    @Test
+    public void limitIsRespected() {
+        assertEquals(1, sample().search("exam", 1).size());
+    }
+}
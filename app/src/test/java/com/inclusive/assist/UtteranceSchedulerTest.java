@@ -0,0 +1,189 @@
+package com.inclusive.assist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * UtteranceScheduler against a fake player that just records what it was told to say, with
+ * the player's start/finish events driven by hand.
+ */
+public class UtteranceSchedulerTest {
+
+    private static class FakePlayer implements UtteranceScheduler.Player {
+        final List<UtteranceScheduler.Utterance> played = new ArrayList<>();
+        int stops = 0;
+
+        @Override
+        public void play(UtteranceScheduler.Utterance u) {
+            played.add(u);
+        }
+
+        @Override
+        public void stopPlayback() {
+            stops++;
+        }
+
+        UtteranceScheduler.Utterance last() {
+            return played.get(played.size() - 1);
+        }
+
+        String lastText() {
+            return last().text;
+        }
+    }
+
+    /** Records onStart/onDone as "text:start" / "text:done". */
+    private static class Recorder {
+        final List<String> events = new ArrayList<>();
+
+        UtteranceScheduler.UtteranceCallback callback(String text) {
+            return new UtteranceScheduler.UtteranceCallback() {
+                @Override
+                public void onStart() {
+                    events.add(text + ":start");
+                }
+
+                @Override
+                public void onDone() {
+                    events.add(text + ":done");
+                }
+            };
+        }
+    }
+
+    private FakePlayer player;
+    private UtteranceScheduler scheduler;
+    private Recorder recorder;
+
+    @Before
+    public void setUp() {
+        player = new FakePlayer();
+        scheduler = new UtteranceScheduler(player);
+        recorder = new Recorder();
+    }
+
+    private boolean submit(String text, UtteranceScheduler.Priority priority) {
+        return scheduler.submit(text, priority, recorder.callback(text), null);
+    }
+
+    private void finishCurrent() {
+        scheduler.onFinished(player.last().id);
+    }
+
+    @Test
+    public void higherPriorityCutsOff() {
+        submit("Analyzing", UtteranceScheduler.Priority.PERIODIC);
+        submit("Emergency! Calling now.", UtteranceScheduler.Priority.EMERGENCY);
+
+        assertEquals("Emergency! Calling now.", player.lastText());
+        assertEquals("Analyzing:done", recorder.events.get(0)); // Cut off = done
+        assertTrue(scheduler.getStatsSummary().contains("preempted=1"));
+    }
+
+    @Test
+    public void lowerPriorityWaitsItsTurn() {
+        submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL);
+        submit("Opening Bus Routes", UtteranceScheduler.Priority.USER);
+        assertEquals(1, player.played.size());
+
+        finishCurrent();
+        assertEquals("Opening Bus Routes", player.lastText());
+    }
+
+    @Test
+    public void sameClassUserReplacesButArrivalQueues() {
+        submit("Opening Location", UtteranceScheduler.Priority.USER);
+        submit("Opening Quick Messages", UtteranceScheduler.Priority.USER);
+        assertEquals("Opening Quick Messages", player.lastText());
+
+        submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL);
+        submit("Arrived at Majestic", UtteranceScheduler.Priority.ARRIVAL);
+        assertEquals("Arrived at Hebbal", player.lastText());
+        finishCurrent();
+        assertEquals("Arrived at Majestic", player.lastText());
+    }
+
+    @Test
+    public void repeatsAreDroppedInsideTheWindow() {
+        assertTrue(submit("Chair ahead", UtteranceScheduler.Priority.PERIODIC));
+        assertFalse("Same text while playing", submit("chair  AHEAD", UtteranceScheduler.Priority.PERIODIC));
+        finishCurrent();
+        assertFalse("Camera repeat within 8s", submit("Chair ahead", UtteranceScheduler.Priority.PERIODIC));
+
+        assertTrue(submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL));
+        finishCurrent();
+        assertFalse("Arrival repeat within 5s", submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL));
+
+        assertTrue(submit("Opening Location", UtteranceScheduler.Priority.USER));
+        finishCurrent();
+        assertTrue("The user asked again", submit("Opening Location", UtteranceScheduler.Priority.USER));
+        assertTrue(scheduler.getStatsSummary().contains("deduped=3"));
+    }
+
+    @Test
+    public void queuedCameraResultsCollapseToTheLatest() {
+        submit("You have arrived", UtteranceScheduler.Priority.ARRIVAL);
+        submit("Chair ahead", UtteranceScheduler.Priority.PERIODIC);
+        submit("Door on the left", UtteranceScheduler.Priority.PERIODIC);
+        submit("Person ahead", UtteranceScheduler.Priority.PERIODIC);
+
+        assertTrue(recorder.events.contains("Chair ahead:done"));
+        assertTrue(recorder.events.contains("Door on the left:done"));
+        assertTrue(scheduler.getStatsSummary().contains("coalesced=2"));
+
+        finishCurrent();
+        assertEquals("Person ahead", player.lastText());
+        assertEquals(2, player.played.size());
+    }
+
+    @Test
+    public void callbacksFollowThePlayer() {
+        submit("Opening Location", UtteranceScheduler.Priority.USER);
+        long id = player.last().id;
+        scheduler.onStarted(id);
+        scheduler.onFinished(id);
+        scheduler.onFinished(id); // A late duplicate event is ignored
+        assertEquals("[Opening Location:start, Opening Location:done]", recorder.events.toString());
+    }
+
+    @Test
+    public void cancelOnlyTouchesTheOwner() {
+        Object screen = new Object();
+        scheduler.submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL, recorder.callback("arrival"), null);
+        scheduler.submit("Listening", UtteranceScheduler.Priority.USER, recorder.callback("prompt"), screen);
+        scheduler.submit("Chair ahead", UtteranceScheduler.Priority.PERIODIC, recorder.callback("chair"), screen);
+
+        scheduler.cancel(screen);
+        assertEquals("Arrived at Hebbal", player.lastText());
+        assertEquals(0, player.stops);
+        finishCurrent();
+        assertEquals("Nothing of the owner's is left", 1, player.played.size());
+        assertEquals("[arrival:done]", recorder.events.toString());
+    }
+
+    @Test
+    public void cancelCutsOffTheOwnerAndGoesOn() {
+        Object screen = new Object();
+        scheduler.submit("Arrived at Hebbal", UtteranceScheduler.Priority.ARRIVAL, recorder.callback("arrival"), screen);
+        scheduler.submit("Opening Bus Routes", UtteranceScheduler.Priority.USER, recorder.callback("menu"), null);
+
+        scheduler.cancel(screen);
+        assertEquals(1, player.stops);
+        assertEquals("Opening Bus Routes", player.lastText());
+        assertTrue("No callbacks into a cancelled owner", recorder.events.isEmpty());
+    }
+
+    @Test
+    public void emergenciesAreNeverCancelled() {
+        Object screen = new Object();
+        scheduler.submit("Emergency! Calling now.", UtteranceScheduler.Priority.EMERGENCY, null, screen);
+        scheduler.cancel(screen);
+        scheduler.stopAll();
+        assertEquals(1, player.stops); // Only stopAll() silences it
+    }
+}
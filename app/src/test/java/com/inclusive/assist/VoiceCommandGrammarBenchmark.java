@@ -0,0 +1,104 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: the compiled grammar vs the old contains() chain, over the
+ * voice_commands.txt corpus. Prints accuracy and time per utterance.
+ * Run with: ./gradlew :app:testDebugUnitTest --tests "*VoiceCommandGrammarBenchmark"
+ */
+public class VoiceCommandGrammarBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int ROUNDS = 5000;
+
+    /** MainActivity/BlindMenuActivity before the grammar, merged, on the top alternative only. */
+    private static VoiceCommandGrammar.Command legacy(List<String> alternatives) {
+        String command = alternatives.get(0).toLowerCase();
+        if (command.contains("visually") || command.contains("blind") || command.contains("impaired")) {
+            return VoiceCommandGrammar.Command.BLIND_MODE;
+        } else if (command.contains("hearing") || command.contains("deaf")) {
+            return VoiceCommandGrammar.Command.DEAF_MODE;
+        } else if (command.contains("read") || command.contains("text")) {
+            return VoiceCommandGrammar.Command.READ_TEXT;
+        } else if (command.contains("currency") || command.contains("money")) {
+            return VoiceCommandGrammar.Command.CURRENCY;
+        } else if (command.contains("where") || command.contains("location")) {
+            return VoiceCommandGrammar.Command.LOCATION;
+        } else if (command.contains("scene") || command.contains("describe")) {
+            return VoiceCommandGrammar.Command.SCENE;
+        } else if (command.contains("object") || command.contains("detect")) {
+            return VoiceCommandGrammar.Command.OBJECTS;
+        } else if (command.contains("assistant") || command.contains("ai")) {
+            return VoiceCommandGrammar.Command.ASSISTANT;
+        } else if (command.contains("light")) {
+            return VoiceCommandGrammar.Command.LIGHT;
+        } else if (command.contains("bus") || command.contains("route")) {
+            return VoiceCommandGrammar.Command.BUS;
+        } else if (command.contains("quick") || command.contains("message")) {
+            return VoiceCommandGrammar.Command.QUICK_MESSAGES;
+        } else if (command.contains("sound") || command.contains("alert")) {
+            return VoiceCommandGrammar.Command.SOUND_ALERT;
+        } else if (command.contains("help") || command.contains("sos")) {
+            return VoiceCommandGrammar.Command.SOS;
+        }
+        return null;
+    }
+
+    @Test
+    public void grammarVsContainsChain() throws IOException {
+        List<VoiceCommandGrammarTest.Case> cases = VoiceCommandGrammarTest.loadCorpus();
+
+        long compileStart = System.nanoTime();
+        VoiceCommandGrammar grammar = VoiceCommandGrammar.forMenu();
+        long compileUs = (System.nanoTime() - compileStart) / 1000;
+
+        int grammarCorrect = 0;
+        int legacyCorrect = 0;
+        for (VoiceCommandGrammarTest.Case c : cases) {
+            VoiceCommandGrammar.Match match = grammar.match(c.alternatives);
+            if ((match == null ? null : match.command) == c.expected) grammarCorrect++;
+            if (legacy(c.alternatives) == c.expected) legacyCorrect++;
+        }
+
+        int sink = 0; // Keeps the JIT from dropping the loops
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (VoiceCommandGrammarTest.Case c : cases) {
+                if (grammar.match(c.alternatives) != null) sink++;
+                if (legacy(c.alternatives) != null) sink++;
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (VoiceCommandGrammarTest.Case c : cases) {
+                if (grammar.match(c.alternatives) != null) sink++;
+            }
+        }
+        double grammarNs = (System.nanoTime() - start) / (double) (ROUNDS * cases.size());
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (VoiceCommandGrammarTest.Case c : cases) {
+                if (legacy(c.alternatives) != null) sink++;
+            }
+        }
+        double legacyNs = (System.nanoTime() - start) / (double) (ROUNDS * cases.size());
+
+        System.out.println(String.format(Locale.US,
+                "VoiceCommandGrammar: %d utterances, compile %dus | grammar %d/%d correct, %.1fus each"
+                        + " | contains-chain %d/%d correct, %.1fus each (sink=%d)",
+                cases.size(), compileUs, grammarCorrect, cases.size(), grammarNs / 1000,
+                legacyCorrect, cases.size(), legacyNs / 1000, sink));
+
+        assertTrue(grammarCorrect > legacyCorrect);
+        // Far below anything a user could notice after a recognizer result
+        assertTrue("grammar too slow: " + grammarNs + "ns", grammarNs < 1_000_000);
+    }
+}
@@ -0,0 +1,112 @@
+package com.inclusive.assist;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks VoiceCommandGrammar against the utterance corpus in voice_commands.txt
+ * plus a few targeted cases.
+ */
+public class VoiceCommandGrammarTest {
+
+    /** One corpus line: expected command (null = no match) and the N-best alternatives. */
+    static class Case {
+        final VoiceCommandGrammar.Command expected;
+        final List<String> alternatives;
+
+        Case(VoiceCommandGrammar.Command expected, List<String> alternatives) {
+            this.expected = expected;
+            this.alternatives = alternatives;
+        }
+    }
+
+    static List<Case> loadCorpus() throws IOException {
+        List<Case> cases = new ArrayList<>();
+        InputStream in = VoiceCommandGrammarTest.class.getResourceAsStream("/voice_commands.txt");
+        assertNotNull("voice_commands.txt missing from test resources", in);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\|");
+                String name = parts[0].trim();
+                List<String> alternatives = new ArrayList<>();
+                for (int i = 1; i < parts.length; i++) alternatives.add(parts[i].trim());
+                cases.add(new Case(name.equals("NONE") ? null : VoiceCommandGrammar.Command.valueOf(name), alternatives));
+            }
+        }
+        return cases;
+    }
+
+    @Test
+    public void corpus_allUtterancesMatchExpectedCommand() throws IOException {
+        VoiceCommandGrammar grammar = VoiceCommandGrammar.forMenu();
+        List<String> failures = new ArrayList<>();
+        List<Case> cases = loadCorpus();
+        for (Case c : cases) {
+            VoiceCommandGrammar.Match match = grammar.match(c.alternatives);
+            VoiceCommandGrammar.Command got = match == null ? null : match.command;
+            if (got != c.expected) failures.add(c.alternatives + " -> " + match + ", expected " + c.expected);
+        }
+        assertTrue(cases.size() >= 50);
+        assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void shortWords_matchOnlyWholeWords() {
+        VoiceCommandGrammar grammar = VoiceCommandGrammar.forMenu();
+        assertNull(grammar.match("wait"));
+        assertNull(grammar.match("detail"));
+        assertEquals(VoiceCommandGrammar.Command.ASSISTANT, grammar.match("open ai").command);
+    }
+
+    @Test
+    public void longerPhrase_beatsSingleWord() {
+        VoiceCommandGrammar.Match match = VoiceCommandGrammar.forMenu().match("text message");
+        assertEquals(VoiceCommandGrammar.Command.QUICK_MESSAGES, match.command);
+        assertEquals("text message", match.phrase);
+    }
+
+    @Test
+    public void fuzzy_onlyForLongerWords() {
+        VoiceCommandGrammar grammar = VoiceCommandGrammar.forMenu();
+        VoiceCommandGrammar.Match match = grammar.match("curency");
+        assertEquals(VoiceCommandGrammar.Command.CURRENCY, match.command);
+        assertEquals(1, match.edits);
+        // "bos" is one edit from "bus" but too short to trust
+        assertNull(grammar.match("bos"));
+    }
+
+    @Test
+    public void nBest_usesLowerAlternativeWhenTopHasNothing() {
+        VoiceCommandGrammar.Match match = VoiceCommandGrammar.forMenu().match(Arrays.asList("boss", "bus"));
+        assertEquals(VoiceCommandGrammar.Command.BUS, match.command);
+        assertEquals(1, match.alternative);
+    }
+
+    @Test
+    public void nBest_exactTopGuessBeatsLowerAlternative() {
+        VoiceCommandGrammar.Match match = VoiceCommandGrammar.forMenu().match(Arrays.asList("light", "scene"));
+        assertEquals(VoiceCommandGrammar.Command.LIGHT, match.command);
+    }
+
+    @Test
+    public void screenGrammar_ignoresCommandsItDoesNotHandle() {
+        VoiceCommandGrammar grammar = VoiceCommandGrammar.forMenu(
+                EnumSet.of(VoiceCommandGrammar.Command.READ_TEXT, VoiceCommandGrammar.Command.BUS));
+        assertNull(grammar.match("sos"));
+        assertEquals(VoiceCommandGrammar.Command.BUS, grammar.match("help me find a bus").command);
+    }
+}